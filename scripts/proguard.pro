@@ -37,6 +37,11 @@
     public <fields>;    
 }
 
+# JFR reads event fields and their annotations by reflection
+-keep class baritone.utils.jfr.** { *; }
+# jfr.jar is added next to rt.jar when the JDK has one, older JDKs only have it in rt.jar or not at all
+-dontwarn jdk.jfr.**
+
 # need to keep mixin names
 -keep class baritone.launch.** { *; }
 
@@ -20,6 +20,7 @@ package baritone.api;
 import baritone.api.cache.IWorldScanner;
 import baritone.api.command.ICommand;
 import baritone.api.command.ICommandSystem;
+import baritone.api.metrics.IMetrics;
 import baritone.api.schematic.ISchematicSystem;
 import net.minecraft.client.entity.EntityPlayerSP;
 
@@ -88,4 +89,12 @@ public interface IBaritoneProvider {
      * @return The {@link ISchematicSystem} instance.
      */
     ISchematicSystem getSchematicSystem();
+
+    /**
+     * Returns the {@link IMetrics} instance, which is shared by every {@link IBaritone} like the
+     * caches and path searches it measures.
+     *
+     * @return The {@link IMetrics} instance.
+     */
+    IMetrics getMetrics();
 }
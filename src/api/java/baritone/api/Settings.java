@@ -548,10 +548,16 @@ public final class Settings {
     public final Setting<Boolean> simplifyUnloadedYCoord = new Setting<>(true);
 
     /**
-     * Whenever a block changes, repack the whole chunk that it's in
+     * Whenever a block changes, update the cached chunk that it's in
      */
     public final Setting<Boolean> repackOnAnyBlockChange = new Setting<>(true);
 
+    /**
+     * Keep an index of where blocks are in the loaded chunks, so that searching them for blocks to mine or farm looks
+     * the blocks up instead of going through every chunk again each time
+     */
+    public final Setting<Boolean> loadedBlockIndex = new Setting<>(true);
+
     /**
      * If a movement takes this many ticks more than its initial cost estimate, cancel it
      */
@@ -613,7 +619,17 @@ public final class Settings {
     public final Setting<Boolean> chunkCaching = new Setting<>(true);
 
     /**
-     * On save, delete from RAM any cached regions that are more than 1024 blocks away from the player
+     * Blocks to remember the locations of in the cache, on top of the ones that are always remembered (chests,
+     * spawners, portals and so on). These can be found with {@code #find} and mined with {@code #mine} even when
+     * they're in chunks that aren't loaded.
+     * <p>
+     * Chunks that were cached before a block was added here only find out about it once they're loaded again.
+     */
+    public final Setting<List<Block>> additionalTrackedBlocks = new Setting<>(new ArrayList<>());
+
+    /**
+     * Once the cached regions in RAM go over {@link #cachedRegionMemoryBudgetMB}, delete the least recently used ones
+     * from RAM (after saving them, if they have unsaved changes)
      * <p>
      * Temporarily disabled
      * <p>
@@ -623,6 +639,36 @@ public final class Settings {
      */
     public final Setting<Boolean> pruneRegionsFromRAM = new Setting<>(true);
 
+    /**
+     * The approximate amount of RAM, in megabytes, that cached regions are allowed to take up before the least
+     * recently used ones are pruned. A region with every chunk cached takes up about 18MB. The index of where every
+     * tracked block is never leaves RAM, so it counts against this first.
+     */
+    public final Setting<Integer> cachedRegionMemoryBudgetMB = new Setting<>(256);
+
+    /**
+     * The most kilobytes per second to write cached regions to disk at, so that saving doesn't compete with the game
+     * for the disk. Saving on exit ignores this. 0 for no limit.
+     */
+    public final Setting<Integer> cachedRegionSaveRateKB = new Setting<>(4096);
+
+    /**
+     * How many seconds after the last bot leaves a world (a dimension on a server, or a singleplayer save) its cache is
+     * saved and dropped from RAM, along with the threads that keep it up to date. Going back to it before then picks up
+     * where it was left. Negative to keep every world that has been visited in RAM until the game closes.
+     */
+    public final Setting<Integer> worldDataUnloadDelaySeconds = new Setting<>(300);
+
+    /**
+     * Set this when several games on one computer share the same cache directory, such as a few bots on the same
+     * server. Region files written by the others are merged in as soon as they show up, and regions are saved every 30
+     * seconds rather than every 10 minutes, so what one bot explores is available to the rest right away.
+     * <p>
+     * Saving is safe to share either way, this only makes the games see each other's changes sooner. Only applies to
+     * worlds loaded after it's set.
+     */
+    public final Setting<Boolean> sharedCache = new Setting<>(false);
+
     /**
      * Fill in blocks behind you
      */
@@ -645,6 +691,18 @@ public final class Settings {
      */
     public final Setting<Boolean> chatDebug = new Setting<>(false);
 
+    /**
+     * Append the metrics shown by {@code #stats} to a file in the Baritone directory this often, in seconds, for
+     * looking at later. 0 to turn it off.
+     */
+    public final Setting<Integer> metricsDumpIntervalSeconds = new Setting<>(0);
+
+    /**
+     * Either "csv", which appends to {@code metrics.csv}, or "json", which appends one JSON object per dump to
+     * {@code metrics.jsonl}
+     */
+    public final Setting<String> metricsDumpFormat = new Setting<>("csv");
+
     /**
      * Allow chat based control of Baritone. Most likely should be disabled when Baritone is imported for use in
      * something else
@@ -848,6 +906,21 @@ public final class Settings {
      */
     public final Setting<Integer> mineGoalUpdateInterval = new Setting<>(5);
 
+    /**
+     * Keep the blocks being mined up to date as chunks load and blocks change, and only search the world again when
+     * none are left or the cache has new ones, instead of searching it every {@link #mineGoalUpdateInterval} ticks.
+     * <p>
+     * Not used while {@link #legitMine} is on
+     */
+    public final Setting<Boolean> mineTrackChanges = new Setting<>(true);
+
+    /**
+     * Plan a route through the known blocks to mine, a vein at a time, and only head for this many of the next blocks on
+     * it at once. 0 heads for whichever known block is nearest, which zig-zags through veins and between them, but is
+     * hard to beat when only the nearest few blocks are known, since the route has to be planned again as more are found.
+     */
+    public final Setting<Integer> mineRouteWindow = new Setting<>(0);
+
     /**
      * After finding this many instances of the target block in the cache, it will stop expanding outward the chunk search.
      */
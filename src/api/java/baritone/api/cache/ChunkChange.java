@@ -0,0 +1,122 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.api.cache;
+
+/**
+ * A change to one chunk, delivered to a {@link IChunkChangeListener}. Changes to the same chunk that happen before
+ * they're delivered are merged into one.
+ */
+public final class ChunkChange {
+
+    /**
+     * The type of change
+     */
+    private final Type type;
+
+    /**
+     * The Chunk X position.
+     */
+    private final int x;
+
+    /**
+     * The Chunk Z position.
+     */
+    private final int z;
+
+    /**
+     * Bit {@code i} is set if anything changed between y {@code 16 * i} and {@code 16 * i + 15}
+     */
+    private final int sections;
+
+    /**
+     * The version of the chunk after this change
+     */
+    private final long version;
+
+    public ChunkChange(Type type, int x, int z, int sections, long version) {
+        this.type = type;
+        this.x = x;
+        this.z = z;
+        this.sections = sections;
+        this.version = version;
+    }
+
+    /**
+     * @return The type of change
+     */
+    public final Type getType() {
+        return this.type;
+    }
+
+    /**
+     * @return The Chunk X position.
+     */
+    public final int getX() {
+        return this.x;
+    }
+
+    /**
+     * @return The Chunk Z position.
+     */
+    public final int getZ() {
+        return this.z;
+    }
+
+    /**
+     * @return A mask of the 16 block tall sections that changed, bit {@code i} being the one from y {@code 16 * i}
+     */
+    public final int getSections() {
+        return this.sections;
+    }
+
+    /**
+     * @param y A block y coordinate
+     * @return Whether anything changed in the section of that y
+     */
+    public final boolean changedAt(int y) {
+        return y >= 0 && y < 256 && (sections & (1 << (y >> 4))) != 0;
+    }
+
+    /**
+     * @return The version of the chunk after this change, as in {@link ICachedWorld#getCachedChunkVersion} or
+     * {@link ICachedWorld#getLoadedChunkVersion}, depending on the type
+     */
+    public final long getVersion() {
+        return this.version;
+    }
+
+    /**
+     * Merges another change to the same chunk that happened after this one
+     */
+    public final ChunkChange merge(ChunkChange after) {
+        return new ChunkChange(type, x, z, sections | after.sections, Math.max(version, after.version));
+    }
+
+    public enum Type {
+
+        /**
+         * The chunk as it's loaded in the world changed, because it was loaded or blocks in it changed
+         */
+        LOADED,
+
+        /**
+         * The cached copy of the chunk changed, after it was packed, patched or imported
+         */
+        CACHED
+    }
+}
@@ -21,6 +21,7 @@ import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.chunk.Chunk;
 
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * @author Brady
@@ -28,6 +29,11 @@ import java.util.ArrayList;
  */
 public interface ICachedWorld {
 
+    /**
+     * What the bulk read methods give blocks in chunks that aren't cached
+     */
+    int NOT_CACHED = -1;
+
     /**
      * Returns the region at the specified region coordinates
      *
@@ -46,6 +52,15 @@ public interface ICachedWorld {
      */
     void queueForPacking(Chunk chunk);
 
+    /**
+     * Queues some changed blocks of the specified chunk to be updated in the cached copy of that chunk, which is much
+     * cheaper than packing the whole chunk again. If the chunk can't be updated that way, it's packed instead.
+     *
+     * @param chunk     The chunk that the blocks are in
+     * @param positions The positions of the blocks that changed
+     */
+    void queueBlockChanges(Chunk chunk, List<BlockPos> positions);
+
     /**
      * Returns whether or not the block at the specified X and Z coordinates
      * is cached in this world.
@@ -70,6 +85,127 @@ public interface ICachedWorld {
      */
     ArrayList<BlockPos> getLocationsOf(String block, int maximum, int centerX, int centerZ, int maxRegionDistanceSq);
 
+    /**
+     * Returns the closest cached locations of the specified special block, by horizontal distance. Unlike
+     * {@link #getLocationsOf}, this doesn't need the regions around the center to be loaded from disk.
+     *
+     * @param block   The special block to search for
+     * @param maximum The maximum number of position results to receive
+     * @param centerX The x block coordinate center of the search
+     * @param centerZ The z block coordinate center of the search
+     * @param radius  The maximum horizontal distance from the center, in blocks
+     * @return The locations found that match the special block, closest first
+     */
+    List<BlockPos> getNearestLocationsOf(String block, int maximum, int centerX, int centerZ, int radius);
+
+    /**
+     * Returns the version of the cached copy of a chunk. It increases every time the cached copy changes. Versions
+     * are only kept while the region of the chunk is in RAM; any other chunk has the highest version dropped so far,
+     * or 0 if none has been. So a version can go up without the chunk having changed, but never goes down.
+     *
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The version of the cached chunk
+     */
+    long getCachedChunkVersion(int chunkX, int chunkZ);
+
+    /**
+     * Returns the version of a chunk as it's loaded in the world. It increases every time the chunk is loaded or blocks
+     * in it change. Versions are only kept while the chunk is loaded; any other chunk has the highest version dropped
+     * so far, or 0 if none has been. So a version can go up without the chunk having changed, but never goes down.
+     *
+     * @param chunkX The chunk X coordinate
+     * @param chunkZ The chunk Z coordinate
+     * @return The version of the loaded chunk
+     */
+    long getLoadedChunkVersion(int chunkX, int chunkZ);
+
+    /**
+     * Starts delivering batches of changed chunks in this world to the listener, off the main thread, so that things
+     * derived from the terrain can be invalidated when it changes instead of on a timer.
+     *
+     * @param listener The listener
+     */
+    void addChunkChangeListener(IChunkChangeListener listener);
+
+    /**
+     * Stops delivering changes to the listener. A batch that's already being delivered may still reach it.
+     *
+     * @param listener The listener
+     */
+    void removeChunkChangeListener(IChunkChangeListener listener);
+
+    /**
+     * Reads the pathing types of every block in a box, from the cached chunks. The type of the block at
+     * {@code (minX + x, minY + y, minZ + z)} goes at index {@code (y * sizeZ + z) * sizeX + x}, and is 0 for air, 1 for
+     * water, 2 for blocks to avoid and 3 for solid blocks, or {@link #NOT_CACHED}.
+     * <p>
+     * This works on whole rows of packed blocks at a time, so it's much quicker than going through
+     * {@link ICachedRegion#getBlock} block by block. Regions that are saved but not in RAM are loaded. Safe to call from
+     * any thread, although chunks that are packed while it runs may be read before or after the change.
+     *
+     * @param minX  The lowest block X coordinate of the box
+     * @param minY  The lowest block Y coordinate of the box, at least 0
+     * @param minZ  The lowest block Z coordinate of the box
+     * @param sizeX The size of the box along X
+     * @param sizeY The size of the box along Y, such that {@code minY + sizeY} is at most 256
+     * @param sizeZ The size of the box along Z
+     * @param out   The array to fill, at least {@code sizeX * sizeY * sizeZ} long
+     * @return How many of the blocks were cached
+     */
+    int readPathingTypes(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, byte[] out);
+
+    /**
+     * Reads the block state ids of every block in a box, from the cached chunks, as in
+     * {@link net.minecraft.block.Block#getStateId}. The states are what {@link ICachedRegion#getBlock} would return,
+     * and are laid out the same way as in {@link #readPathingTypes}, with {@link #NOT_CACHED} for blocks in chunks that
+     * aren't cached.
+     *
+     * @return How many of the blocks were cached
+     * @see #readPathingTypes
+     */
+    int readBlockStateIds(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, int[] out);
+
+    /**
+     * Reads the pathing types of a whole chunk, as in {@link #readPathingTypes}
+     *
+     * @param out The array to fill, at least 65536 long
+     * @return How many of the blocks were cached, either 0 or 65536
+     */
+    default int readChunkPathingTypes(int chunkX, int chunkZ, byte[] out) {
+        return readPathingTypes(chunkX << 4, 0, chunkZ << 4, 16, 256, 16, out);
+    }
+
+    /**
+     * Reads the block state ids of a whole chunk, as in {@link #readBlockStateIds}
+     *
+     * @param out The array to fill, at least 65536 long
+     * @return How many of the blocks were cached, either 0 or 65536
+     */
+    default int readChunkBlockStateIds(int chunkX, int chunkZ, int[] out) {
+        return readBlockStateIds(chunkX << 4, 0, chunkZ << 4, 16, 256, 16, out);
+    }
+
+    /**
+     * Reads the pathing types of a column of blocks from y=0 up, as in {@link #readPathingTypes}
+     *
+     * @param out The array to fill, at least 256 long
+     * @return How many of the blocks were cached, either 0 or 256
+     */
+    default int readColumnPathingTypes(int x, int z, byte[] out) {
+        return readPathingTypes(x, 0, z, 1, 256, 1, out);
+    }
+
+    /**
+     * Reads the block state ids of a column of blocks from y=0 up, as in {@link #readBlockStateIds}
+     *
+     * @param out The array to fill, at least 256 long
+     * @return How many of the blocks were cached, either 0 or 256
+     */
+    default int readColumnBlockStateIds(int x, int z, int[] out) {
+        return readBlockStateIds(x, 0, z, 1, 256, 1, out);
+    }
+
     /**
      * Reloads all of the cached regions in this world from disk. Anything that is not saved
      * will be lost. This operation does not execute in a new thread by default.
@@ -0,0 +1,35 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.api.cache;
+
+import java.util.List;
+
+/**
+ * Receives changes to the chunks of a {@link ICachedWorld}, see {@link ICachedWorld#addChunkChangeListener}
+ */
+@FunctionalInterface
+public interface IChunkChangeListener {
+
+    /**
+     * Called off the main thread with every change since the previous call, at most one per chunk and type. Calls to
+     * the same listener never overlap.
+     *
+     * @param changes The changes
+     */
+    void onChunksChanged(List<ChunkChange> changes);
+}
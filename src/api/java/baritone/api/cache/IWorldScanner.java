@@ -17,12 +17,16 @@
 
 package baritone.api.cache;
 
+import baritone.api.utils.BetterBlockPos;
 import baritone.api.utils.BlockOptionalMetaLookup;
 import baritone.api.utils.IPlayerContext;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.block.Block;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 
 /**
@@ -48,6 +52,33 @@ public interface IWorldScanner {
         return scanChunkRadius(ctx, new BlockOptionalMetaLookup(filter.toArray(new Block[0])), max, yLevelThreshold, maxSearchRadius);
     }
 
+    /**
+     * Scans the world, up to the specified max chunk radius, for the specified blocks, nearest to the player first.
+     * Chunks are gone through a ring at a time, and the scan stops once {@code max} blocks within the Y level threshold
+     * are found that nothing in the rings left could be nearer than.
+     *
+     * @param ctx             The {@link IPlayerContext} containing player and world info that the scan is based upon
+     * @param filter          The blocks to scan for
+     * @param max             The maximum number of blocks to add, or negative for no maximum
+     * @param yLevelThreshold How far above or below the player a block can be to count towards {@code max}, if the value
+     *                        is negative, then every block counts.
+     * @param maxSearchRadius The maximum chunk search radius
+     * @param result          Where the positions go, packed as by {@link BetterBlockPos#toLong(int, int, int)}, in
+     *                        ascending distance from the player
+     * @return How many positions were added
+     */
+    default int scanNearest(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius, LongList result) {
+        BetterBlockPos feet = ctx.playerFeet();
+        List<BlockPos> found = new ArrayList<>(scanChunkRadius(ctx, filter, Integer.MAX_VALUE, yLevelThreshold, maxSearchRadius));
+        found.sort(Comparator.comparingDouble(feet::distanceSq));
+        int count = max < 0 ? found.size() : Math.min(max, found.size());
+        for (int i = 0; i < count; i++) {
+            BlockPos pos = found.get(i);
+            result.add(BetterBlockPos.toLong(pos.getX(), pos.getY(), pos.getZ()));
+        }
+        return count;
+    }
+
     /**
      * Scans a single chunk for the specified blocks.
      *
@@ -76,6 +107,22 @@ public interface IWorldScanner {
         return scanChunk(ctx, new BlockOptionalMetaLookup(blocks), pos, max, yLevelThreshold);
     }
 
+    /**
+     * Scans just some of the sections of a single chunk for the specified blocks, for when nothing else in it could
+     * have changed.
+     *
+     * @param ctx      The {@link IPlayerContext} containing player and world info that the scan is based upon
+     * @param filter   The blocks to scan for
+     * @param pos      The position of the target chunk
+     * @param sections The 16 block tall sections to scan, bit {@code n} for the one starting at y {@code n * 16}
+     * @return The matching block positions in those sections
+     */
+    default List<BlockPos> scanChunkSections(IPlayerContext ctx, BlockOptionalMetaLookup filter, ChunkPos pos, int sections) {
+        List<BlockPos> found = new ArrayList<>(scanChunk(ctx, filter, pos, Integer.MAX_VALUE, -1));
+        found.removeIf(block -> block.getY() < 0 || block.getY() >= 256 || (sections & (1 << (block.getY() >> 4))) == 0);
+        return found;
+    }
+
     /**
      * Overload of {@link #repack(IPlayerContext, int)} where the value of the {@code range} parameter is {@code 40}.
      *
@@ -0,0 +1,88 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.api.event.events;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Called after the server changes blocks within one chunk, with either a single or a multi block change.
+ */
+public final class BlockChangeEvent {
+
+    /**
+     * The Chunk X position.
+     */
+    private final int x;
+
+    /**
+     * The Chunk Z position.
+     */
+    private final int z;
+
+    /**
+     * The positions of the blocks that changed
+     */
+    private final List<BlockPos> positions;
+
+    /**
+     * The new state of each block, in the same order as {@link #positions}
+     */
+    private final List<IBlockState> states;
+
+    public BlockChangeEvent(int x, int z, List<BlockPos> positions, List<IBlockState> states) {
+        if (positions.size() != states.size()) {
+            throw new IllegalArgumentException("Every changed position needs a state");
+        }
+        this.x = x;
+        this.z = z;
+        this.positions = Collections.unmodifiableList(positions);
+        this.states = Collections.unmodifiableList(states);
+    }
+
+    /**
+     * @return The Chunk X position.
+     */
+    public final int getX() {
+        return this.x;
+    }
+
+    /**
+     * @return The Chunk Z position.
+     */
+    public final int getZ() {
+        return this.z;
+    }
+
+    /**
+     * @return The positions of the blocks that changed
+     */
+    public final List<BlockPos> getPositions() {
+        return this.positions;
+    }
+
+    /**
+     * @return The new state of each block, in the same order as {@link #getPositions()}
+     */
+    public final List<IBlockState> getStates() {
+        return this.states;
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.api.event.events;
+
+/**
+ * Called after the contents of the local player's inventory change, either because the server said so or because the
+ * player clicked a slot.
+ */
+public final class InventoryUpdateEvent {
+
+    /**
+     * The index in {@link net.minecraft.entity.player.InventoryPlayer} of the slot that changed, or -1 if any of them
+     * might have.
+     */
+    private final int slot;
+
+    public InventoryUpdateEvent(int slot) {
+        this.slot = slot;
+    }
+
+    /**
+     * @return The index in {@link net.minecraft.entity.player.InventoryPlayer} of the slot that changed, or -1 if any of
+     * them might have.
+     */
+    public final int getSlot() {
+        return this.slot;
+    }
+}
@@ -45,6 +45,12 @@ public interface AbstractGameEventListener extends IGameEventListener {
     @Override
     default void onChunkEvent(ChunkEvent event) {}
 
+    @Override
+    default void onBlockChange(BlockChangeEvent event) {}
+
+    @Override
+    default void onInventoryUpdate(InventoryUpdateEvent event) {}
+
     @Override
     default void onRenderPass(RenderEvent event) {}
 
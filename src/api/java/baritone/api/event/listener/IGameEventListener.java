@@ -23,9 +23,14 @@ import net.minecraft.client.Minecraft;
 import net.minecraft.client.entity.EntityPlayerSP;
 import net.minecraft.client.gui.GuiGameOver;
 import net.minecraft.client.multiplayer.WorldClient;
+import net.minecraft.client.network.NetHandlerPlayClient;
 import net.minecraft.client.settings.GameSettings;
 import net.minecraft.entity.Entity;
 import net.minecraft.network.Packet;
+import net.minecraft.network.play.server.SPacketBlockChange;
+import net.minecraft.network.play.server.SPacketMultiBlockChange;
+import net.minecraft.network.play.server.SPacketSetSlot;
+import net.minecraft.network.play.server.SPacketWindowItems;
 
 /**
  * @author Brady
@@ -66,12 +71,36 @@ public interface IGameEventListener {
 
     /**
      * Runs before and after whenever a chunk is either loaded, unloaded, or populated.
+     * <p>
+     * For compatibility, this also runs with {@link ChunkEvent.Type#POPULATE_FULL} after {@link #onBlockChange} when
+     * {@link baritone.api.Settings#repackOnAnyBlockChange} is on and one of the changed blocks is tracked, as it did
+     * before block changes had their own event. Nothing about the chunk was populated then, so listen to
+     * {@link #onBlockChange} instead to get just the blocks that changed.
      *
      * @param event The event
      * @see WorldClient#doPreChunk(int, int, boolean)
      */
     void onChunkEvent(ChunkEvent event);
 
+    /**
+     * Runs after the server changes one or more blocks in a chunk, for every change rather than just those to tracked
+     * blocks. See {@link #onChunkEvent} for the event that used to run for these.
+     *
+     * @param event The event
+     * @see NetHandlerPlayClient#handleBlockChange(SPacketBlockChange)
+     * @see NetHandlerPlayClient#handleMultiBlockChange(SPacketMultiBlockChange)
+     */
+    void onBlockChange(BlockChangeEvent event);
+
+    /**
+     * Runs after the contents of the player's inventory change.
+     *
+     * @param event The event
+     * @see NetHandlerPlayClient#handleSetSlot(SPacketSetSlot)
+     * @see NetHandlerPlayClient#handleWindowItems(SPacketWindowItems)
+     */
+    void onInventoryUpdate(InventoryUpdateEvent event);
+
     /**
      * Runs once per world render pass. Two passes are made when {@link GameSettings#anaglyph} is on.
      * <p>
@@ -0,0 +1,46 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.api.metrics;
+
+import java.util.List;
+
+/**
+ * Counters, gauges and histograms kept by Baritone about what it's doing, such as path searches, the chunk cache and
+ * how long each tick takes. They're shared by every {@link baritone.api.IBaritone}.
+ *
+ * @see baritone.api.IBaritoneProvider#getMetrics()
+ */
+public interface IMetrics {
+
+    /**
+     * @return The current value of every metric, sorted by name
+     */
+    List<MetricSnapshot> snapshot();
+
+    /**
+     * @param name The name of the metric
+     * @return The current value of the metric, or null if there's no metric with that name
+     */
+    MetricSnapshot get(String name);
+
+    /**
+     * Sets every counter and histogram back to zero. Gauges aren't affected, since they're read from whatever they
+     * measure.
+     */
+    void reset();
+}
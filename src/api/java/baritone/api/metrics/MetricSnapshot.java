@@ -0,0 +1,151 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.api.metrics;
+
+/**
+ * The value of one metric at some point in time
+ */
+public final class MetricSnapshot {
+
+    public enum Type {
+
+        /**
+         * A count of things that happened, which only goes up until it's reset
+         */
+        COUNTER,
+
+        /**
+         * A reading of something that can go up and down, such as the length of a queue
+         */
+        GAUGE,
+
+        /**
+         * The distribution of values that were recorded, such as how long each path search took
+         */
+        HISTOGRAM
+    }
+
+    private final String name;
+    private final Type type;
+    private final String unit;
+    private final double value;
+    private final long count;
+    private final double mean;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double max;
+
+    private MetricSnapshot(String name, Type type, String unit, double value, long count, double mean, double p50, double p90, double p99, double max) {
+        this.name = name;
+        this.type = type;
+        this.unit = unit;
+        this.value = value;
+        this.count = count;
+        this.mean = mean;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.max = max;
+    }
+
+    public static MetricSnapshot counter(String name, String unit, long value) {
+        return new MetricSnapshot(name, Type.COUNTER, unit, value, value, 0, 0, 0, 0, 0);
+    }
+
+    public static MetricSnapshot gauge(String name, String unit, double value) {
+        return new MetricSnapshot(name, Type.GAUGE, unit, value, 0, 0, 0, 0, 0, 0);
+    }
+
+    public static MetricSnapshot histogram(String name, String unit, long count, double mean, double p50, double p90, double p99, double max) {
+        return new MetricSnapshot(name, Type.HISTOGRAM, unit, count, count, mean, p50, p90, p99, max);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return The unit of the values, such as {@code "ms"}, or an empty string if they're just numbers
+     */
+    public String getUnit() {
+        return unit;
+    }
+
+    /**
+     * @return The value of a counter or gauge, or the number of values recorded by a histogram
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * @return The value of a counter, or the number of values recorded by a histogram
+     */
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * @return The median of the values recorded by a histogram, to within an eighth
+     */
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        String suffix = unit.isEmpty() ? "" : " " + unit;
+        switch (type) {
+            case HISTOGRAM:
+                if (count == 0) {
+                    return name + ": none";
+                }
+                return String.format("%s: %d, mean %s, p50 %s, p90 %s, p99 %s, max %s%s", name, count, format(mean), format(p50), format(p90), format(p99), format(max), suffix);
+            default:
+                return name + ": " + format(value) + suffix;
+        }
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return String.format("%.2f", value);
+    }
+}
@@ -100,6 +100,26 @@ public final class BetterBlockPos extends BlockPos {
         return hash;
     }
 
+    /**
+     * Packs a position the same way as {@link BlockPos#toLong()}, so that {@link BlockPos#fromLong(long)} and
+     * {@link #xFromLong(long)} and friends read it back, without making a {@link BlockPos} to do it
+     */
+    public static long toLong(int x, int y, int z) {
+        return ((long) x & 0x3FFFFFFL) << 38 | ((long) y & 0xFFFL) << 26 | (long) z & 0x3FFFFFFL;
+    }
+
+    public static int xFromLong(long packed) {
+        return (int) (packed >> 38);
+    }
+
+    public static int yFromLong(long packed) {
+        return (int) (packed << 26 >> 52);
+    }
+
+    public static int zFromLong(long packed) {
+        return (int) (packed << 38 >> 38);
+    }
+
     @Override
     public boolean equals(Object o) {
         if (o == null) {
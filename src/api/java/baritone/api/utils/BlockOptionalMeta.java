@@ -29,6 +29,7 @@ import net.minecraft.util.ResourceLocation;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.regex.MatchResult;
 import java.util.regex.Matcher;
@@ -46,6 +47,12 @@ public final class BlockOptionalMeta {
     private static final Pattern pattern = Pattern.compile("^(.+?)(?::(\\d+))?$");
     private static final Map<Object, Object> normalizations;
 
+    /**
+     * The {@link #stateMeta(IBlockState)} of every state it was worked out for, since each block is looked up by every
+     * filter that has it
+     */
+    private static final Map<IBlockState, Integer> stateMetas = new ConcurrentHashMap<>();
+
     public BlockOptionalMeta(@Nonnull Block block, @Nullable Integer meta) {
         this.block = block;
         this.noMeta = meta == null;
@@ -240,7 +247,7 @@ public final class BlockOptionalMeta {
      * @see #normalize(IBlockState)
      */
     public static int stateMeta(IBlockState state) {
-        return state.getBlock().getMetaFromState(normalize(state));
+        return stateMetas.computeIfAbsent(state, s -> s.getBlock().getMetaFromState(normalize(s)));
     }
 
     private static Set<IBlockState> getStates(@Nonnull Block block, @Nullable Integer meta) {
@@ -33,6 +33,12 @@ public class BlockOptionalMetaLookup {
     private final Set<IBlockState> blockStateSet;
     private final BlockOptionalMeta[] boms;
 
+    /**
+     * Bit {@code id} is set for each id in {@link Block#BLOCK_STATE_IDS} of {@link #blockStateSet}, so that checking a
+     * state is one array read
+     */
+    private final long[] stateIds;
+
     public BlockOptionalMetaLookup(BlockOptionalMeta... boms) {
         this.boms = boms;
         Set<Block> blocks = new HashSet<>();
@@ -45,6 +51,17 @@ public class BlockOptionalMetaLookup {
         }
         this.blockSet = ImmutableSet.copyOf(blocks);
         this.blockStateSet = ImmutableSet.copyOf(blockStates);
+        int maxId = -1;
+        for (IBlockState state : blockStates) {
+            maxId = Math.max(maxId, Block.BLOCK_STATE_IDS.get(state));
+        }
+        this.stateIds = new long[(maxId >> 6) + 1];
+        for (IBlockState state : blockStates) {
+            int id = Block.BLOCK_STATE_IDS.get(state);
+            if (id >= 0) {
+                stateIds[id >> 6] |= 1L << id;
+            }
+        }
     }
 
     public BlockOptionalMetaLookup(Block... blocks) {
@@ -70,8 +87,21 @@ public class BlockOptionalMetaLookup {
         return blockSet.contains(block);
     }
 
+    /**
+     * States that share an id, which only differ in properties that aren't saved with the block, either all match or
+     * none do, since they're all the same once in a chunk
+     */
     public boolean has(IBlockState state) {
-        return blockStateSet.contains(state);
+        int id = Block.BLOCK_STATE_IDS.get(state);
+        return id >= 0 ? has(id) : blockStateSet.contains(state);
+    }
+
+    /**
+     * @param stateId The id of a state in {@link Block#BLOCK_STATE_IDS}
+     */
+    public boolean has(int stateId) {
+        int word = stateId >> 6;
+        return word >= 0 && word < stateIds.length && (stateIds[word] & (1L << stateId)) != 0;
     }
 
     public boolean has(ItemStack stack) {
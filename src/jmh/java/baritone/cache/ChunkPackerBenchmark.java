@@ -0,0 +1,106 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.cache;
+
+import net.minecraft.block.BlockLiquid;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.world.chunk.Chunk;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Packing a whole chunk with {@link ChunkPacker#pack}, against {@link ChunkPacker#packPerBlock} which looks up and
+ * classifies every block on its own, the way chunks were packed before.
+ * <p>
+ * The chunk is the middle of a 3x3 of synthetic terrain, so that the water at its edges has neighbors to look at.
+ * {@code plains} is stone with some ores up to around y=64 under grass and a few flowers, {@code ocean} is a sea floor
+ * around y=45 with still water up to y=62 and the odd bit of flowing water in it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkPackerBenchmark {
+
+    @Param({"plains", "ocean"})
+    public String terrain;
+
+    private SyntheticChunks world;
+
+    private Chunk chunk;
+
+    private TrackedBlocks tracked;
+
+    @Setup
+    public void setup() {
+        Bootstrap.register();
+        Random rand = new Random(terrain.hashCode());
+        IBlockState[] ores = {
+                Blocks.COAL_ORE.getDefaultState(),
+                Blocks.IRON_ORE.getDefaultState(),
+                Blocks.GOLD_ORE.getDefaultState(),
+                Blocks.DIAMOND_ORE.getDefaultState(),
+                Blocks.EMERALD_ORE.getDefaultState(),
+                Blocks.GRAVEL.getDefaultState(),
+                Blocks.DIRT.getDefaultState(),
+        };
+        world = new SyntheticChunks();
+        for (int x = -16; x < 32; x++) {
+            for (int z = -16; z < 32; z++) {
+                world.set(x, 0, z, Blocks.BEDROCK.getDefaultState());
+                int height = terrain.equals("ocean") ? 42 + rand.nextInt(6) : 62 + rand.nextInt(4);
+                for (int y = 1; y < height - 3; y++) {
+                    world.set(x, y, z, rand.nextInt(40) == 0 ? ores[rand.nextInt(ores.length)] : Blocks.STONE.getDefaultState());
+                }
+                for (int y = height - 3; y < height; y++) {
+                    world.set(x, y, z, Blocks.DIRT.getDefaultState());
+                }
+                if (terrain.equals("ocean")) {
+                    for (int y = height; y < 63; y++) {
+                        world.set(x, y, z, rand.nextInt(200) == 0 ? Blocks.FLOWING_WATER.getDefaultState().withProperty(BlockLiquid.LEVEL, 1 + rand.nextInt(7)) : Blocks.WATER.getDefaultState());
+                    }
+                } else {
+                    world.set(x, height, z, Blocks.GRASS.getDefaultState());
+                    if (rand.nextInt(10) == 0) {
+                        world.set(x, height + 1, z, rand.nextBoolean() ? Blocks.TALLGRASS.getDefaultState() : Blocks.RED_FLOWER.getDefaultState());
+                    }
+                }
+            }
+        }
+        chunk = world.chunk(0, 0);
+        tracked = TrackedBlocks.of(Collections.emptyList());
+    }
+
+    @Benchmark
+    public CachedChunk perBlock() {
+        return ChunkPacker.packPerBlock(chunk, world, tracked, 0);
+    }
+
+    @Benchmark
+    public CachedChunk palette() {
+        return ChunkPacker.pack(chunk, world, tracked, 0);
+    }
+}
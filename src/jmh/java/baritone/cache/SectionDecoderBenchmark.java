@@ -0,0 +1,105 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.cache;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finding matching entries in synthetic sections with {@link SectionDecoder}, against checking every entry with the
+ * shifts that the scanners used before.
+ * <p>
+ * Sections are mostly the first palette index, like stone or air, with a few of every other index, and one index that
+ * only shows up a handful of times, like an ore. {@code rare} finds just that index, {@code notFirst} everything but
+ * the first index, which is what the packer does to skip air.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SectionDecoderBenchmark {
+
+    @Param({"4", "5", "8"})
+    public int bitsPerEntry;
+
+    @Param({"rare", "notFirst"})
+    public String search;
+
+    private long[] words;
+
+    private boolean[] matches;
+
+    private int paletteSize;
+
+    private final int[] hits = new int[SectionDecoder.ENTRIES];
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(bitsPerEntry);
+        paletteSize = Math.min(1 << bitsPerEntry, 12);
+        int[] values = new int[SectionDecoder.ENTRIES];
+        for (int i = 0; i < values.length; i++) {
+            int roll = rand.nextInt(1000);
+            values[i] = roll < 2 ? paletteSize - 1 : roll < 800 ? 0 : 1 + rand.nextInt(paletteSize - 2);
+        }
+        words = new long[SectionDecoder.ENTRIES * bitsPerEntry / 64];
+        for (int index = 0; index < values.length; index++) {
+            int bit = index * bitsPerEntry;
+            words[bit >> 6] |= (long) values[index] << (bit & 63);
+            if ((bit & 63) + bitsPerEntry > 64) {
+                words[(bit >> 6) + 1] |= (long) values[index] >>> (64 - (bit & 63));
+            }
+        }
+        matches = new boolean[1 << bitsPerEntry];
+        if (search.equals("rare")) {
+            matches[paletteSize - 1] = true;
+        } else {
+            for (int i = 1; i < paletteSize; i++) {
+                matches[i] = true;
+            }
+        }
+    }
+
+    @Benchmark
+    public int perEntry() {
+        long maxEntryValue = (1L << bitsPerEntry) - 1;
+        int found = 0;
+        for (int idx = 0, kl = bitsPerEntry - 1; idx < SectionDecoder.ENTRIES; idx++, kl += bitsPerEntry) {
+            int i = idx * bitsPerEntry;
+            int j = i >> 6;
+            int l = i & 63;
+            int k = kl >> 6;
+            long jl = words[j] >>> l;
+            int value = j == k ? (int) (jl & maxEntryValue) : (int) ((jl | words[k] << (64 - l)) & maxEntryValue);
+            if (matches[value]) {
+                hits[found++] = idx;
+            }
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int wordParallel() {
+        return SectionDecoder.get().find(words, bitsPerEntry, matches, paletteSize);
+    }
+}
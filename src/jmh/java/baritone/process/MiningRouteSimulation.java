@@ -0,0 +1,96 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.process;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.*;
+
+/**
+ * Mines synthetic worlds of ore veins with {@link MiningRoute} and by always going for the nearest block, and compares
+ * how many blocks an hour each gets, for example: gradlew mineRouteSimulation
+ * <p>
+ * Like {@link MineProcess}, only the nearest few blocks are known at a time, 64 of them, and the route is planned again
+ * after every block. With a route the nearest of the next few blocks on it is gone for, as pathing to a goal of all of
+ * them would. It's also run knowing every block in the world up front. Travel takes what {@link MiningRoute#cost}
+ * estimates, and every block takes the same time to break, so this shows how much shorter the routes are rather than
+ * predicting real rates.
+ */
+public class MiningRouteSimulation {
+
+    /**
+     * About how long diamond ore takes with an iron pickaxe
+     */
+    private static final double BREAK_TICKS = 15;
+
+    private static final double TICKS_PER_HOUR = 20 * 60 * 60;
+
+    public static void main(String[] args) {
+        int seeds = 20;
+        for (int known : new int[]{64, Integer.MAX_VALUE}) {
+            System.out.println(known == Integer.MAX_VALUE ? "Knowing every block:" : "Knowing the nearest " + known + " blocks:");
+            for (int window : new int[]{0, 1, 2, 4, 8}) {
+                double total = 0;
+                for (int seed = 0; seed < seeds; seed++) {
+                    total += blocksPerHour(world(seed), known, window);
+                }
+                System.out.printf("  %s: %.0f blocks/hour%n", window == 0 ? "nearest first" : "route, window " + window, total / seeds);
+            }
+        }
+    }
+
+    /**
+     * Veins of 1 to 8 blocks, each grown from a random block to blocks next to it, scattered around the origin
+     */
+    private static List<BlockPos> world(long seed) {
+        Random rand = new Random(seed);
+        Set<BlockPos> ores = new LinkedHashSet<>();
+        for (int vein = 0; vein < 150; vein++) {
+            BlockPos pos = new BlockPos(rand.nextInt(256) - 128, 5 + rand.nextInt(12), rand.nextInt(256) - 128);
+            int size = 1 + rand.nextInt(8);
+            for (int i = 0; i < size; i++) {
+                ores.add(pos);
+                pos = pos.add(rand.nextInt(3) - 1, rand.nextInt(3) - 1, rand.nextInt(3) - 1);
+            }
+        }
+        return new ArrayList<>(ores);
+    }
+
+    /**
+     * @param window 0 to go for the nearest block every time
+     */
+    private static double blocksPerHour(List<BlockPos> world, int known, int window) {
+        List<BlockPos> remaining = new ArrayList<>(world);
+        BlockPos at = new BlockPos(0, 12, 0);
+        double ticks = 0;
+        int mined = 0;
+        while (!remaining.isEmpty() && ticks < TICKS_PER_HOUR) {
+            BlockPos from = at;
+            remaining.sort(Comparator.comparingDouble(pos -> MiningRoute.cost(from, pos)));
+            List<BlockPos> nearest = remaining.subList(0, Math.min(known, remaining.size()));
+            List<BlockPos> targets = window == 0 ? nearest : MiningRoute.plan(at, new ArrayList<>(nearest)).subList(0, Math.min(window, nearest.size()));
+            BlockPos target = Collections.min(targets, Comparator.comparingDouble(pos -> MiningRoute.cost(from, pos)));
+            ticks += MiningRoute.cost(at, target) + BREAK_TICKS;
+            remaining.remove(target);
+            at = target;
+            mined++;
+        }
+        return mined * TICKS_PER_HOUR / ticks;
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.launch.mixins;
+
+import baritone.utils.accessor.IBlockStatePaletteHashMap;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.IntIdentityHashBiMap;
+import net.minecraft.world.chunk.BlockStatePaletteHashMap;
+import org.spongepowered.asm.mixin.Final;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Shadow;
+
+@Mixin(BlockStatePaletteHashMap.class)
+public abstract class MixinBlockStatePaletteHashMap implements IBlockStatePaletteHashMap {
+
+    @Shadow
+    @Final
+    private IntIdentityHashBiMap<IBlockState> statePaletteMap;
+
+    @Override
+    public IntIdentityHashBiMap<IBlockState> getStatePaletteMap() {
+        return statePaletteMap;
+    }
+}
@@ -17,24 +17,34 @@
 
 package baritone.launch.mixins;
 
-import baritone.Baritone;
 import baritone.api.BaritoneAPI;
 import baritone.api.IBaritone;
+import baritone.api.event.events.BlockChangeEvent;
 import baritone.api.event.events.ChunkEvent;
+import baritone.api.event.events.InventoryUpdateEvent;
 import baritone.api.event.events.type.EventState;
-import baritone.cache.CachedChunk;
+import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.entity.EntityPlayerSP;
 import net.minecraft.client.network.NetHandlerPlayClient;
+import net.minecraft.inventory.Container;
+import net.minecraft.inventory.Slot;
 import net.minecraft.network.play.server.SPacketBlockChange;
 import net.minecraft.network.play.server.SPacketChunkData;
 import net.minecraft.network.play.server.SPacketCombatEvent;
 import net.minecraft.network.play.server.SPacketMultiBlockChange;
+import net.minecraft.network.play.server.SPacketSetSlot;
+import net.minecraft.network.play.server.SPacketWindowItems;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @author Brady
  * @since 8/3/2018
@@ -90,23 +100,17 @@ public class MixinNetHandlerPlayClient {
             at = @At("RETURN")
     )
     private void postHandleBlockChange(SPacketBlockChange packetIn, CallbackInfo ci) {
-        if (!Baritone.settings().repackOnAnyBlockChange.value) {
-            return;
-        }
-        if (!CachedChunk.BLOCKS_TO_KEEP_TRACK_OF.contains(packetIn.getBlockState().getBlock())) {
-            return;
-        }
+        BlockPos pos = packetIn.getBlockPosition();
+        BlockChangeEvent event = new BlockChangeEvent(
+                pos.getX() >> 4,
+                pos.getZ() >> 4,
+                Collections.singletonList(pos),
+                Collections.singletonList(packetIn.getBlockState())
+        );
         for (IBaritone ibaritone : BaritoneAPI.getProvider().getAllBaritones()) {
             EntityPlayerSP player = ibaritone.getPlayerContext().player();
             if (player != null && player.connection == (NetHandlerPlayClient) (Object) this) {
-                ibaritone.getGameEventHandler().onChunkEvent(
-                        new ChunkEvent(
-                                EventState.POST,
-                                ChunkEvent.Type.POPULATE_FULL,
-                                packetIn.getBlockPosition().getX() >> 4,
-                                packetIn.getBlockPosition().getZ() >> 4
-                        )
-                );
+                ibaritone.getGameEventHandler().onBlockChange(event);
             }
         }
     }
@@ -116,33 +120,62 @@ public class MixinNetHandlerPlayClient {
             at = @At("RETURN")
     )
     private void postHandleMultiBlockChange(SPacketMultiBlockChange packetIn, CallbackInfo ci) {
-        if (!Baritone.settings().repackOnAnyBlockChange.value) {
-            return;
-        }
         if (packetIn.getChangedBlocks().length == 0) {
             return;
         }
-        https://docs.oracle.com/javase/specs/jls/se7/html/jls-14.html#jls-14.15
-        {
-            for (SPacketMultiBlockChange.BlockUpdateData update : packetIn.getChangedBlocks()) {
-                if (CachedChunk.BLOCKS_TO_KEEP_TRACK_OF.contains(update.getBlockState().getBlock())) {
-                    break https;
+        List<BlockPos> positions = new ArrayList<>(packetIn.getChangedBlocks().length);
+        List<IBlockState> states = new ArrayList<>(packetIn.getChangedBlocks().length);
+        for (SPacketMultiBlockChange.BlockUpdateData update : packetIn.getChangedBlocks()) {
+            positions.add(update.getPos());
+            states.add(update.getBlockState());
+        }
+        ChunkPos pos = new ChunkPos(positions.get(0));
+        BlockChangeEvent event = new BlockChangeEvent(pos.x, pos.z, positions, states);
+        for (IBaritone ibaritone : BaritoneAPI.getProvider().getAllBaritones()) {
+            EntityPlayerSP player = ibaritone.getPlayerContext().player();
+            if (player != null && player.connection == (NetHandlerPlayClient) (Object) this) {
+                ibaritone.getGameEventHandler().onBlockChange(event);
+            }
+        }
+    }
+
+    @Inject(
+            method = "handleSetSlot",
+            at = @At("RETURN")
+    )
+    private void postHandleSetSlot(SPacketSetSlot packetIn, CallbackInfo ci) {
+        for (IBaritone ibaritone : BaritoneAPI.getProvider().getAllBaritones()) {
+            EntityPlayerSP player = ibaritone.getPlayerContext().player();
+            if (player != null && player.connection == (NetHandlerPlayClient) (Object) this) {
+                int slot = -1;
+                if (packetIn.getWindowId() == -2) {
+                    slot = packetIn.getSlot(); // straight into the inventory
+                } else {
+                    // -1 is the stack held by the cursor, which isn't in the inventory, so no container has that id
+                    Container container = packetIn.getWindowId() == 0 ? player.inventoryContainer : player.openContainer;
+                    if (container.windowId == packetIn.getWindowId() && packetIn.getSlot() >= 0 && packetIn.getSlot() < container.inventorySlots.size()) {
+                        Slot changed = container.getSlot(packetIn.getSlot());
+                        if (changed.inventory == player.inventory) {
+                            slot = changed.getSlotIndex();
+                        }
+                    }
+                }
+                if (slot != -1) {
+                    ibaritone.getGameEventHandler().onInventoryUpdate(new InventoryUpdateEvent(slot));
                 }
             }
-            return;
         }
-        ChunkPos pos = new ChunkPos(packetIn.getChangedBlocks()[0].getPos());
+    }
+
+    @Inject(
+            method = "handleWindowItems",
+            at = @At("RETURN")
+    )
+    private void postHandleWindowItems(SPacketWindowItems packetIn, CallbackInfo ci) {
         for (IBaritone ibaritone : BaritoneAPI.getProvider().getAllBaritones()) {
             EntityPlayerSP player = ibaritone.getPlayerContext().player();
             if (player != null && player.connection == (NetHandlerPlayClient) (Object) this) {
-                ibaritone.getGameEventHandler().onChunkEvent(
-                        new ChunkEvent(
-                                EventState.POST,
-                                ChunkEvent.Type.POPULATE_FULL,
-                                pos.x,
-                                pos.z
-                        )
-                );
+                ibaritone.getGameEventHandler().onInventoryUpdate(new InventoryUpdateEvent(-1));
             }
         }
     }
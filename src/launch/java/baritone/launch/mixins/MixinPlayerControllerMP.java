@@ -17,12 +17,24 @@
 
 package baritone.launch.mixins;
 
+import baritone.api.BaritoneAPI;
+import baritone.api.IBaritone;
+import baritone.api.event.events.InventoryUpdateEvent;
 import baritone.utils.accessor.IPlayerControllerMP;
+import net.minecraft.client.Minecraft;
+import net.minecraft.client.entity.EntityPlayerSP;
 import net.minecraft.client.multiplayer.PlayerControllerMP;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.inventory.ClickType;
+import net.minecraft.item.ItemStack;
 import net.minecraft.util.math.BlockPos;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.gen.Accessor;
 import org.spongepowered.asm.mixin.gen.Invoker;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 @Mixin(PlayerControllerMP.class)
 public abstract class MixinPlayerControllerMP implements IPlayerControllerMP {
@@ -38,4 +50,34 @@ public abstract class MixinPlayerControllerMP implements IPlayerControllerMP {
     @Invoker
     @Override
     public abstract void callSyncCurrentPlayItem();
+
+    /**
+     * The server doesn't send back the slots a click changes, since the client already changed them
+     */
+    @Inject(
+            method = "windowClick",
+            at = @At("RETURN")
+    )
+    private void postWindowClick(int windowId, int slotId, int mouseButton, ClickType type, EntityPlayer player, CallbackInfoReturnable<ItemStack> cir) {
+        if (player instanceof EntityPlayerSP) {
+            IBaritone baritone = BaritoneAPI.getProvider().getBaritoneForPlayer((EntityPlayerSP) player);
+            if (baritone != null) {
+                baritone.getGameEventHandler().onInventoryUpdate(new InventoryUpdateEvent(-1));
+            }
+        }
+    }
+
+    /**
+     * Creative mode sets slots itself and then tells the server
+     */
+    @Inject(
+            method = "sendSlotPacket",
+            at = @At("RETURN")
+    )
+    private void postSendSlotPacket(ItemStack itemStackIn, int slotId, CallbackInfo ci) {
+        IBaritone baritone = BaritoneAPI.getProvider().getBaritoneForPlayer(Minecraft.getMinecraft().player);
+        if (baritone != null) {
+            baritone.getGameEventHandler().onInventoryUpdate(new InventoryUpdateEvent(-1));
+        }
+    }
 }
@@ -21,11 +21,14 @@ import baritone.api.IBaritone;
 import baritone.api.IBaritoneProvider;
 import baritone.api.cache.IWorldScanner;
 import baritone.api.command.ICommandSystem;
+import baritone.api.metrics.IMetrics;
 import baritone.api.schematic.ISchematicSystem;
 import baritone.cache.FasterWorldScanner;
+import baritone.cache.IndexedWorldScanner;
 import baritone.cache.WorldScanner;
 import baritone.command.CommandSystem;
 import baritone.command.ExampleBaritoneControl;
+import baritone.utils.metrics.Metrics;
 import baritone.utils.schematic.SchematicSystem;
 
 import java.util.Collections;
@@ -60,7 +63,7 @@ public final class BaritoneProvider implements IBaritoneProvider {
 
     @Override
     public IWorldScanner getWorldScanner() {
-        return FasterWorldScanner.INSTANCE;
+        return Baritone.settings().loadedBlockIndex.value ? IndexedWorldScanner.INSTANCE : FasterWorldScanner.INSTANCE;
     }
 
     @Override
@@ -72,4 +75,9 @@ public final class BaritoneProvider implements IBaritoneProvider {
     public ISchematicSystem getSchematicSystem() {
         return SchematicSystem.INSTANCE;
     }
+
+    @Override
+    public IMetrics getMetrics() {
+        return Metrics.INSTANCE;
+    }
 }
@@ -18,19 +18,23 @@
 package baritone.behavior;
 
 import baritone.Baritone;
+import baritone.api.event.events.InventoryUpdateEvent;
 import baritone.api.event.events.TickEvent;
 import baritone.api.utils.Helper;
+import baritone.utils.InventoryIndex;
 import baritone.utils.ToolSet;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.client.entity.EntityPlayerSP;
+import net.minecraft.entity.player.InventoryPlayer;
 import net.minecraft.init.Blocks;
+import net.minecraft.init.Items;
 import net.minecraft.inventory.ClickType;
 import net.minecraft.item.*;
-import net.minecraft.util.EnumFacing;
 import net.minecraft.util.NonNullList;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.OptionalInt;
 import java.util.Random;
 import java.util.function.Predicate;
@@ -40,10 +44,58 @@ public final class InventoryBehavior extends Behavior implements Helper {
     int ticksSinceLastInventoryMove;
     int[] lastTickRequestedMove; // not everything asks every tick, so remember the request while coming to a halt
 
+    /**
+     * The mining speeds that {@link #toolSet()} shares, and what they were worked out from
+     */
+    private double[] strVsStates;
+    private List<Object> strVsStatesInputs;
+
+    /**
+     * Kept up to date from {@link #onInventoryUpdate}, or null until something first asks for it
+     */
+    private volatile InventoryIndex index;
+
     public InventoryBehavior(Baritone baritone) {
         super(baritone);
     }
 
+    @Override
+    public void onInventoryUpdate(InventoryUpdateEvent event) {
+        InventoryIndex current = index;
+        if (current != null) {
+            index = event.getSlot() == -1 ? InventoryIndex.of(ctx) : current.with(ctx, event.getSlot());
+        }
+    }
+
+    /**
+     * @return Where everything in the player's inventory is, as of the last time it changed
+     */
+    public InventoryIndex index() {
+        InventoryIndex current = index;
+        if (current == null || !current.isOf(ctx.player())) {
+            current = InventoryIndex.of(ctx);
+            index = current;
+        }
+        return current;
+    }
+
+    /**
+     * Mining speeds are only worked out again once a tool on the hotbar or something else they depend on changes, not
+     * on every slot update, every toolset in between shares them, including ones used off thread since they're never
+     * changed once made.
+     *
+     * @return A toolset for the player as it is now
+     */
+    public ToolSet toolSet() {
+        ToolSet current = new ToolSet(ctx.player());
+        List<Object> inputs = current.inputs();
+        if (strVsStates == null || !inputs.equals(strVsStatesInputs)) {
+            strVsStates = current.strVsStates();
+            strVsStatesInputs = inputs;
+        }
+        return new ToolSet(ctx.player(), strVsStates);
+    }
+
     @Override
     public void onTick(TickEvent event) {
         if (!Baritone.settings().allowInventory.value) {
@@ -60,7 +112,7 @@ public final class InventoryBehavior extends Behavior implements Helper {
         if (firstValidThrowaway() >= 9) { // aka there are none on the hotbar, but there are some in main inventory
             requestSwapWithHotBar(firstValidThrowaway(), 8);
         }
-        int pick = bestToolAgainst(Blocks.STONE, ItemPickaxe.class);
+        int pick = bestPickaxeAgainst(Blocks.STONE);
         if (pick >= 9) {
             requestSwapWithHotBar(pick, 0);
         }
@@ -83,8 +135,9 @@ public final class InventoryBehavior extends Behavior implements Helper {
     public OptionalInt getTempHotbarSlot(Predicate<Integer> disallowedHotbar) {
         // we're using 0 and 8 for pickaxe and throwaway
         ArrayList<Integer> candidates = new ArrayList<>();
+        long empty = index().slotsWith(Items.AIR);
         for (int i = 1; i < 8; i++) {
-            if (ctx.player().inventory.mainInventory.get(i).isEmpty() && !disallowedHotbar.test(i)) {
+            if ((empty & 1L << i) != 0 && !disallowedHotbar.test(i)) {
                 candidates.add(i);
             }
         }
@@ -118,20 +171,15 @@ public final class InventoryBehavior extends Behavior implements Helper {
     }
 
     private int firstValidThrowaway() { // TODO offhand idk
-        NonNullList<ItemStack> invy = ctx.player().inventory.mainInventory;
-        for (int i = 0; i < invy.size(); i++) {
-            if (Baritone.settings().acceptableThrowawayItems.value.contains(invy.get(i).getItem())) {
-                return i;
-            }
-        }
-        return -1;
+        return InventoryIndex.first(index().slotsWithAny(Baritone.settings().acceptableThrowawayItems.value) & InventoryIndex.MAIN);
     }
 
-    private int bestToolAgainst(Block against, Class<? extends ItemTool> cla$$) {
+    private int bestPickaxeAgainst(Block against) {
         NonNullList<ItemStack> invy = ctx.player().inventory.mainInventory;
         int bestInd = -1;
         double bestSpeed = -1;
-        for (int i = 0; i < invy.size(); i++) {
+        for (long pickaxes = index().pickaxes() & InventoryIndex.MAIN; pickaxes != 0; pickaxes &= pickaxes - 1) {
+            int i = Long.numberOfTrailingZeros(pickaxes);
             ItemStack stack = invy.get(i);
             if (stack.isEmpty()) {
                 continue;
@@ -139,7 +187,7 @@ public final class InventoryBehavior extends Behavior implements Helper {
             if (Baritone.settings().itemSaver.value && (stack.getItemDamage() + Baritone.settings().itemSaverThreshold.value) >= stack.getMaxDamage() && stack.getMaxDamage() > 1) {
                 continue;
             }
-            if (cla$$.isInstance(stack.getItem())) {
+            if (stack.getItem() instanceof ItemPickaxe) {
                 double speed = ToolSet.calculateSpeedVsBlock(stack, against.getDefaultState()); // takes into account enchants
                 if (speed > bestSpeed) {
                     bestSpeed = speed;
@@ -151,24 +199,24 @@ public final class InventoryBehavior extends Behavior implements Helper {
     }
 
     public boolean hasGenericThrowaway() {
-        for (Item item : Baritone.settings().acceptableThrowawayItems.value) {
-            if (throwaway(false, stack -> item.equals(stack.getItem()))) {
-                return true;
-            }
-        }
-        return false;
+        return throwaway(false, index().slotsWithAny(Baritone.settings().acceptableThrowawayItems.value), Baritone.settings().allowInventory.value);
     }
 
     public boolean selectThrowawayForLocation(boolean select, int x, int y, int z) {
         IBlockState maybe = baritone.getBuilderProcess().placeAt(x, y, z, baritone.bsi.get0(x, y, z));
-        if (maybe != null && throwaway(select, stack -> stack.getItem() instanceof ItemBlock && maybe.equals(((ItemBlock) stack.getItem()).getBlock().getStateForPlacement(ctx.world(), ctx.playerFeet(), EnumFacing.UP, (float) ctx.player().posX, (float) ctx.player().posY, (float) ctx.player().posZ, stack.getItem().getMetadata(stack.getMetadata()), ctx.player())))) {
-            return true; // gotem
-        }
-        if (maybe != null && throwaway(select, stack -> stack.getItem() instanceof ItemBlock && ((ItemBlock) stack.getItem()).getBlock().equals(maybe.getBlock()))) {
-            return true;
+        InventoryIndex index = index();
+        boolean allowInventory = Baritone.settings().allowInventory.value;
+        if (maybe != null && maybe.getBlock() != Blocks.AIR) {
+            if (throwaway(select, index.slotsPlacing(ctx, maybe), allowInventory)) {
+                return true; // gotem
+            }
+            Item item = Item.getItemFromBlock(maybe.getBlock());
+            if (item instanceof ItemBlock && throwaway(select, index.slotsWith(item), allowInventory)) {
+                return true;
+            }
         }
         for (Item item : Baritone.settings().acceptableThrowawayItems.value) {
-            if (throwaway(select, stack -> item.equals(stack.getItem()))) {
+            if (throwaway(select, index.slotsWith(item), allowInventory)) {
                 return true;
             }
         }
@@ -180,48 +228,60 @@ public final class InventoryBehavior extends Behavior implements Helper {
     }
 
     public boolean throwaway(boolean select, Predicate<? super ItemStack> desired, boolean allowInventory) {
+        InventoryPlayer inventory = ctx.player().inventory;
+        long slots = 0;
+        for (int i = 0; i < inventory.mainInventory.size(); i++) {
+            if (desired.test(inventory.mainInventory.get(i))) {
+                slots |= 1L << i;
+            }
+        }
+        if (desired.test(inventory.offHandInventory.get(0))) {
+            slots |= 1L << InventoryIndex.OFFHAND;
+        }
+        return throwaway(select, slots, allowInventory);
+    }
+
+    /**
+     * @param slots The slots holding what's wanted, as in {@link InventoryIndex}
+     */
+    private boolean throwaway(boolean select, long slots, boolean allowInventory) {
         EntityPlayerSP p = ctx.player();
-        NonNullList<ItemStack> inv = p.inventory.mainInventory;
-        for (int i = 0; i < 9; i++) {
-            ItemStack item = inv.get(i);
-            // this usage of settings() is okay because it's only called once during pathing
-            // (while creating the CalculationContext at the very beginning)
-            // and then it's called during execution
-            // since this function is never called during cost calculation, we don't need to migrate
-            // acceptableThrowawayItems to the CalculationContext
-            if (desired.test(item)) {
-                if (select) {
-                    p.inventory.currentItem = i;
-                }
-                return true;
+        // this usage of settings() is okay because it's only called once during pathing
+        // (while creating the CalculationContext at the very beginning)
+        // and then it's called during execution
+        // since this function is never called during cost calculation, we don't need to migrate
+        // acceptableThrowawayItems to the CalculationContext
+        int hotbar = InventoryIndex.first(slots & InventoryIndex.HOTBAR);
+        if (hotbar != -1) {
+            if (select) {
+                p.inventory.currentItem = hotbar;
             }
+            return true;
         }
-        if (desired.test(p.inventory.offHandInventory.get(0))) {
+        if ((slots & 1L << InventoryIndex.OFFHAND) != 0) {
             // main hand takes precedence over off hand
             // that means that if we have block A selected in main hand and block B in off hand, right clicking places block B
             // we've already checked above ^ and the main hand can't possible have an acceptablethrowawayitem
             // so we need to select in the main hand something that doesn't right click
             // so not a shovel, not a hoe, not a block, etc
-            for (int i = 0; i < 9; i++) {
-                ItemStack item = inv.get(i);
-                if (item.isEmpty() || item.getItem() instanceof ItemPickaxe) {
-                    if (select) {
-                        p.inventory.currentItem = i;
-                    }
-                    return true;
+            InventoryIndex index = index();
+            int harmless = InventoryIndex.first((index.slotsWith(Items.AIR) | index.pickaxes()) & InventoryIndex.HOTBAR);
+            if (harmless != -1) {
+                if (select) {
+                    p.inventory.currentItem = harmless;
                 }
+                return true;
             }
         }
 
         if (allowInventory) {
-            for (int i = 9; i < 36; i++) {
-                if (desired.test(inv.get(i))) {
-                    if (select) {
-                        requestSwapWithHotBar(i, 7);
-                        p.inventory.currentItem = 7;
-                    }
-                    return true;
+            int inInventory = InventoryIndex.first(slots & InventoryIndex.MAIN & ~InventoryIndex.HOTBAR);
+            if (inInventory != -1) {
+                if (select) {
+                    requestSwapWithHotBar(inInventory, 7);
+                    p.inventory.currentItem = 7;
                 }
+                return true;
             }
         }
 
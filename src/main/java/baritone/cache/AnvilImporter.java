@@ -0,0 +1,323 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Biomes;
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Fills the cache straight from the Anvil region files of a world save, so that an area can be pathed through
+ * without having been loaded in game first. Chunks go through {@link ChunkPacker} just like chunks loaded from the
+ * server, and are only kept if they're more recent than what's cached already.
+ * <p>
+ * Nothing here touches the client world. The chunks are built on their own, and the blocks next to them are looked up
+ * in the other chunks read from the same region file.
+ */
+public final class AnvilImporter {
+
+    private static final int SECTOR_SIZE = 4096;
+
+    private static final int COMPRESSION_GZIP = 1;
+    private static final int COMPRESSION_ZLIB = 2;
+
+    private AnvilImporter() {}
+
+    /**
+     * Imports every generated chunk in an area, reading the region files on a few threads of its own, so that an
+     * import of a huge area doesn't take over the threads that everything else shares
+     *
+     * @param cachedWorld     The cache to fill
+     * @param regionDirectory The directory with the {@code r.x.z.mca} files, such as {@code <save>/region}
+     * @return How many chunks were added to the cache
+     */
+    public static int importArea(CachedWorld cachedWorld, Path regionDirectory, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        long start = System.nanoTime() / 1000000L;
+        List<int[]> regions = new ArrayList<>();
+        for (int regionX = minChunkX >> 5; regionX <= maxChunkX >> 5; regionX++) {
+            for (int regionZ = minChunkZ >> 5; regionZ <= maxChunkZ >> 5; regionZ++) {
+                if (Files.isRegularFile(regionFile(regionDirectory, regionX, regionZ))) {
+                    regions.add(new int[]{regionX, regionZ});
+                }
+            }
+        }
+        int threads = Math.max(1, Math.min(regions.size(), Runtime.getRuntime().availableProcessors() / 2));
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Baritone Anvil Importer " + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        int imported = 0;
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int[] region : regions) {
+                results.add(executor.submit(() -> {
+                    try {
+                        List<CachedChunk> chunks = readRegion(regionFile(regionDirectory, region[0], region[1]), region[0], region[1], minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+                        return cachedWorld.importChunks(region[0], region[1], chunks);
+                    } catch (IOException ex) {
+                        System.out.println("Unable to import region " + region[0] + "," + region[1]);
+                        ex.printStackTrace();
+                        return 0;
+                    }
+                }));
+            }
+            for (Future<Integer> result : results) {
+                imported += result.get();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            ex.printStackTrace();
+        } finally {
+            executor.shutdownNow();
+        }
+        long end = System.nanoTime() / 1000000L;
+        System.out.println("Imported " + imported + " chunks from " + regions.size() + " region files in " + (end - start) + "ms");
+        return imported;
+    }
+
+    private static Path regionFile(Path regionDirectory, int regionX, int regionZ) {
+        return regionDirectory.resolve("r." + regionX + "." + regionZ + ".mca");
+    }
+
+    /**
+     * Packs the populated chunks of one region file that are within the area. The chunks are read a row at a time,
+     * and each row is packed once the row after it has been read, so that at most three rows are held at once.
+     */
+    private static List<CachedChunk> readRegion(Path file, int regionX, int regionZ, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) throws IOException {
+        List<CachedChunk> chunks = new ArrayList<>();
+        try (RandomAccessFile in = new RandomAccessFile(file.toFile(), "r")) {
+            if (in.length() < 2 * SECTOR_SIZE) {
+                return chunks; // the server creates the file before writing any chunks to it
+            }
+            // the header is the location of each chunk, followed by when each chunk was last saved
+            byte[] header = new byte[2 * SECTOR_SIZE];
+            in.readFully(header);
+            DataInputStream headerIn = new DataInputStream(new ByteArrayInputStream(header));
+            int[] locations = new int[1024];
+            int[] timestamps = new int[1024];
+            for (int i = 0; i < 1024; i++) {
+                locations[i] = headerIn.readInt();
+            }
+            for (int i = 0; i < 1024; i++) {
+                timestamps[i] = headerIn.readInt();
+            }
+            RegionBlocks region = new RegionBlocks(regionX, regionZ);
+            for (int row = 0; row <= 32; row++) {
+                if (row < 32) {
+                    for (int column = 0; column < 32; column++) {
+                        int i = row << 5 | column;
+                        int chunkX = regionX << 5 | column;
+                        int chunkZ = regionZ << 5 | row;
+                        if (locations[i] == 0 || chunkX < minChunkX || chunkX > maxChunkX || chunkZ < minChunkZ || chunkZ > maxChunkZ) {
+                            continue;
+                        }
+                        try {
+                            NBTTagCompound level = readChunkNBT(in, locations[i]);
+                            if (level == null || !level.getBoolean("TerrainPopulated")) {
+                                // it'll change once it's populated, so it isn't worth caching yet
+                                continue;
+                            }
+                            region.chunks[row][column] = readChunk(level, chunkX, chunkZ);
+                        } catch (Exception ex) {
+                            // a corrupted chunk shouldn't stop the rest of the region from being imported
+                            System.out.println("Unable to import chunk " + chunkX + "," + chunkZ + " from " + file);
+                            ex.printStackTrace();
+                        }
+                    }
+                }
+                if (row > 0) {
+                    for (int column = 0; column < 32; column++) {
+                        Chunk chunk = region.chunks[row - 1][column];
+                        if (chunk != null) {
+                            chunks.add(ChunkPacker.pack(chunk, region, timestamps[(row - 1) << 5 | column] * 1000L));
+                        }
+                    }
+                }
+                if (row > 1) {
+                    region.chunks[row - 2] = new Chunk[32];
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private static NBTTagCompound readChunkNBT(RandomAccessFile in, int location) throws IOException {
+        long offset = (long) (location >>> 8) * SECTOR_SIZE;
+        int sectors = location & 0xff;
+        if (offset + 5 > in.length()) {
+            return null;
+        }
+        in.seek(offset);
+        int length = in.readInt();
+        if (length <= 1 || length > sectors * SECTOR_SIZE) {
+            return null;
+        }
+        int compression = in.readByte();
+        byte[] data = new byte[length - 1];
+        in.readFully(data);
+        InputStream raw = new ByteArrayInputStream(data);
+        InputStream decompressed;
+        switch (compression) {
+            case COMPRESSION_GZIP:
+                decompressed = new GZIPInputStream(raw);
+                break;
+            case COMPRESSION_ZLIB:
+                decompressed = new InflaterInputStream(raw);
+                break;
+            default:
+                throw new IOException("Unknown chunk compression " + compression);
+        }
+        try (DataInputStream nbtIn = new DataInputStream(new BufferedInputStream(decompressed))) {
+            return CompressedStreamTools.read(nbtIn).getCompoundTag("Level");
+        }
+    }
+
+    /**
+     * Builds a chunk with just the blocks of the saved one, the same way {@code AnvilChunkLoader} reads sections
+     */
+    private static Chunk readChunk(NBTTagCompound level, int chunkX, int chunkZ) {
+        Chunk chunk = new DetachedChunk(chunkX, chunkZ);
+        ExtendedBlockStorage[] storage = new ExtendedBlockStorage[16];
+        NBTTagList sections = level.getTagList("Sections", 10);
+        for (int i = 0; i < sections.tagCount(); i++) {
+            NBTTagCompound section = sections.getCompoundTagAt(i);
+            int y = section.getByte("Y");
+            if (y < 0 || y >= 16) {
+                continue;
+            }
+            // no sky light, the packer never looks at light and that saves allocating it for every section
+            ExtendedBlockStorage extendedblockstorage = new ExtendedBlockStorage(y << 4, false);
+            NibbleArray add = section.hasKey("Add", 7) ? new NibbleArray(section.getByteArray("Add")) : null;
+            extendedblockstorage.getData().setDataFromNBT(section.getByteArray("Blocks"), new NibbleArray(section.getByteArray("Data")), add);
+            extendedblockstorage.recalculateRefCounts();
+            storage[y] = extendedblockstorage;
+        }
+        chunk.setStorageArrays(storage);
+        return chunk;
+    }
+
+    /**
+     * A chunk that isn't part of any world. Looking up a block in a chunk normally checks the type of its world
+     * first, so that's skipped.
+     */
+    private static final class DetachedChunk extends Chunk {
+
+        private DetachedChunk(int x, int z) {
+            super(null, x, z);
+        }
+
+        @Override
+        public IBlockState getBlockState(int x, int y, int z) {
+            if (y < 0 || y >= 256) {
+                return Blocks.AIR.getDefaultState();
+            }
+            ExtendedBlockStorage storage = getBlockStorageArray()[y >> 4];
+            return storage == null ? Blocks.AIR.getDefaultState() : storage.get(x, y & 15, z);
+        }
+    }
+
+    /**
+     * The chunks read from one region file, for {@link ChunkPacker} to look at the blocks around a chunk. Anything
+     * that hasn't been read is air, as it would be in an unloaded chunk.
+     */
+    @SuppressWarnings("NullableProblems")
+    private static final class RegionBlocks implements IBlockAccess {
+
+        private final int regionX;
+        private final int regionZ;
+
+        /**
+         * By z, then x, within the region
+         */
+        private final Chunk[][] chunks = new Chunk[32][32];
+
+        private RegionBlocks(int regionX, int regionZ) {
+            this.regionX = regionX;
+            this.regionZ = regionZ;
+        }
+
+        @Nullable
+        @Override
+        public TileEntity getTileEntity(BlockPos pos) {
+            return null;
+        }
+
+        @Override
+        public int getCombinedLight(BlockPos pos, int lightValue) {
+            return 0;
+        }
+
+        @Override
+        public IBlockState getBlockState(BlockPos pos) {
+            int x = (pos.getX() >> 4) - (regionX << 5);
+            int z = (pos.getZ() >> 4) - (regionZ << 5);
+            if (x < 0 || x >= 32 || z < 0 || z >= 32 || chunks[z][x] == null) {
+                return Blocks.AIR.getDefaultState();
+            }
+            return chunks[z][x].getBlockState(pos.getX() & 15, pos.getY(), pos.getZ() & 15);
+        }
+
+        @Override
+        public boolean isAirBlock(BlockPos pos) {
+            return getBlockState(pos).getMaterial() == Material.AIR;
+        }
+
+        @Override
+        public Biome getBiome(BlockPos pos) {
+            return Biomes.FOREST;
+        }
+
+        @Override
+        public int getStrongPower(BlockPos pos, EnumFacing direction) {
+            return 0;
+        }
+
+        @Override
+        public WorldType getWorldType() {
+            return WorldType.DEFAULT;
+        }
+    }
+}
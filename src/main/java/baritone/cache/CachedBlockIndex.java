@@ -0,0 +1,459 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.Baritone;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Where every tracked block is in a dimension, across all of the cached chunks, whether or not the region that a
+ * chunk is in is currently loaded. This is saved next to the region files, so that finding a block doesn't mean
+ * loading every region around the player from disk.
+ */
+public final class CachedBlockIndex {
+
+    /**
+     * Magic value to detect invalid index files, or incompatible index files saved in an old version of Baritone
+     */
+    private static final int CACHED_BLOCK_INDEX_MAGIC = 0x6261697a;
+
+    /**
+     * Magic value of index files saved when every position took two bytes, even where a bitmap of the chunk would
+     * have been smaller
+     */
+    private static final int CACHED_BLOCK_INDEX_MAGIC_SHORT_POSITIONS = 0x62616979;
+
+    /**
+     * Every indexed chunk, by {@link ChunkPos#asLong}
+     */
+    private final Long2ObjectMap<IndexedChunk> chunks = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * For each block name, the keys of the chunks in {@link #chunks} that contain it, bucketed by the region that
+     * they're in (keyed the same way as chunks), so that lookups can go outwards a region at a time
+     */
+    private final Map<String, Long2ObjectMap<LongOpenHashSet>> chunksContaining = new HashMap<>();
+
+    /**
+     * An estimate of how many bytes of heap {@link #chunks} takes up
+     */
+    private long sizeInBytes;
+
+    private final Path file;
+
+    private boolean loaded;
+
+    private boolean hasUnsavedChanges;
+
+    /**
+     * The {@link TrackedBlocks#fingerprint} of the tracked blocks that the cached regions were last re-indexed for
+     */
+    private long trackedSet = TrackedBlocks.DEFAULT_FINGERPRINT;
+
+    CachedBlockIndex(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Indexes the tracked blocks of a cached chunk, unless a newer version of that chunk is already indexed
+     *
+     * @param chunk The cached chunk
+     */
+    public synchronized void update(CachedChunk chunk) {
+        long key = ChunkPos.asLong(chunk.x, chunk.z);
+        IndexedChunk previous = chunks.get(key);
+        if (previous != null && previous.timestamp > chunk.cacheTimestamp) {
+            return;
+        }
+        Map<String, TrackedPositions> blocks = chunk.getTrackedBlocks();
+        String[] names = new String[blocks.size()];
+        TrackedPositions[] positions = new TrackedPositions[blocks.size()];
+        int i = 0;
+        for (Map.Entry<String, TrackedPositions> entry : blocks.entrySet()) {
+            // shared with the chunk, so indexing it costs next to nothing
+            names[i] = entry.getKey();
+            positions[i++] = entry.getValue();
+        }
+        put(key, new IndexedChunk(chunk.cacheTimestamp, names, positions));
+        hasUnsavedChanges = true;
+    }
+
+    /**
+     * @return An estimate of how many bytes of heap the index takes up. Positions that are shared with a chunk in a
+     * region that's in RAM are counted here as well.
+     */
+    public synchronized long sizeInBytes() {
+        return sizeInBytes;
+    }
+
+    public synchronized long getTrackedSet() {
+        return trackedSet;
+    }
+
+    public synchronized void setTrackedSet(long trackedSet) {
+        if (this.trackedSet != trackedSet) {
+            this.trackedSet = trackedSet;
+            hasUnsavedChanges = true;
+        }
+    }
+
+    /**
+     * @return Whether or not the index has been read from disk yet. Until it has, it only knows about chunks that
+     * were packed or loaded since.
+     */
+    public synchronized boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Same contract as {@link baritone.api.cache.ICachedWorld#getLocationsOf}: whole rings of regions around the
+     * center are added until there are at least {@code maximum} results, or the rings go past the maximum distance.
+     */
+    public synchronized ArrayList<BlockPos> getLocationsOf(String block, int maximum, int centerX, int centerZ, int maxRegionDistanceSq) {
+        ArrayList<BlockPos> res = new ArrayList<>();
+        Long2ObjectMap<LongOpenHashSet> regions = chunksContaining.get(block);
+        if (regions == null) {
+            return res;
+        }
+        int centerRegionX = centerX >> 9;
+        int centerRegionZ = centerZ >> 9;
+        long expiry = oldestAcceptableTimestamp();
+        List<long[]> candidates = new ArrayList<>(); // region distance, region key
+        for (LongIterator it = regions.keySet().iterator(); it.hasNext(); ) {
+            long region = it.nextLong();
+            int distX = chunkX(region) - centerRegionX;
+            int distZ = chunkZ(region) - centerRegionZ;
+            int distance = distX * distX + distZ * distZ;
+            if (distance <= maxRegionDistanceSq) {
+                candidates.add(new long[]{distance, region});
+            }
+        }
+        candidates.sort(Comparator.comparingLong(candidate -> candidate[0]));
+        for (int i = 0; i < candidates.size(); i++) {
+            long[] candidate = candidates.get(i);
+            if (res.size() >= maximum && (i == 0 || candidates.get(i - 1)[0] != candidate[0])) {
+                // only stop in between rings
+                break;
+            }
+            for (LongIterator it = regions.get(candidate[1]).iterator(); it.hasNext(); ) {
+                long key = it.nextLong();
+                IndexedChunk chunk = chunks.get(key);
+                if (chunk.timestamp < expiry) {
+                    continue;
+                }
+                int baseX = chunkX(key) << 4;
+                int baseZ = chunkZ(key) << 4;
+                chunk.positionsOf(block).forEach(packed -> res.add(new BlockPos(baseX + TrackedPositions.unpackX(packed), TrackedPositions.unpackY(packed), baseZ + TrackedPositions.unpackZ(packed))));
+            }
+        }
+        return res;
+    }
+
+    /**
+     * Finds the closest indexed positions of a block to a point, by horizontal distance. The regions, and then the
+     * chunks within them, that contain the block are visited nearest first, and the search ends as soon as no
+     * remaining region or chunk could hold anything closer than what's already been found.
+     *
+     * @param block   The block name, as in {@link CachedChunk#getTrackedBlocks()}
+     * @param maximum The maximum number of positions to return
+     * @param centerX The x block coordinate center of the search
+     * @param centerZ The z block coordinate center of the search
+     * @param radius  The maximum horizontal distance, in blocks
+     * @return The positions found, closest first
+     */
+    public synchronized List<BlockPos> getNearestLocationsOf(String block, int maximum, int centerX, int centerZ, int radius) {
+        return getNearestLocationsOf(block, maximum, centerX, centerZ, radius, oldestAcceptableTimestamp());
+    }
+
+    /**
+     * @param expiry Chunks that were cached before this are left out
+     */
+    synchronized List<BlockPos> getNearestLocationsOf(String block, int maximum, int centerX, int centerZ, int radius, long expiry) {
+        Long2ObjectMap<LongOpenHashSet> regions = chunksContaining.get(block);
+        if (regions == null || maximum <= 0) {
+            return new ArrayList<>();
+        }
+        long radiusSq = (long) radius * radius;
+        List<long[]> regionCandidates = new ArrayList<>(); // squared distance to the closest point of the region, region key
+        for (LongIterator it = regions.keySet().iterator(); it.hasNext(); ) {
+            long region = it.nextLong();
+            long distance = distanceSqToArea(chunkX(region) << 9, chunkZ(region) << 9, 512, centerX, centerZ);
+            if (distance <= radiusSq) {
+                regionCandidates.add(new long[]{distance, region});
+            }
+        }
+        regionCandidates.sort(Comparator.comparingLong(candidate -> candidate[0]));
+        // farthest of the best found so far on top
+        PriorityQueue<long[]> best = new PriorityQueue<>(Comparator.comparingLong((long[] found) -> found[0]).reversed());
+        List<long[]> candidates = new ArrayList<>(); // squared distance to the closest point of the chunk, chunk key
+        for (long[] regionCandidate : regionCandidates) {
+            if (best.size() >= maximum && regionCandidate[0] > best.peek()[0]) {
+                break;
+            }
+            candidates.clear();
+            for (LongIterator it = regions.get(regionCandidate[1]).iterator(); it.hasNext(); ) {
+                long key = it.nextLong();
+                long distance = distanceSqToArea(chunkX(key) << 4, chunkZ(key) << 4, 16, centerX, centerZ);
+                if (distance <= radiusSq && chunks.get(key).timestamp >= expiry) {
+                    candidates.add(new long[]{distance, key});
+                }
+            }
+            candidates.sort(Comparator.comparingLong(candidate -> candidate[0]));
+            for (long[] candidate : candidates) {
+                if (best.size() >= maximum && candidate[0] > best.peek()[0]) {
+                    break;
+                }
+                long key = candidate[1];
+                int baseX = chunkX(key) << 4;
+                int baseZ = chunkZ(key) << 4;
+                for (int packed : chunks.get(key).positionsOf(block).toArray()) {
+                    long distX = baseX + TrackedPositions.unpackX(packed) - centerX;
+                    long distZ = baseZ + TrackedPositions.unpackZ(packed) - centerZ;
+                    long distance = distX * distX + distZ * distZ;
+                    if (distance > radiusSq) {
+                        continue;
+                    }
+                    if (best.size() < maximum) {
+                        best.add(new long[]{distance, key, packed});
+                    } else if (distance < best.peek()[0]) {
+                        best.poll();
+                        best.add(new long[]{distance, key, packed});
+                    }
+                }
+            }
+        }
+        BlockPos[] res = new BlockPos[best.size()];
+        for (int i = res.length - 1; i >= 0; i--) {
+            long[] found = best.poll();
+            int packed = (int) found[2];
+            res[i] = new BlockPos((chunkX(found[1]) << 4) + TrackedPositions.unpackX(packed), TrackedPositions.unpackY(packed), (chunkZ(found[1]) << 4) + TrackedPositions.unpackZ(packed));
+        }
+        return new ArrayList<>(Arrays.asList(res));
+    }
+
+    /**
+     * Drops chunks that are older than {@link baritone.api.Settings#cachedChunksExpirySeconds}
+     */
+    public synchronized void removeExpired() {
+        long expiry = oldestAcceptableTimestamp();
+        if (expiry == Long.MIN_VALUE) {
+            return;
+        }
+        List<Long> expired = new ArrayList<>();
+        for (Long2ObjectMap.Entry<IndexedChunk> entry : chunks.long2ObjectEntrySet()) {
+            if (entry.getValue().timestamp < expiry) {
+                expired.add(entry.getLongKey());
+            }
+        }
+        for (long key : expired) {
+            put(key, null);
+            hasUnsavedChanges = true;
+        }
+    }
+
+    public synchronized void save() {
+        if (!hasUnsavedChanges) {
+            return;
+        }
+        removeExpired();
+        try {
+            if (!Files.exists(file.getParent())) {
+                Files.createDirectories(file.getParent());
+            }
+            // a file of our own to write to, since other games sharing this cache might be saving their index too
+            Path tmpFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (
+                    FileOutputStream fileOut = new FileOutputStream(tmpFile.toFile());
+                    GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut, 16384);
+                    DataOutputStream out = new DataOutputStream(gzipOut)
+            ) {
+                out.writeInt(CACHED_BLOCK_INDEX_MAGIC);
+                out.writeLong(trackedSet);
+                out.writeInt(chunks.size());
+                for (Long2ObjectMap.Entry<IndexedChunk> entry : chunks.long2ObjectEntrySet()) {
+                    IndexedChunk chunk = entry.getValue();
+                    out.writeLong(entry.getLongKey());
+                    out.writeLong(chunk.timestamp);
+                    out.writeShort(chunk.names.length);
+                    for (int i = 0; i < chunk.names.length; i++) {
+                        out.writeUTF(chunk.names[i]);
+                        chunk.positions[i].write(out);
+                    }
+                }
+            }
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            hasUnsavedChanges = false;
+        } catch (Exception ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    /**
+     * Reads the index from disk. Chunks that were already indexed since the world was opened are newer than
+     * anything in the file, so they are kept as they are.
+     */
+    public synchronized void load() {
+        loaded = true;
+        if (!Files.exists(file)) {
+            return;
+        }
+        long start = System.nanoTime() / 1000000L;
+        try (
+                FileInputStream fileIn = new FileInputStream(file.toFile());
+                GZIPInputStream gzipIn = new GZIPInputStream(fileIn, 32768);
+                DataInputStream in = new DataInputStream(gzipIn)
+        ) {
+            int magic = in.readInt();
+            if (magic != CACHED_BLOCK_INDEX_MAGIC && magic != CACHED_BLOCK_INDEX_MAGIC_SHORT_POSITIONS) {
+                throw new IOException("Bad magic value " + magic);
+            }
+            long trackedSet = in.readLong();
+            int count = in.readInt();
+            Long2ObjectMap<IndexedChunk> read = new Long2ObjectOpenHashMap<>(count);
+            for (int c = 0; c < count; c++) {
+                long key = in.readLong();
+                long timestamp = in.readLong();
+                int numTypes = in.readShort() & 0xffff;
+                String[] names = new String[numTypes];
+                TrackedPositions[] positions = new TrackedPositions[numTypes];
+                for (int i = 0; i < numTypes; i++) {
+                    names[i] = in.readUTF();
+                    if (magic == CACHED_BLOCK_INDEX_MAGIC) {
+                        positions[i] = TrackedPositions.read(in);
+                        continue;
+                    }
+                    int numLocations = in.readShort() & 0xffff;
+                    if (numLocations == 0) {
+                        numLocations = 65536;
+                    }
+                    int[] packed = new int[numLocations];
+                    for (int j = 0; j < numLocations; j++) {
+                        packed[j] = in.readShort() & 0xffff;
+                    }
+                    positions[i] = TrackedPositions.of(packed, numLocations);
+                }
+                read.put(key, new IndexedChunk(timestamp, names, positions));
+            }
+            // only if the entire file was uncorrupted do we actually index the chunks
+            this.trackedSet = trackedSet;
+            for (Long2ObjectMap.Entry<IndexedChunk> entry : read.long2ObjectEntrySet()) {
+                if (!chunks.containsKey(entry.getLongKey())) {
+                    put(entry.getLongKey(), entry.getValue());
+                }
+            }
+            removeExpired();
+            long end = System.nanoTime() / 1000000L;
+            System.out.println("Loaded block index of " + count + " chunks in " + (end - start) + "ms");
+        } catch (Exception ex) { // corrupted files can cause NullPointerExceptions as well as IOExceptions
+            ex.printStackTrace();
+        }
+    }
+
+    private void put(long key, IndexedChunk chunk) {
+        IndexedChunk previous = chunk == null ? chunks.remove(key) : chunks.put(key, chunk);
+        long region = ChunkPos.asLong(chunkX(key) >> 5, chunkZ(key) >> 5);
+        if (previous != null) {
+            sizeInBytes -= previous.sizeInBytes();
+            for (String name : previous.names) {
+                Long2ObjectMap<LongOpenHashSet> regions = chunksContaining.get(name);
+                LongOpenHashSet containing = regions.get(region);
+                containing.remove(key);
+                if (containing.isEmpty()) {
+                    regions.remove(region);
+                    if (regions.isEmpty()) {
+                        chunksContaining.remove(name);
+                    }
+                }
+            }
+        }
+        if (chunk != null) {
+            sizeInBytes += chunk.sizeInBytes();
+            for (String name : chunk.names) {
+                chunksContaining.computeIfAbsent(name, n -> new Long2ObjectOpenHashMap<>()).computeIfAbsent(region, r -> new LongOpenHashSet()).add(key);
+            }
+        }
+    }
+
+    private static long oldestAcceptableTimestamp() {
+        long expiry = Baritone.settings().cachedChunksExpirySeconds.value;
+        if (expiry < 0) {
+            return Long.MIN_VALUE;
+        }
+        return System.currentTimeMillis() - expiry * 1000L;
+    }
+
+    private static long distanceSqToArea(int minX, int minZ, int width, int x, int z) {
+        long distX = Math.max(0, Math.max(minX - x, x - (minX + width - 1)));
+        long distZ = Math.max(0, Math.max(minZ - z, z - (minZ + width - 1)));
+        return distX * distX + distZ * distZ;
+    }
+
+    private static int chunkX(long key) {
+        return (int) key;
+    }
+
+    private static int chunkZ(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static final class IndexedChunk {
+
+        private static final TrackedPositions NONE = TrackedPositions.of(new int[0], 0);
+
+        private final long timestamp;
+        private final String[] names;
+        private final TrackedPositions[] positions;
+
+        private IndexedChunk(long timestamp, String[] names, TrackedPositions[] positions) {
+            this.timestamp = timestamp;
+            this.names = names;
+            this.positions = positions;
+        }
+
+        private long sizeInBytes() {
+            // the entry in chunks and chunksContaining, and the arrays, on top of the positions themselves
+            long size = 96 + names.length * 16L;
+            for (TrackedPositions positions : this.positions) {
+                size += positions.sizeInBytes();
+            }
+            return size;
+        }
+
+        private TrackedPositions positionsOf(String name) {
+            for (int i = 0; i < names.length; i++) {
+                if (names[i].equals(name)) {
+                    return positions[i];
+                }
+            }
+            return NONE;
+        }
+    }
+}
@@ -20,16 +20,12 @@ package baritone.cache;
 import baritone.api.utils.BlockUtils;
 import baritone.utils.pathing.PathingBlockType;
 import com.google.common.collect.ImmutableSet;
-import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
 import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
 import net.minecraft.util.math.BlockPos;
 
-import java.util.ArrayList;
-import java.util.BitSet;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 
 /**
  * @author Brady
@@ -37,6 +33,9 @@ import java.util.Map;
  */
 public final class CachedChunk {
 
+    /**
+     * The blocks whose locations are always remembered, see {@link TrackedBlocks} for the whole set
+     */
     public static final ImmutableSet<Block> BLOCKS_TO_KEEP_TRACK_OF = ImmutableSet.of(
             Blocks.DIAMOND_BLOCK,
             //Blocks.COAL_ORE,
@@ -121,8 +120,6 @@ public final class CachedChunk {
      */
     private final BitSet data;
 
-    private final Int2ObjectOpenHashMap<String> special;
-
     /**
      * The block names of each surface level block for generating an overview
      */
@@ -130,35 +127,86 @@ public final class CachedChunk {
 
     private final int[] heightMap;
 
-    private final Map<String, List<BlockPos>> specialBlockLocations;
+    /**
+     * The names of the tracked blocks in this chunk, and where they are
+     */
+    private final Map<String, TrackedPositions> trackedBlocks;
+
+    /**
+     * Parallel to {@link #trackedStates}, the same as {@link #trackedBlocks} but quicker to go through
+     */
+    private final TrackedPositions[] trackedPositions;
+
+    private final IBlockState[] trackedStates;
+
+    /**
+     * For each section, bit {@code i % 64} is set if the section has any of {@link #trackedPositions}[i], so that
+     * looking a block up doesn't have to go through every tracked block in sections without any
+     */
+    private final long[] trackedSections = new long[16];
 
     public final long cacheTimestamp;
 
-    CachedChunk(int x, int z, BitSet data, IBlockState[] overview, Map<String, List<BlockPos>> specialBlockLocations, long cacheTimestamp) {
+    /**
+     * The {@link TrackedBlocks#fingerprint} of the set of tracked blocks that this chunk was packed with
+     */
+    public final long trackedSet;
+
+    /**
+     * Rough number of bytes of heap that this chunk takes up, see {@link #sizeInBytes()}
+     */
+    private final int estimatedSize;
+
+    /**
+     * @param heightMap The y of the highest non air block of each column, or null to calculate it from the data
+     */
+    CachedChunk(int x, int z, BitSet data, IBlockState[] overview, int[] heightMap, Map<String, TrackedPositions> trackedBlocks, long cacheTimestamp, long trackedSet) {
         validateSize(data);
 
         this.x = x;
         this.z = z;
         this.data = data;
         this.overview = overview;
-        this.heightMap = new int[256];
-        this.specialBlockLocations = specialBlockLocations;
+        this.heightMap = heightMap == null ? calculateHeightMap(data) : heightMap;
+        this.trackedBlocks = Collections.unmodifiableMap(trackedBlocks);
+        this.trackedPositions = new TrackedPositions[trackedBlocks.size()];
+        this.trackedStates = new IBlockState[trackedBlocks.size()];
+        int i = 0;
+        for (Map.Entry<String, TrackedPositions> entry : trackedBlocks.entrySet()) {
+            trackedPositions[i] = entry.getValue();
+            trackedStates[i] = BlockUtils.stringToBlockRequired(entry.getKey()).getDefaultState();
+            long bit = 1L << i++;
+            entry.getValue().forEach(packed -> trackedSections[packed >>> 12] |= bit);
+        }
         this.cacheTimestamp = cacheTimestamp;
-        if (specialBlockLocations.isEmpty()) {
-            this.special = null;
-        } else {
-            this.special = new Int2ObjectOpenHashMap<>();
-            setSpecial();
+        this.trackedSet = trackedSet;
+        this.estimatedSize = estimateSize();
+    }
+
+    private int estimateSize() {
+        int size = SIZE_IN_BYTES + 256 * 4 + 256 * 4 + 16 * 8 + 128; // the bitset, the overview and heightmap arrays, and the tracked sections
+        for (TrackedPositions positions : trackedPositions) {
+            size += positions.sizeInBytes() + 64;
         }
-        calculateHeightMap();
+        return size;
     }
 
-    private final void setSpecial() {
-        for (Map.Entry<String, List<BlockPos>> entry : specialBlockLocations.entrySet()) {
-            for (BlockPos pos : entry.getValue()) {
-                special.put(getPositionIndex(pos.getX(), pos.getY(), pos.getZ()), entry.getKey());
+    /**
+     * @param tracked The blocks that are tracked now
+     * @return This chunk, without any blocks that aren't tracked anymore
+     */
+    public final CachedChunk retainTracked(TrackedBlocks tracked) {
+        Map<String, TrackedPositions> retained = new HashMap<>();
+        for (Map.Entry<String, TrackedPositions> entry : trackedBlocks.entrySet()) {
+            if (tracked.contains(entry.getKey())) {
+                retained.put(entry.getKey(), entry.getValue());
             }
         }
+        if (retained.size() == trackedBlocks.size()) {
+            return this;
+        }
+        // the fingerprint stays the same, this chunk still doesn't know about any blocks that were added to the set
+        return new CachedChunk(x, z, data, overview, heightMap, retained, cacheTimestamp, trackedSet);
     }
 
     public final IBlockState getBlock(int x, int y, int z, int dimension) {
@@ -175,10 +223,13 @@ public final class CachedChunk {
             }*/
             return overview[internalPos];
         }
-        if (special != null) {
-            String str = special.get(index);
-            if (str != null) {
-                return BlockUtils.stringToBlockRequired(str).getDefaultState();
+        long tracked = trackedSections[y >> 4];
+        if (tracked != 0) {
+            int packed = TrackedPositions.pack(x, y, z);
+            for (int i = 0; i < trackedPositions.length; i++) {
+                if ((tracked & (1L << i)) != 0 && trackedPositions[i].contains(packed)) {
+                    return trackedStates[i];
+                }
             }
         }
 
@@ -201,7 +252,107 @@ public final class CachedChunk {
         return PathingBlockType.fromBits(data.get(index), data.get(index + 1));
     }
 
-    private void calculateHeightMap() {
+    /**
+     * Writes the pathing types of a box within this chunk into an array, as {@link PathingBlockType#ordinal()}
+     *
+     * @param offset  Where the type of the block at x0, y0, z0 goes
+     * @param strideZ How far apart blocks next to each other along z go
+     * @param strideY How far apart blocks next to each other along y go
+     */
+    void readPathingTypes(int x0, int y0, int z0, int x1, int y1, int z1, byte[] out, int offset, int strideZ, int strideY) {
+        // a row of 16 blocks along x is 32 bits, so whole rows come out of one word at a time
+        long[] words = data.toLongArray();
+        for (int y = y0; y <= y1; y++) {
+            for (int z = z0; z <= z1; z++) {
+                long row = row(words, y, z);
+                int i = offset + (y - y0) * strideY + (z - z0) * strideZ;
+                for (int x = x0; x <= x1; x++) {
+                    out[i++] = (byte) typeInRow(row, x);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the block state ids of a box within this chunk into an array, as in {@link Block#getStateId}. The states
+     * are the same as what {@link #getBlock} would return for each block.
+     *
+     * @param offset  Where the id of the block at x0, y0, z0 goes
+     * @param strideZ How far apart blocks next to each other along z go
+     * @param strideY How far apart blocks next to each other along y go
+     */
+    void readBlockStateIds(int x0, int y0, int z0, int x1, int y1, int z1, int[] out, int offset, int strideZ, int strideY, int dimension) {
+        int[] typeIds = new int[4];
+        for (PathingBlockType type : PathingBlockType.values()) {
+            typeIds[type.ordinal()] = Block.getStateId(ChunkPacker.pathingTypeToBlock(type, dimension));
+        }
+        int solid = PathingBlockType.SOLID.ordinal();
+        long[] words = data.toLongArray();
+        for (int y = y0; y <= y1; y++) {
+            int solidId = typeIds[solid];
+            if (y == 127 && dimension == -1) {
+                solidId = Block.getStateId(Blocks.BEDROCK.getDefaultState());
+            } else if (y < 5 && dimension == 0) {
+                solidId = Block.getStateId(Blocks.OBSIDIAN.getDefaultState());
+            }
+            for (int z = z0; z <= z1; z++) {
+                long row = row(words, y, z);
+                int i = offset + (y - y0) * strideY + (z - z0) * strideZ;
+                for (int x = x0; x <= x1; x++) {
+                    int type = typeInRow(row, x);
+                    out[i++] = type == solid ? solidId : typeIds[type];
+                }
+            }
+        }
+        // tracked blocks go over the pathing types, and surface blocks go over both, same as in getBlock
+        long tracked = 0;
+        for (int section = y0 >> 4; section <= y1 >> 4; section++) {
+            tracked |= trackedSections[section];
+        }
+        for (int t = 0; t < trackedPositions.length; t++) {
+            if ((tracked & (1L << t)) == 0) {
+                continue;
+            }
+            int id = Block.getStateId(trackedStates[t]);
+            trackedPositions[t].forEach(packed -> {
+                int x = TrackedPositions.unpackX(packed);
+                int y = TrackedPositions.unpackY(packed);
+                int z = TrackedPositions.unpackZ(packed);
+                if (x >= x0 && x <= x1 && y >= y0 && y <= y1 && z >= z0 && z <= z1) {
+                    out[offset + (y - y0) * strideY + (z - z0) * strideZ + x - x0] = id;
+                }
+            });
+        }
+        for (int z = z0; z <= z1; z++) {
+            for (int x = x0; x <= x1; x++) {
+                int y = heightMap[z << 4 | x];
+                if (y >= y0 && y <= y1 && typeInRow(row(words, y, z), x) != PathingBlockType.AVOID.ordinal()) {
+                    out[offset + (y - y0) * strideY + (z - z0) * strideZ + x - x0] = Block.getStateId(overview[z << 4 | x]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The 32 bits of the row of blocks along x at y, z, in the low bits
+     */
+    private static long row(long[] words, int y, int z) {
+        int index = getPositionIndex(0, y, z);
+        // toLongArray leaves off trailing words that are all 0
+        return index >> 6 < words.length ? words[index >> 6] >>> (index & 63) : 0;
+    }
+
+    /**
+     * @return The {@link PathingBlockType#ordinal()} of the block at x in a row
+     */
+    private static int typeInRow(long row, int x) {
+        int bits = (int) (row >>> (x << 1)) & 3;
+        // the bit at the lower index is the high bit of the type
+        return (bits & 1) << 1 | bits >> 1;
+    }
+
+    private static int[] calculateHeightMap(BitSet data) {
+        int[] heightMap = new int[256];
         for (int z = 0; z < 16; z++) {
             for (int x = 0; x < 16; x++) {
                 int index = z << 4 | x;
@@ -215,27 +366,102 @@ public final class CachedChunk {
                 }
             }
         }
+        return heightMap;
+    }
+
+    /**
+     * Compares this chunk to an older copy of it, for {@link ChunkChangeFeed}
+     *
+     * @param previous The older copy, or null if there wasn't one
+     * @return A mask of the 16 block tall sections whose pathing types or tracked blocks are different
+     */
+    int sectionsChangedFrom(CachedChunk previous) {
+        if (previous == null) {
+            return ChunkChangeFeed.ALL_SECTIONS;
+        }
+        int sections = 0;
+        long[] ours = data.toLongArray();
+        long[] theirs = previous.data.toLongArray();
+        // each section is 16 * 16 * 16 blocks of 2 bits, or 128 longs
+        for (int i = 0; i < Math.max(ours.length, theirs.length); i++) {
+            long a = i < ours.length ? ours[i] : 0;
+            long b = i < theirs.length ? theirs[i] : 0;
+            if (a != b) {
+                sections |= 1 << (i >> 7);
+            }
+        }
+        for (String name : union(trackedBlocks.keySet(), previous.trackedBlocks.keySet())) {
+            TrackedPositions a = trackedBlocks.get(name);
+            TrackedPositions b = previous.trackedBlocks.get(name);
+            if (a == b) {
+                continue;
+            }
+            sections |= sectionsNotIn(a, b) | sectionsNotIn(b, a);
+        }
+        return sections;
+    }
+
+    private static Set<String> union(Set<String> a, Set<String> b) {
+        Set<String> union = new HashSet<>(a);
+        union.addAll(b);
+        return union;
+    }
+
+    /**
+     * @return A mask of the sections of the positions that are in {@code a} but not in {@code b}
+     */
+    private static int sectionsNotIn(TrackedPositions a, TrackedPositions b) {
+        if (a == null) {
+            return 0;
+        }
+        int[] sections = {0};
+        a.forEach(packed -> {
+            if (b == null || !b.contains(packed)) {
+                sections[0] |= 1 << (TrackedPositions.unpackY(packed) >> 4);
+            }
+        });
+        return sections[0];
+    }
+
+    /**
+     * @return A copy of the packed pathing types, to make a changed copy of this chunk from
+     */
+    BitSet copyData() {
+        return (BitSet) data.clone();
+    }
+
+    int[] getHeightMap() {
+        return heightMap;
     }
 
     public final IBlockState[] getOverview() {
         return overview;
     }
 
-    public final Map<String, List<BlockPos>> getRelativeBlocks() {
-        return specialBlockLocations;
+    /**
+     * @return The positions of each tracked block in this chunk, relative to the chunk
+     */
+    public final Map<String, TrackedPositions> getTrackedBlocks() {
+        return trackedBlocks;
     }
 
     public final ArrayList<BlockPos> getAbsoluteBlocks(String blockType) {
-        if (specialBlockLocations.get(blockType) == null) {
+        TrackedPositions positions = trackedBlocks.get(blockType);
+        if (positions == null) {
             return null;
         }
-        ArrayList<BlockPos> res = new ArrayList<>();
-        for (BlockPos pos : specialBlockLocations.get(blockType)) {
-            res.add(new BlockPos(pos.getX() + x * 16, pos.getY(), pos.getZ() + z * 16));
-        }
+        ArrayList<BlockPos> res = new ArrayList<>(positions.size());
+        positions.forEach(packed -> res.add(new BlockPos(TrackedPositions.unpackX(packed) + x * 16, TrackedPositions.unpackY(packed), TrackedPositions.unpackZ(packed) + z * 16)));
         return res;
     }
 
+    /**
+     * @return An estimate of how many bytes of heap this chunk takes up, used to keep the region cache within budget
+     */
+    public final int sizeInBytes() {
+        return estimatedSize;
+    }
+
     /**
      * @return Returns the raw packed chunk data as a byte array
      */
@@ -20,6 +20,14 @@ package baritone.cache;
 import baritone.Baritone;
 import baritone.api.cache.ICachedRegion;
 import baritone.api.utils.BlockUtils;
+import baritone.utils.jfr.JfrEvents;
+import baritone.utils.jfr.RegionLoadEvent;
+import baritone.utils.jfr.RegionSaveEvent;
+import baritone.utils.metrics.Histogram;
+import baritone.utils.metrics.Metrics;
+import it.unimi.dsi.fastutil.objects.Reference2IntMap;
+import it.unimi.dsi.fastutil.objects.Reference2IntOpenHashMap;
+import net.minecraft.block.Block;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.util.math.BlockPos;
 
@@ -27,7 +35,11 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -37,13 +49,34 @@ import java.util.zip.GZIPOutputStream;
  */
 public final class CachedRegion implements ICachedRegion {
 
-    private static final byte CHUNK_NOT_PRESENT = 0;
-    private static final byte CHUNK_PRESENT = 1;
+    public static final byte CHUNK_NOT_PRESENT = 0;
+    public static final byte CHUNK_PRESENT = 1;
 
     /**
-     * Magic value to detect invalid cache files, or incompatible cache files saved in an old version of Baritone
+     * Magic value to detect invalid cache files, or incompatible cache files saved in an old version of Baritone.
+     * <p>
+     * {@link baritone.cache.tool.RegionFile} reads and writes the same format without the block registry, so any
+     * change here has to be made there too.
      */
-    private static final int CACHED_REGION_MAGIC = 456022910;
+    public static final int CACHED_REGION_MAGIC = 456022913;
+
+    /**
+     * Magic value of cache files saved when every tracked position took two bytes, even where a bitmap of the chunk
+     * would have been smaller
+     */
+    public static final int CACHED_REGION_MAGIC_PAIRED_POSITIONS = 456022912;
+
+    /**
+     * Magic value of cache files saved before chunks recorded which set of tracked blocks they were packed with
+     */
+    public static final int CACHED_REGION_MAGIC_UNTRACKED = 456022910;
+
+    /**
+     * Magic value of cache files saved before heightmaps were saved, and when the overview was 256 block names per chunk
+     */
+    public static final int CACHED_REGION_MAGIC_NAMED_OVERVIEW = 456022911;
+
+    private static final Histogram LOAD_TIME = Metrics.latency("cache.region.load.time");
 
     /**
      * All of the chunks in this region: A 32x32 array of them.
@@ -67,11 +100,33 @@ public final class CachedRegion implements ICachedRegion {
      */
     private boolean hasUnsavedChanges;
 
+    /**
+     * When this region first got changes that haven't been saved yet, only meaningful while {@link #hasUnsavedChanges}
+     */
+    private long dirtySince;
+
+    /**
+     * When the file of this region was last modified, and how big it was, as of when this region last read or wrote it
+     */
+    private FileTime diskModified;
+    private long diskSize;
+
+    /**
+     * Sum of {@link CachedChunk#sizeInBytes()} over all the chunks in this region
+     */
+    private volatile long estimatedSize;
+
+    /**
+     * When this region was last looked up, used to pick which regions to prune from RAM first
+     */
+    private volatile long lastAccess;
+
     CachedRegion(int x, int z, int dimension) {
         this.x = x;
         this.z = z;
         this.hasUnsavedChanges = false;
         this.dimension = dimension;
+        this.lastAccess = System.currentTimeMillis();
     }
 
     @Override
@@ -104,89 +159,256 @@ public final class CachedRegion implements ICachedRegion {
         return res;
     }
 
-    public final synchronized void updateCachedChunk(int chunkX, int chunkZ, CachedChunk chunk) {
+    /**
+     * Drops blocks that aren't tracked anymore from the chunks in this region that were packed with a different set
+     * of tracked blocks
+     *
+     * @param tracked The blocks that are tracked now
+     * @return The chunks that were changed
+     */
+    public final synchronized List<CachedChunk> retainTracked(TrackedBlocks tracked) {
+        List<CachedChunk> changed = new ArrayList<>();
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                CachedChunk chunk = this.chunks[x][z];
+                if (chunk == null || chunk.trackedSet == tracked.fingerprint) {
+                    continue;
+                }
+                CachedChunk retained = chunk.retainTracked(tracked);
+                if (retained != chunk) {
+                    updateCachedChunk(x, z, retained);
+                    changed.add(retained);
+                }
+            }
+        }
+        return changed;
+    }
+
+    public final synchronized void forEachChunk(Consumer<CachedChunk> consumer) {
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                if (this.chunks[x][z] != null) {
+                    consumer.accept(this.chunks[x][z]);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The chunk that was replaced, or null if there wasn't one
+     */
+    public final synchronized CachedChunk updateCachedChunk(int chunkX, int chunkZ, CachedChunk chunk) {
+        CachedChunk previous = this.chunks[chunkX][chunkZ];
         this.chunks[chunkX][chunkZ] = chunk;
-        hasUnsavedChanges = true;
+        estimatedSize += chunk.sizeInBytes() - (previous == null ? 0 : previous.sizeInBytes());
+        if (!hasUnsavedChanges) {
+            hasUnsavedChanges = true;
+            dirtySince = System.currentTimeMillis();
+        }
+        return previous;
     }
 
+    /**
+     * @return The chunk at the given chunk coordinates within this region, or null if it isn't cached
+     */
+    public final synchronized CachedChunk getChunk(int chunkX, int chunkZ) {
+        return this.chunks[chunkX][chunkZ];
+    }
+
+    /**
+     * Replaces a chunk unless the one already cached here is more recent
+     *
+     * @return Whether the chunk was replaced
+     */
+    public final synchronized boolean updateIfNewer(int chunkX, int chunkZ, CachedChunk chunk) {
+        CachedChunk previous = this.chunks[chunkX][chunkZ];
+        if (previous != null && previous.cacheTimestamp >= chunk.cacheTimestamp) {
+            return false;
+        }
+        updateCachedChunk(chunkX, chunkZ, chunk);
+        return true;
+    }
+
+    public final synchronized boolean hasUnsavedChanges() {
+        return hasUnsavedChanges;
+    }
+
+    /**
+     * @return When the oldest change that hasn't been saved yet was made
+     */
+    public final synchronized long dirtySince() {
+        return dirtySince;
+    }
 
-    public synchronized final void save(String directory) {
+    /**
+     * @return An estimate of how many bytes of heap the chunks in this region take up
+     */
+    public final long sizeInBytes() {
+        return estimatedSize;
+    }
+
+    /**
+     * Marks this region as just used
+     */
+    public final void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    public final long lastAccess() {
+        return lastAccess;
+    }
+
+    private void recalculateSize() {
+        long size = 0;
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                if (this.chunks[x][z] != null) {
+                    size += this.chunks[x][z].sizeInBytes();
+                }
+            }
+        }
+        estimatedSize = size;
+    }
+
+
+    /**
+     * Writes this region to its file in the given directory, if it has changed since it was last loaded or saved. The
+     * file is written next to the old one and then moved over it, so it's never left half written.
+     * <p>
+     * If some other game sharing the directory wrote the file since this region last read or wrote it, the chunks in
+     * the file that are newer than the ones here are merged in first, so that neither overwrites the other's work.
+     *
+     * @param merged Given every chunk that was merged in from the file
+     * @return How many bytes were written, or 0 if there was nothing to save
+     */
+    public synchronized final long save(String directory, Consumer<CachedChunk> merged) {
         if (!hasUnsavedChanges) {
-            return;
+            return 0;
         }
         removeExpired();
+        RegionSaveEvent event = JfrEvents.beginRegionSave();
         try {
             Path path = Paths.get(directory);
             if (!Files.exists(path)) {
                 Files.createDirectories(path);
 
             }
-            System.out.println("Saving region " + x + "," + z + " to disk " + path);
             Path regionFile = getRegionFile(path, this.x, this.z);
-            if (!Files.exists(regionFile)) {
-                Files.createFile(regionFile);
-            }
-            try (
-                    FileOutputStream fileOut = new FileOutputStream(regionFile.toFile());
-                    GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut, 16384);
-                    DataOutputStream out = new DataOutputStream(gzipOut)
-            ) {
-                out.writeInt(CACHED_REGION_MAGIC);
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        CachedChunk chunk = this.chunks[x][z];
-                        if (chunk == null) {
-                            out.write(CHUNK_NOT_PRESENT);
-                        } else {
-                            out.write(CHUNK_PRESENT);
-                            byte[] chunkBytes = chunk.toByteArray();
-                            out.write(chunkBytes);
-                            // Messy, but fills the empty 0s that should be trailing to fill up the space.
-                            out.write(new byte[CachedChunk.SIZE_IN_BYTES - chunkBytes.length]);
+            Path tmpFile = regionFile.resolveSibling(regionFile.getFileName() + ".tmp");
+            try (RegionFileLock lock = RegionFileLock.acquire(regionFile, false)) {
+                if (isChangedOnDisk(regionFile)) {
+                    // another game sharing this cache wrote it since we last read it, keep whichever copy of each chunk is newer
+                    mergeNewer(readChunks(regionFile), merged);
+                }
+                try (
+                        FileOutputStream fileOut = new FileOutputStream(tmpFile.toFile());
+                        GZIPOutputStream gzipOut = new GZIPOutputStream(fileOut, 16384);
+                        DataOutputStream out = new DataOutputStream(gzipOut)
+                ) {
+                    out.writeInt(CACHED_REGION_MAGIC);
+                    for (int x = 0; x < 32; x++) {
+                        for (int z = 0; z < 32; z++) {
+                            CachedChunk chunk = this.chunks[x][z];
+                            if (chunk == null) {
+                                out.write(CHUNK_NOT_PRESENT);
+                            } else {
+                                out.write(CHUNK_PRESENT);
+                                byte[] chunkBytes = chunk.toByteArray();
+                                out.write(chunkBytes);
+                                // Messy, but fills the empty 0s that should be trailing to fill up the space.
+                                out.write(new byte[CachedChunk.SIZE_IN_BYTES - chunkBytes.length]);
+                            }
                         }
                     }
-                }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (chunks[x][z] != null) {
-                            for (int i = 0; i < 256; i++) {
-                                out.writeUTF(BlockUtils.blockToString(chunks[x][z].getOverview()[i].getBlock()));
+                    // every surface block in this region goes in a table once, and the overview is just indices into that
+                    List<Block> palette = new ArrayList<>();
+                    Reference2IntMap<Block> paletteIndices = new Reference2IntOpenHashMap<>();
+                    for (int x = 0; x < 32; x++) {
+                        for (int z = 0; z < 32; z++) {
+                            if (chunks[x][z] != null) {
+                                for (IBlockState state : chunks[x][z].getOverview()) {
+                                    if (!paletteIndices.containsKey(state.getBlock())) {
+                                        paletteIndices.put(state.getBlock(), palette.size());
+                                        palette.add(state.getBlock());
+                                    }
+                                }
                             }
                         }
                     }
-                }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (chunks[x][z] != null) {
-                            Map<String, List<BlockPos>> locs = chunks[x][z].getRelativeBlocks();
-                            out.writeShort(locs.entrySet().size());
-                            for (Map.Entry<String, List<BlockPos>> entry : locs.entrySet()) {
-                                out.writeUTF(entry.getKey());
-                                out.writeShort(entry.getValue().size());
-                                for (BlockPos pos : entry.getValue()) {
-                                    out.writeByte((byte) (pos.getZ() << 4 | pos.getX()));
-                                    out.writeByte((byte) (pos.getY()));
+                    out.writeShort(palette.size());
+                    for (Block block : palette) {
+                        out.writeUTF(BlockUtils.blockToString(block));
+                    }
+                    boolean wide = palette.size() > 256;
+                    for (int x = 0; x < 32; x++) {
+                        for (int z = 0; z < 32; z++) {
+                            if (chunks[x][z] != null) {
+                                for (IBlockState state : chunks[x][z].getOverview()) {
+                                    int index = paletteIndices.getInt(state.getBlock());
+                                    if (wide) {
+                                        out.writeShort(index);
+                                    } else {
+                                        out.writeByte(index);
+                                    }
                                 }
                             }
                         }
                     }
-                }
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (chunks[x][z] != null) {
-                            out.writeLong(chunks[x][z].cacheTimestamp);
+                    byte[] heights = new byte[256];
+                    for (int x = 0; x < 32; x++) {
+                        for (int z = 0; z < 32; z++) {
+                            if (chunks[x][z] != null) {
+                                int[] heightMap = chunks[x][z].getHeightMap();
+                                for (int i = 0; i < 256; i++) {
+                                    heights[i] = (byte) heightMap[i];
+                                }
+                                out.write(heights);
+                            }
+                        }
+                    }
+                    for (int x = 0; x < 32; x++) {
+                        for (int z = 0; z < 32; z++) {
+                            if (chunks[x][z] != null) {
+                                Map<String, TrackedPositions> locs = chunks[x][z].getTrackedBlocks();
+                                out.writeShort(locs.entrySet().size());
+                                for (Map.Entry<String, TrackedPositions> entry : locs.entrySet()) {
+                                    out.writeUTF(entry.getKey());
+                                    entry.getValue().write(out);
+                                }
+                            }
+                        }
+                    }
+                    for (int x = 0; x < 32; x++) {
+                        for (int z = 0; z < 32; z++) {
+                            if (chunks[x][z] != null) {
+                                out.writeLong(chunks[x][z].cacheTimestamp);
+                            }
+                        }
+                    }
+                    for (int x = 0; x < 32; x++) {
+                        for (int z = 0; z < 32; z++) {
+                            if (chunks[x][z] != null) {
+                                out.writeLong(chunks[x][z].trackedSet);
+                            }
                         }
                     }
                 }
+                long written = Files.size(tmpFile);
+                Files.move(tmpFile, regionFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                rememberDiskVersion(regionFile);
+                hasUnsavedChanges = false;
+                JfrEvents.endRegionSave(event, this.x, this.z, written);
+                return written;
             }
-            hasUnsavedChanges = false;
-            System.out.println("Saved region successfully");
         } catch (Exception ex) {
             ex.printStackTrace();
+            JfrEvents.endRegionSave(event, this.x, this.z, 0);
+            return 0;
         }
     }
 
     public synchronized void load(String directory) {
+        RegionLoadEvent event = JfrEvents.beginRegionLoad();
         try {
             Path path = Paths.get(directory);
             if (!Files.exists(path)) {
@@ -199,111 +421,236 @@ public final class CachedRegion implements ICachedRegion {
             }
 
             System.out.println("Loading region " + x + "," + z + " from disk " + path);
-            long start = System.nanoTime() / 1000000L;
-
-            try (
-                    FileInputStream fileIn = new FileInputStream(regionFile.toFile());
-                    GZIPInputStream gzipIn = new GZIPInputStream(fileIn, 32768);
-                    DataInputStream in = new DataInputStream(gzipIn)
-            ) {
-                int magic = in.readInt();
-                if (magic != CACHED_REGION_MAGIC) {
-                    // in the future, if we change the format on disk
-                    // we can keep converters for the old format
-                    // by switching on the magic value, and either loading it normally, or loading through a converter.
-                    throw new IOException("Bad magic value " + magic);
+            long startNanos = System.nanoTime();
+
+            CachedChunk[][] read;
+            try (RegionFileLock lock = RegionFileLock.acquire(regionFile, true)) {
+                read = readChunks(regionFile);
+                rememberDiskVersion(regionFile);
+            }
+            // only if the entire file was uncorrupted do we actually set the chunks
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (read[x][z] != null) {
+                        this.chunks[x][z] = read[x][z];
+                    }
                 }
-                boolean[][] present = new boolean[32][32];
-                BitSet[][] bitSets = new BitSet[32][32];
-                Map<String, List<BlockPos>>[][] location = new Map[32][32];
-                IBlockState[][][] overview = new IBlockState[32][32][];
-                long[][] cacheTimestamp = new long[32][32];
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        int isChunkPresent = in.read();
-                        switch (isChunkPresent) {
-                            case CHUNK_PRESENT:
-                                byte[] bytes = new byte[CachedChunk.SIZE_IN_BYTES];
-                                in.readFully(bytes);
-                                bitSets[x][z] = BitSet.valueOf(bytes);
-                                location[x][z] = new HashMap<>();
-                                overview[x][z] = new IBlockState[256];
-                                present[x][z] = true;
-                                break;
-                            case CHUNK_NOT_PRESENT:
-                                break;
-                            default:
-                                throw new IOException("Malformed stream");
-                        }
+            }
+            removeExpired();
+            recalculateSize();
+            hasUnsavedChanges = false;
+            LOAD_TIME.recordSince(startNanos);
+        } catch (Exception ex) { // corrupted files can cause NullPointerExceptions as well as IOExceptions
+            ex.printStackTrace();
+        } finally {
+            JfrEvents.endRegionLoad(event, this.x, this.z);
+        }
+    }
+
+    /**
+     * Reads every chunk in a region file, without changing this region
+     *
+     * @return The chunks, indexed by their coordinates within this region
+     */
+    private CachedChunk[][] readChunks(Path regionFile) throws IOException {
+        try (
+                FileInputStream fileIn = new FileInputStream(regionFile.toFile());
+                GZIPInputStream gzipIn = new GZIPInputStream(fileIn, 32768);
+                DataInputStream in = new DataInputStream(gzipIn)
+        ) {
+            int magic = in.readInt();
+            if (magic != CACHED_REGION_MAGIC && magic != CACHED_REGION_MAGIC_PAIRED_POSITIONS && magic != CACHED_REGION_MAGIC_UNTRACKED && magic != CACHED_REGION_MAGIC_NAMED_OVERVIEW) {
+                // in the future, if we change the format on disk
+                // we can keep converters for the old format
+                // by switching on the magic value, and either loading it normally, or loading through a converter.
+                throw new IOException("Bad magic value " + magic);
+            }
+            boolean[][] present = new boolean[32][32];
+            BitSet[][] bitSets = new BitSet[32][32];
+            Map<String, TrackedPositions>[][] location = new Map[32][32];
+            IBlockState[][][] overview = new IBlockState[32][32][];
+            int[][][] heightMap = new int[32][32][];
+            long[][] cacheTimestamp = new long[32][32];
+            long[][] trackedSet = new long[32][32];
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    int isChunkPresent = in.read();
+                    switch (isChunkPresent) {
+                        case CHUNK_PRESENT:
+                            byte[] bytes = new byte[CachedChunk.SIZE_IN_BYTES];
+                            in.readFully(bytes);
+                            bitSets[x][z] = BitSet.valueOf(bytes);
+                            location[x][z] = new HashMap<>();
+                            overview[x][z] = new IBlockState[256];
+                            present[x][z] = true;
+                            break;
+                        case CHUNK_NOT_PRESENT:
+                            break;
+                        default:
+                            throw new IOException("Malformed stream");
                     }
                 }
+            }
+            if (magic == CACHED_REGION_MAGIC || magic == CACHED_REGION_MAGIC_PAIRED_POSITIONS) {
+                IBlockState[] palette = new IBlockState[in.readShort() & 0xffff];
+                for (int i = 0; i < palette.length; i++) {
+                    palette[i] = BlockUtils.stringToBlockRequired(in.readUTF()).getDefaultState();
+                }
+                boolean wide = palette.length > 256;
+                byte[] indices = new byte[wide ? 512 : 256];
                 for (int x = 0; x < 32; x++) {
                     for (int z = 0; z < 32; z++) {
                         if (present[x][z]) {
+                            in.readFully(indices);
                             for (int i = 0; i < 256; i++) {
-                                overview[x][z][i] = BlockUtils.stringToBlockRequired(in.readUTF()).getDefaultState();
+                                overview[x][z][i] = palette[wide ? (indices[i * 2] & 0xff) << 8 | (indices[i * 2 + 1] & 0xff) : indices[i] & 0xff];
                             }
                         }
                     }
                 }
+                byte[] heights = new byte[256];
                 for (int x = 0; x < 32; x++) {
                     for (int z = 0; z < 32; z++) {
                         if (present[x][z]) {
-                            // 16 * 16 * 256 = 65536 so a short is enough
-                            // ^ haha jokes on leijurv, java doesn't have unsigned types so that isn't correct
-                            //   also why would you have more than 32767 special blocks in a chunk
-                            // haha double jokes on you now it works for 65535 not just 32767
-                            int numSpecialBlockTypes = in.readShort() & 0xffff;
-                            for (int i = 0; i < numSpecialBlockTypes; i++) {
-                                String blockName = in.readUTF();
-                                BlockUtils.stringToBlockRequired(blockName);
-                                List<BlockPos> locs = new ArrayList<>();
-                                location[x][z].put(blockName, locs);
-                                int numLocations = in.readShort() & 0xffff;
-                                if (numLocations == 0) {
-                                    // an entire chunk full of air can happen in the end
-                                    numLocations = 65536;
-                                }
-                                for (int j = 0; j < numLocations; j++) {
-                                    byte xz = in.readByte();
-                                    int X = xz & 0x0f;
-                                    int Z = (xz >>> 4) & 0x0f;
-                                    int Y = in.readByte() & 0xff;
-                                    locs.add(new BlockPos(X, Y, Z));
-                                }
+                            in.readFully(heights);
+                            heightMap[x][z] = new int[256];
+                            for (int i = 0; i < 256; i++) {
+                                heightMap[x][z][i] = heights[i] & 0xff;
                             }
                         }
                     }
                 }
+            } else {
                 for (int x = 0; x < 32; x++) {
                     for (int z = 0; z < 32; z++) {
                         if (present[x][z]) {
-                            cacheTimestamp[x][z] = in.readLong();
+                            for (int i = 0; i < 256; i++) {
+                                overview[x][z][i] = BlockUtils.stringToBlockRequired(in.readUTF()).getDefaultState();
+                            }
                         }
                     }
                 }
-                // only if the entire file was uncorrupted do we actually set the chunks
-                for (int x = 0; x < 32; x++) {
-                    for (int z = 0; z < 32; z++) {
-                        if (present[x][z]) {
-                            int regionX = this.x;
-                            int regionZ = this.z;
-                            int chunkX = x + 32 * regionX;
-                            int chunkZ = z + 32 * regionZ;
-                            this.chunks[x][z] = new CachedChunk(chunkX, chunkZ, bitSets[x][z], overview[x][z], location[x][z], cacheTimestamp[x][z]);
+                // heightMap stays null, so the chunks calculate theirs
+            }
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        // 16 * 16 * 256 = 65536 so a short is enough
+                        // ^ haha jokes on leijurv, java doesn't have unsigned types so that isn't correct
+                        //   also why would you have more than 32767 special blocks in a chunk
+                        // haha double jokes on you now it works for 65535 not just 32767
+                        int numSpecialBlockTypes = in.readShort() & 0xffff;
+                        for (int i = 0; i < numSpecialBlockTypes; i++) {
+                            String blockName = in.readUTF();
+                            BlockUtils.stringToBlockRequired(blockName);
+                            if (magic == CACHED_REGION_MAGIC) {
+                                location[x][z].put(blockName, TrackedPositions.read(in));
+                                continue;
+                            }
+                            int numLocations = in.readShort() & 0xffff;
+                            if (numLocations == 0) {
+                                // an entire chunk full of air can happen in the end
+                                numLocations = 65536;
+                            }
+                            int[] locs = new int[numLocations];
+                            for (int j = 0; j < numLocations; j++) {
+                                byte xz = in.readByte();
+                                int X = xz & 0x0f;
+                                int Z = (xz >>> 4) & 0x0f;
+                                int Y = in.readByte() & 0xff;
+                                locs[j] = TrackedPositions.pack(X, Y, Z);
+                            }
+                            location[x][z].put(blockName, TrackedPositions.of(locs, numLocations));
                         }
                     }
                 }
             }
-            removeExpired();
-            hasUnsavedChanges = false;
-            long end = System.nanoTime() / 1000000L;
-            System.out.println("Loaded region successfully in " + (end - start) + "ms");
-        } catch (Exception ex) { // corrupted files can cause NullPointerExceptions as well as IOExceptions
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        cacheTimestamp[x][z] = in.readLong();
+                    }
+                }
+            }
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        trackedSet[x][z] = magic == CACHED_REGION_MAGIC_UNTRACKED ? TrackedBlocks.DEFAULT_FINGERPRINT : in.readLong();
+                    }
+                }
+            }
+            CachedChunk[][] read = new CachedChunk[32][32];
+            for (int x = 0; x < 32; x++) {
+                for (int z = 0; z < 32; z++) {
+                    if (present[x][z]) {
+                        int chunkX = x + 32 * this.x;
+                        int chunkZ = z + 32 * this.z;
+                        read[x][z] = new CachedChunk(chunkX, chunkZ, bitSets[x][z], overview[x][z], heightMap[x][z], location[x][z], cacheTimestamp[x][z], trackedSet[x][z]);
+                    }
+                }
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Merges in the chunks that are newer in the file of this region than in RAM, if some other game sharing the
+     * directory has written it since this region last read or wrote it
+     *
+     * @param merged Given every chunk that was merged in from the file
+     */
+    public synchronized final void mergeFromDisk(String directory, Consumer<CachedChunk> merged) {
+        try {
+            Path regionFile = getRegionFile(Paths.get(directory), this.x, this.z);
+            if (!isChangedOnDisk(regionFile)) {
+                return;
+            }
+            try (RegionFileLock lock = RegionFileLock.acquire(regionFile, true)) {
+                CachedChunk[][] read = readChunks(regionFile);
+                rememberDiskVersion(regionFile);
+                mergeNewer(read, merged);
+            }
+        } catch (Exception ex) {
             ex.printStackTrace();
         }
     }
 
+    private void mergeNewer(CachedChunk[][] read, Consumer<CachedChunk> merged) {
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                CachedChunk theirs = read[x][z];
+                CachedChunk ours = this.chunks[x][z];
+                if (theirs != null && (ours == null || theirs.cacheTimestamp > ours.cacheTimestamp)) {
+                    this.chunks[x][z] = theirs;
+                    estimatedSize += theirs.sizeInBytes() - (ours == null ? 0 : ours.sizeInBytes());
+                    merged.accept(theirs);
+                }
+            }
+        }
+    }
+
+    private boolean isChangedOnDisk(Path regionFile) throws IOException {
+        if (!Files.exists(regionFile)) {
+            return false;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(regionFile, BasicFileAttributes.class);
+        return !attributes.lastModifiedTime().equals(diskModified) || attributes.size() != diskSize;
+    }
+
+    /**
+     * @return The last modified time, in milliseconds, and the size of the file of this region, as of when this
+     * region last read or wrote it, or null if it hasn't
+     */
+    synchronized long[] getDiskVersion() {
+        return diskModified == null ? null : new long[]{diskModified.toMillis(), diskSize};
+    }
+
+    private void rememberDiskVersion(Path regionFile) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(regionFile, BasicFileAttributes.class);
+        diskModified = attributes.lastModifiedTime();
+        diskSize = attributes.size();
+    }
+
     public synchronized final void removeExpired() {
         long expiry = Baritone.settings().cachedChunksExpirySeconds.value;
         if (expiry < 0) {
@@ -315,6 +662,7 @@ public final class CachedRegion implements ICachedRegion {
             for (int z = 0; z < 32; z++) {
                 if (this.chunks[x][z] != null && this.chunks[x][z].cacheTimestamp < oldestAcceptableAge) {
                     System.out.println("Removing chunk " + (x + 32 * this.x) + "," + (z + 32 * this.z) + " because it was cached " + (now - this.chunks[x][z].cacheTimestamp) / 1000L + " seconds ago, and max age is " + expiry);
+                    estimatedSize -= this.chunks[x][z].sizeInBytes();
                     this.chunks[x][z] = null;
                 }
             }
@@ -352,7 +700,7 @@ public final class CachedRegion implements ICachedRegion {
         return this.z;
     }
 
-    private static Path getRegionFile(Path cacheDir, int regionX, int regionZ) {
+    static Path getRegionFile(Path cacheDir, int regionX, int regionZ) {
         return Paths.get(cacheDir.toString(), "r." + regionX + "." + regionZ + ".bcr");
     }
 }
@@ -20,23 +20,39 @@ package baritone.cache;
 import baritone.Baritone;
 import baritone.api.BaritoneAPI;
 import baritone.api.IBaritone;
+import baritone.api.cache.ChunkChange;
 import baritone.api.cache.ICachedWorld;
+import baritone.api.cache.IChunkChangeListener;
 import baritone.api.cache.IWorldData;
 import baritone.api.utils.Helper;
-import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import baritone.utils.metrics.Counter;
+import baritone.utils.metrics.Histogram;
+import baritone.utils.metrics.Metrics;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.*;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.chunk.Chunk;
 
 import java.io.IOException;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author Brady
@@ -49,11 +65,28 @@ public final class CachedWorld implements ICachedWorld, Helper {
      */
     private static final int REGION_MAX = 30_000_000 / 512 + 1;
 
+    /**
+     * Queued for packing to stop the packer thread, after everything queued before it
+     */
+    private static final ChunkPos STOP_PACKING = new ChunkPos(Integer.MAX_VALUE, Integer.MAX_VALUE);
+
     /**
      * A map of all of the cached regions.
      */
     private Long2ObjectMap<CachedRegion> cachedRegions = new Long2ObjectOpenHashMap<>();
 
+    /**
+     * Regions that were pruned from {@link #cachedRegions} with unsaved changes, and are still being saved. Looking
+     * one of these up puts it back, rather than reading it from a file that's still being written.
+     */
+    private final Long2ObjectMap<CachedRegion> prunedRegions = new Long2ObjectOpenHashMap<>();
+
+    private static final Counter REGION_HITS = Metrics.counter("cache.region.hits", "lookups");
+    private static final Counter REGION_MISSES = Metrics.counter("cache.region.misses", "lookups");
+    private static final Counter REGION_EVICTIONS = Metrics.counter("cache.region.evictions", "regions");
+    private static final Histogram PACK_TIME = Metrics.latency("cache.pack.time");
+    private static final Histogram PATCH_TIME = Metrics.latency("cache.patch.time");
+
     /**
      * The directory that the cached region files are saved to
      */
@@ -71,8 +104,62 @@ public final class CachedWorld implements ICachedWorld, Helper {
      */
     private final Map<ChunkPos, Chunk> toPackMap = new ConcurrentHashMap<>();
 
+    /**
+     * Changed blocks waiting to be applied to chunks that aren't pending a full pack, guarded by itself. Every key is
+     * also in {@link #toPackQueue}.
+     */
+    private final Map<ChunkPos, PendingChanges> toPatchMap = new HashMap<>();
+
     private final int dimension;
 
+    /**
+     * Where all of the tracked blocks in this world are, including in regions that aren't loaded
+     */
+    private final CachedBlockIndex blockIndex;
+
+    /**
+     * The versions of the chunks in this world, and who to tell when they change
+     */
+    private final ChunkChangeFeed changeFeed = new ChunkChangeFeed();
+
+    /**
+     * Writes regions to disk in the background
+     */
+    private final RegionSaver saver;
+
+    /**
+     * Watches for regions saved by other games sharing the directory, if {@link baritone.api.Settings#sharedCache} is on
+     */
+    private final RegionFileWatcher watcher;
+
+    /**
+     * For each region, the last modified time and size of its file as this game last wrote it, so that the watcher
+     * telling us about our own writes can be ignored without reading the file. Guarded by itself.
+     */
+    private final Long2ObjectMap<long[]> ownWrites = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * Set while the cached regions are being re-indexed for a new set of tracked blocks
+     */
+    private final AtomicBoolean reindexing = new AtomicBoolean();
+
+    /**
+     * The blocks that the regions were last re-indexed for, or null if that hasn't happened since this was created
+     */
+    private volatile TrackedBlocks indexedFor;
+
+    /**
+     * Counted down once, by {@link #close()}
+     */
+    private final CountDownLatch closed = new CountDownLatch(1);
+
+    /**
+     * Counted down once the packer thread has stopped
+     */
+    private final CountDownLatch packerStopped = new CountDownLatch(1);
+
+    private final Thread shutdownHook = new Thread(this::close, "Baritone cache shutdown");
+
     CachedWorld(Path directory, int dimension) {
         if (!Files.exists(directory)) {
             try {
@@ -82,29 +169,174 @@ public final class CachedWorld implements ICachedWorld, Helper {
         }
         this.directory = directory.toString();
         this.dimension = dimension;
+        this.blockIndex = new CachedBlockIndex(directory.resolve("blocks.bci"));
+        this.saver = new RegionSaver(this.directory, this::onChunkMerged, this::onRegionWritten);
+        this.watcher = Baritone.settings().sharedCache.value ? RegionFileWatcher.start(directory, this) : null;
         System.out.println("Cached world directory: " + directory);
         Baritone.getExecutor().execute(new PackerThread());
         Baritone.getExecutor().execute(() -> {
             try {
-                Thread.sleep(30000);
-                while (true) {
+                if (closed.await(30, TimeUnit.SECONDS)) {
+                    return;
+                }
+                do {
                     // since a region only saves if it's been modified since its last save
                     // saving every 10 minutes means that once it's time to exit
                     // we'll only have a couple regions to save
                     save();
-                    Thread.sleep(600000);
-                }
+                } while (!closed.await(watcher != null ? 30 : 600, TimeUnit.SECONDS));
             } catch (InterruptedException e) {
                 e.printStackTrace();
             }
         });
+        // the saver thread doesn't keep the game running, so anything it hasn't written yet is written on the way out
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
     }
 
     @Override
     public final void queueForPacking(Chunk chunk) {
+        if (closed.getCount() == 0) {
+            return;
+        }
         if (toPackMap.put(chunk.getPos(), chunk) == null) {
             toPackQueue.add(chunk.getPos());
         }
+        checkTrackedBlocks();
+    }
+
+    @Override
+    public final void queueBlockChanges(Chunk chunk, List<BlockPos> positions) {
+        if (closed.getCount() == 0) {
+            return;
+        }
+        ChunkPos pos = chunk.getPos();
+        synchronized (toPatchMap) {
+            if (toPackMap.containsKey(pos)) {
+                // the whole chunk is going to be packed anyway, which will include these changes
+                return;
+            }
+            PendingChanges changes = toPatchMap.get(pos);
+            if (changes == null) {
+                changes = new PendingChanges(chunk);
+                toPatchMap.put(pos, changes);
+                toPackQueue.add(pos);
+            }
+            for (BlockPos changed : positions) {
+                if (changed.getY() >= 0 && changed.getY() < 256) {
+                    changes.positions.add(TrackedPositions.pack(changed.getX() & 15, changed.getY(), changed.getZ() & 15));
+                }
+            }
+        }
+    }
+
+    /**
+     * Applies block changes to the cached copy of a chunk, or packs it in full if it isn't cached yet or can't be
+     * patched
+     */
+    private CachedChunk applyChanges(PendingChanges changes) {
+        Chunk chunk = changes.chunk;
+        CachedChunk cached = getOrCreateRegion(chunk.x >> 5, chunk.z >> 5).getChunk(chunk.x & 31, chunk.z & 31);
+        CachedChunk patched = cached == null ? null : ChunkPacker.patch(cached, chunk, changes.positions);
+        return patched != null ? patched : ChunkPacker.pack(chunk);
+    }
+
+    /**
+     * Starts re-indexing the cached regions if the set of tracked blocks is different from what they were last
+     * indexed for
+     */
+    private void checkTrackedBlocks() {
+        if (!blockIndex.isLoaded()) {
+            return;
+        }
+        TrackedBlocks tracked = TrackedBlocks.current();
+        if (tracked.fingerprint != blockIndex.getTrackedSet() && reindexing.compareAndSet(false, true)) {
+            Baritone.getExecutor().execute(() -> {
+                try {
+                    reindex(tracked);
+                } catch (Throwable th) {
+                    th.printStackTrace();
+                } finally {
+                    reindexing.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Goes through every cached region of this world, in RAM or on disk, and drops blocks that aren't tracked anymore.
+     * Cached chunks can only learn about newly tracked blocks by being packed again, so the loaded chunks are queued
+     * for packing, and the rest will be packed again whenever they're next loaded.
+     * <p>
+     * Regions that aren't in RAM are read into a copy that's saved and dropped again, so that this doesn't push the
+     * regions the player is actually using out of RAM. If the new blocks are only additions to what the regions were
+     * indexed for, nothing could be dropped, so the regions aren't gone through at all.
+     */
+    private void reindex(TrackedBlocks tracked) {
+        long start = System.nanoTime() / 1000000L;
+        long previous = blockIndex.getTrackedSet();
+        TrackedBlocks before = indexedFor;
+        // every set includes the default blocks, so anything indexed for just those only gains blocks
+        boolean onlyAdds = previous == TrackedBlocks.DEFAULT_FINGERPRINT
+                || (before != null && before.fingerprint == previous && tracked.blocks().containsAll(before.blocks()));
+        LongSet regions = new LongOpenHashSet();
+        if (!onlyAdds) {
+            for (CachedRegion region : allRegions()) {
+                regions.add(getRegionID(region.getX(), region.getZ()));
+            }
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(directory), "r.*.*.bcr")) {
+                for (Path file : files) {
+                    String[] parts = file.getFileName().toString().split("\\.");
+                    regions.add(getRegionID(Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+                }
+            } catch (IOException | NumberFormatException ex) {
+                ex.printStackTrace();
+            }
+        }
+        int changed = 0;
+        for (LongIterator it = regions.iterator(); it.hasNext(); ) {
+            long id = it.nextLong();
+            CachedRegion region = regionInRam(id);
+            boolean inRam = region != null;
+            if (!inRam) {
+                CachedRegion onDisk = new CachedRegion((int) id, (int) (id >>> 32), dimension);
+                onDisk.load(this.directory);
+                synchronized (this) {
+                    region = regionInRam(id);
+                    inRam = region != null;
+                    if (!inRam) {
+                        // if it's looked up in the meantime, it goes into RAM like any pruned region
+                        region = onDisk;
+                        prunedRegions.put(id, region);
+                    }
+                }
+            }
+            for (CachedChunk chunk : region.retainTracked(tracked)) {
+                blockIndex.update(chunk);
+                changeFeed.publish(ChunkChange.Type.CACHED, chunk.x, chunk.z, ChunkChangeFeed.ALL_SECTIONS);
+                changed++;
+            }
+            if (!inRam) {
+                saver.saveAll(Collections.singletonList(region));
+                synchronized (this) {
+                    if (prunedRegions.get(id) == region) {
+                        prunedRegions.remove(id);
+                        changeFeed.forgetCachedRegion(region.getX(), region.getZ());
+                    }
+                }
+            }
+        }
+        indexedFor = tracked;
+        blockIndex.setTrackedSet(tracked.fingerprint);
+        long now = System.nanoTime() / 1000000L;
+        System.out.println("Re-indexed " + regions.size() + " regions for the new tracked blocks in " + (now - start) + "ms, " + changed + " chunks changed");
+        mc.addScheduledTask(() -> {
+            for (IBaritone ibaritone : BaritoneAPI.getProvider().getAllBaritones()) {
+                IWorldData data = ibaritone.getWorldProvider().getCurrentWorld();
+                if (data != null && data.getCachedWorld() == this && ibaritone.getPlayerContext().player() != null) {
+                    WorldScanner.INSTANCE.repack(ibaritone.getPlayerContext());
+                }
+            }
+        });
     }
 
     @Override
@@ -122,6 +354,10 @@ public final class CachedWorld implements ICachedWorld, Helper {
 
     @Override
     public final ArrayList<BlockPos> getLocationsOf(String block, int maximum, int centerX, int centerZ, int maxRegionDistanceSq) {
+        if (blockIndex.isLoaded()) {
+            return blockIndex.getLocationsOf(block, maximum, centerX, centerZ, maxRegionDistanceSq);
+        }
+        // the index is still being read from disk, so go through the regions themselves
         ArrayList<BlockPos> res = new ArrayList<>();
         int centerRegionX = centerX >> 9;
         int centerRegionZ = centerZ >> 9;
@@ -151,9 +387,250 @@ public final class CachedWorld implements ICachedWorld, Helper {
         return res;
     }
 
+    @Override
+    public final List<BlockPos> getNearestLocationsOf(String block, int maximum, int centerX, int centerZ, int radius) {
+        if (!blockIndex.isLoaded()) {
+            List<BlockPos> res = getLocationsOf(block, Integer.MAX_VALUE, centerX, centerZ, (radius >> 9) * (radius >> 9) + 2);
+            res.removeIf(pos -> (pos.getX() - centerX) * (long) (pos.getX() - centerX) + (pos.getZ() - centerZ) * (long) (pos.getZ() - centerZ) > (long) radius * radius);
+            res.sort(Comparator.comparingLong(pos -> (pos.getX() - centerX) * (long) (pos.getX() - centerX) + (pos.getZ() - centerZ) * (long) (pos.getZ() - centerZ)));
+            return res.size() > maximum ? new ArrayList<>(res.subList(0, maximum)) : res;
+        }
+        return blockIndex.getNearestLocationsOf(block, maximum, centerX, centerZ, radius);
+    }
+
     private void updateCachedChunk(CachedChunk chunk) {
         CachedRegion region = getOrCreateRegion(chunk.x >> 5, chunk.z >> 5);
-        region.updateCachedChunk(chunk.x & 31, chunk.z & 31, chunk);
+        CachedChunk previous = region.updateCachedChunk(chunk.x & 31, chunk.z & 31, chunk);
+        blockIndex.update(chunk);
+        changeFeed.publish(ChunkChange.Type.CACHED, chunk.x, chunk.z, chunk.sectionsChangedFrom(previous));
+    }
+
+    @Override
+    public final int readPathingTypes(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, byte[] out) {
+        return readBox(minX, minY, minZ, sizeX, sizeY, sizeZ, out.length, (chunk, x0, y0, z0, x1, y1, z1, offset, strideZ, strideY) -> {
+            if (chunk != null) {
+                chunk.readPathingTypes(x0, y0, z0, x1, y1, z1, out, offset, strideZ, strideY);
+                return;
+            }
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    int i = offset + (y - y0) * strideY + (z - z0) * strideZ;
+                    Arrays.fill(out, i, i + x1 - x0 + 1, (byte) NOT_CACHED);
+                }
+            }
+        });
+    }
+
+    @Override
+    public final int readBlockStateIds(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, int[] out) {
+        return readBox(minX, minY, minZ, sizeX, sizeY, sizeZ, out.length, (chunk, x0, y0, z0, x1, y1, z1, offset, strideZ, strideY) -> {
+            if (chunk != null) {
+                chunk.readBlockStateIds(x0, y0, z0, x1, y1, z1, out, offset, strideZ, strideY, dimension);
+                return;
+            }
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    int i = offset + (y - y0) * strideY + (z - z0) * strideZ;
+                    Arrays.fill(out, i, i + x1 - x0 + 1, NOT_CACHED);
+                }
+            }
+        });
+    }
+
+    /**
+     * Splits a box into the parts that are in each chunk, going region by region so that each one is only looked up
+     * once
+     *
+     * @param length The length of the array being filled
+     * @return How many of the blocks were in cached chunks
+     */
+    private int readBox(int minX, int minY, int minZ, int sizeX, int sizeY, int sizeZ, int length, BoxReader reader) {
+        if (sizeX < 0 || sizeY < 0 || sizeZ < 0 || minY < 0 || minY + sizeY > 256) {
+            throw new IllegalArgumentException("Invalid box " + sizeX + "x" + sizeY + "x" + sizeZ + " at y=" + minY);
+        }
+        if ((long) sizeX * sizeY * sizeZ > length) {
+            throw new IllegalArgumentException("Array of length " + length + " is too short for a " + sizeX + "x" + sizeY + "x" + sizeZ + " box");
+        }
+        if (sizeX == 0 || sizeY == 0 || sizeZ == 0) {
+            return 0;
+        }
+        int maxX = minX + sizeX - 1;
+        int maxY = minY + sizeY - 1;
+        int maxZ = minZ + sizeZ - 1;
+        int strideZ = sizeX;
+        int strideY = sizeX * sizeZ;
+        int cached = 0;
+        for (int regionX = minX >> 9; regionX <= maxX >> 9; regionX++) {
+            for (int regionZ = minZ >> 9; regionZ <= maxZ >> 9; regionZ++) {
+                CachedRegion region = getOrCreateRegion(regionX, regionZ);
+                int minChunkX = Math.max(minX >> 4, regionX << 5);
+                int maxChunkX = Math.min(maxX >> 4, regionX << 5 | 31);
+                int minChunkZ = Math.max(minZ >> 4, regionZ << 5);
+                int maxChunkZ = Math.min(maxZ >> 4, regionZ << 5 | 31);
+                for (int chunkX = minChunkX; chunkX <= maxChunkX; chunkX++) {
+                    for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ; chunkZ++) {
+                        CachedChunk chunk = region.getChunk(chunkX & 31, chunkZ & 31);
+                        int x0 = Math.max(minX, chunkX << 4);
+                        int x1 = Math.min(maxX, chunkX << 4 | 15);
+                        int z0 = Math.max(minZ, chunkZ << 4);
+                        int z1 = Math.min(maxZ, chunkZ << 4 | 15);
+                        int offset = (x0 - minX) + (z0 - minZ) * strideZ;
+                        reader.read(chunk, x0 & 15, minY, z0 & 15, x1 & 15, maxY, z1 & 15, offset, strideZ, strideY);
+                        if (chunk != null) {
+                            cached += (x1 - x0 + 1) * (z1 - z0 + 1) * sizeY;
+                        }
+                    }
+                }
+            }
+        }
+        return cached;
+    }
+
+    /**
+     * Called with chunks that another game sharing the directory cached more recently, once they're in a region
+     */
+    private void onChunkMerged(CachedChunk chunk) {
+        blockIndex.update(chunk);
+        changeFeed.publish(ChunkChange.Type.CACHED, chunk.x, chunk.z, ChunkChangeFeed.ALL_SECTIONS);
+    }
+
+    private void onRegionWritten(CachedRegion region) {
+        long[] version = region.getDiskVersion();
+        if (version != null) {
+            synchronized (ownWrites) {
+                ownWrites.put(getRegionID(region.getX(), region.getZ()), version);
+            }
+        }
+    }
+
+    /**
+     * Called when a region file might have been written by another game sharing the directory. Files that are just
+     * as this game last wrote them are skipped.
+     */
+    void onRegionFileChanged(int regionX, int regionZ) {
+        if (closed.getCount() == 0 || !Baritone.settings().chunkCaching.value) {
+            return;
+        }
+        long id = getRegionID(regionX, regionZ);
+        long[] written;
+        synchronized (ownWrites) {
+            written = ownWrites.get(id);
+        }
+        if (written != null) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(CachedRegion.getRegionFile(Paths.get(directory), regionX, regionZ), BasicFileAttributes.class);
+                if (attributes.lastModifiedTime().toMillis() == written[0] && attributes.size() == written[1]) {
+                    return;
+                }
+            } catch (IOException ex) {
+                return; // deleted since
+            }
+        }
+        CachedRegion region;
+        synchronized (this) {
+            region = cachedRegions.get(id);
+            if (region == null) {
+                region = prunedRegions.get(id);
+            }
+        }
+        if (region != null) {
+            region.mergeFromDisk(this.directory, this::onChunkMerged);
+        } else {
+            // not worth keeping in RAM, but the index should still know what was found there
+            CachedRegion onDisk = new CachedRegion(regionX, regionZ, dimension);
+            onDisk.load(this.directory);
+            onDisk.forEachChunk(blockIndex::update);
+        }
+    }
+
+    /**
+     * Records that a chunk as it's loaded in the world changed
+     *
+     * @param sections A mask of the sections that changed, as in {@link ChunkChange#getSections()}
+     */
+    public final void onLoadedChunkChanged(int chunkX, int chunkZ, int sections) {
+        changeFeed.publish(ChunkChange.Type.LOADED, chunkX, chunkZ, sections);
+    }
+
+    /**
+     * Records that a chunk was unloaded from the world, so that its loaded version doesn't have to be kept
+     */
+    public final void onLoadedChunkUnloaded(int chunkX, int chunkZ) {
+        changeFeed.forgetLoaded(chunkX, chunkZ);
+    }
+
+    @Override
+    public final long getCachedChunkVersion(int chunkX, int chunkZ) {
+        return changeFeed.getVersion(ChunkChange.Type.CACHED, chunkX, chunkZ);
+    }
+
+    @Override
+    public final long getLoadedChunkVersion(int chunkX, int chunkZ) {
+        return changeFeed.getVersion(ChunkChange.Type.LOADED, chunkX, chunkZ);
+    }
+
+    @Override
+    public final void addChunkChangeListener(IChunkChangeListener listener) {
+        changeFeed.addListener(listener);
+    }
+
+    @Override
+    public final void removeChunkChangeListener(IChunkChangeListener listener) {
+        changeFeed.removeListener(listener);
+    }
+
+    /**
+     * Adds chunks of one region that were packed from somewhere other than the live world, such as a world save,
+     * keeping any that are cached more recently already. If the region isn't in RAM, it's saved right away and
+     * dropped again, so that importing a huge area doesn't need it all to fit in RAM.
+     *
+     * @return How many chunks were added
+     */
+    public final int importChunks(int regionX, int regionZ, List<CachedChunk> chunks) {
+        long id = getRegionID(regionX, regionZ);
+        CachedRegion region;
+        boolean wasLoaded;
+        synchronized (this) {
+            region = lookupRegion(id);
+            wasLoaded = region != null || !Baritone.settings().chunkCaching.value;
+            if (region == null && wasLoaded) {
+                // nowhere to save it to, so it has to stay in RAM
+                region = getOrCreateRegion(regionX, regionZ);
+            }
+        }
+        if (!wasLoaded) {
+            // read outside of the lock, so that the player's own lookups don't wait on the disk
+            CachedRegion onDisk = new CachedRegion(regionX, regionZ, dimension);
+            onDisk.load(this.directory);
+            synchronized (this) {
+                region = lookupRegion(id);
+                wasLoaded = region != null;
+                if (!wasLoaded) {
+                    // if it's looked up while being imported, it goes into RAM like any pruned region
+                    region = onDisk;
+                    prunedRegions.put(id, region);
+                }
+            }
+        }
+        int added = 0;
+        for (CachedChunk chunk : chunks) {
+            CachedChunk previous = region.getChunk(chunk.x & 31, chunk.z & 31);
+            if (region.updateIfNewer(chunk.x & 31, chunk.z & 31, chunk)) {
+                blockIndex.update(chunk);
+                changeFeed.publish(ChunkChange.Type.CACHED, chunk.x, chunk.z, chunk.sectionsChangedFrom(previous));
+                added++;
+            }
+        }
+        if (!wasLoaded) {
+            saver.saveAll(Collections.singletonList(region));
+            synchronized (this) {
+                if (prunedRegions.get(id) == region) {
+                    prunedRegions.remove(id);
+                    changeFeed.forgetCachedRegion(regionX, regionZ);
+                }
+            }
+        }
+        return added;
     }
 
     @Override
@@ -165,44 +642,138 @@ public final class CachedWorld implements ICachedWorld, Helper {
                     region.removeExpired();
                 }
             }); // even if we aren't saving to disk, still delete expired old chunks from RAM
+            blockIndex.removeExpired();
             prune();
             return;
         }
-        long start = System.nanoTime() / 1000000L;
-        allRegions().parallelStream().forEach(region -> {
-            if (region != null) {
-                region.save(this.directory);
-            }
-        });
-        long now = System.nanoTime() / 1000000L;
-        System.out.println("World save took " + (now - start) + "ms");
+        saver.saveAll(allRegions());
+        // after the regions, so that the index is never ahead of the region files on disk
+        blockIndex.save();
         prune();
     }
 
     /**
-     * Delete regions that are too far from the player
+     * Packs the chunks that are still queued, writes everything that hasn't been saved yet, and stops the threads of
+     * this world, waiting for writes that are already under way to finish. The regions are dropped from RAM
+     * afterwards, so this world can't be used again. Closing it again does nothing.
+     */
+    public final void close() {
+        synchronized (closed) {
+            if (closed.getCount() == 0) {
+                return;
+            }
+            closed.countDown();
+        }
+        if (watcher != null) {
+            watcher.stop();
+        }
+        toPackQueue.add(STOP_PACKING);
+        try {
+            // a huge backlog isn't worth holding up the exit for, it'll be packed again next time the chunks load
+            if (!packerStopped.await(10, TimeUnit.SECONDS)) {
+                System.out.println("Gave up waiting for the packer thread of " + directory);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (Baritone.settings().chunkCaching.value) {
+            saver.shutdown(allRegions());
+            blockIndex.save();
+        } else {
+            saver.shutdown(Collections.emptyList());
+        }
+        synchronized (this) {
+            cachedRegions.clear();
+            prunedRegions.clear();
+        }
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException ignored) {
+            // this is the shutdown hook
+        }
+    }
+
+    /**
+     * Delete the least recently used regions from RAM until the rest fit in {@link baritone.api.Settings#cachedRegionMemoryBudgetMB}.
+     * The block index always stays in RAM, so it's counted against the budget first. The region that the player is
+     * in is never pruned.
      */
     private synchronized void prune() {
         if (!Baritone.settings().pruneRegionsFromRAM.value) {
             return;
         }
+        long budget = Baritone.settings().cachedRegionMemoryBudgetMB.value * 1024L * 1024L;
+        List<CachedRegion> regions = allRegions();
+        long total = blockIndex.sizeInBytes();
+        for (CachedRegion region : regions) {
+            total += region.sizeInBytes();
+        }
+        if (total <= budget) {
+            return;
+        }
         BlockPos pruneCenter = guessPosition();
-        for (CachedRegion region : allRegions()) {
-            if (region == null) {
+        long pinned = getRegionID(pruneCenter.getX() >> 9, pruneCenter.getZ() >> 9);
+        regions.sort(Comparator.comparingLong(CachedRegion::lastAccess));
+        for (CachedRegion region : regions) {
+            if (total <= budget) {
+                break;
+            }
+            long id = getRegionID(region.getX(), region.getZ());
+            if (id == pinned) {
                 continue;
             }
-            int distX = ((region.getX() << 9) + 256) - pruneCenter.getX();
-            int distZ = ((region.getZ() << 9) + 256) - pruneCenter.getZ();
-            double dist = Math.sqrt(distX * distX + distZ * distZ);
-            if (dist > 1024) {
-                if (!Baritone.settings().censorCoordinates.value) {
-                    logDebug("Deleting cached region " + region.getX() + "," + region.getZ() + " from ram");
-                }
-                cachedRegions.remove(getRegionID(region.getX(), region.getZ()));
+            if (!Baritone.settings().censorCoordinates.value) {
+                logDebug("Deleting cached region " + region.getX() + "," + region.getZ() + " from ram");
+            }
+            total -= region.sizeInBytes();
+            cachedRegions.remove(id);
+            changeFeed.forgetCachedRegion(region.getX(), region.getZ());
+            REGION_EVICTIONS.increment();
+            if (Baritone.settings().chunkCaching.value && region.hasUnsavedChanges()) {
+                prunedRegions.put(id, region);
+                saver.saveEvicted(region, () -> {
+                    synchronized (this) {
+                        if (prunedRegions.get(id) == region) {
+                            prunedRegions.remove(id);
+                        }
+                    }
+                });
             }
         }
     }
 
+    /**
+     * @return How many chunks are waiting to be packed
+     */
+    public final int getPackQueueLength() {
+        return toPackQueue.size();
+    }
+
+    /**
+     * @return How many regions are waiting to be saved
+     */
+    public final int getSaveQueueLength() {
+        return saver.getQueueLength();
+    }
+
+    /**
+     * @return An estimate of how many bytes of heap all the regions in RAM take up, not counting the block index
+     */
+    public final long getRegionMemoryUsage() {
+        long total = 0;
+        for (CachedRegion region : allRegions()) {
+            total += region.sizeInBytes();
+        }
+        return total;
+    }
+
+    /**
+     * @return An estimate of how many bytes of heap the index of tracked blocks takes up
+     */
+    public final long getBlockIndexMemoryUsage() {
+        return blockIndex.sizeInBytes();
+    }
+
     /**
      * If we are still in this world and dimension, return player feet, otherwise return most recently modified chunk
      */
@@ -250,7 +821,36 @@ public final class CachedWorld implements ICachedWorld, Helper {
 
     @Override
     public final synchronized CachedRegion getRegion(int regionX, int regionZ) {
-        return cachedRegions.get(getRegionID(regionX, regionZ));
+        CachedRegion region = lookupRegion(getRegionID(regionX, regionZ));
+        if (region == null) {
+            REGION_MISSES.increment();
+            return null;
+        }
+        REGION_HITS.increment();
+        region.touch();
+        return region;
+    }
+
+    /**
+     * @return The region if it's in RAM, pruned or not, without counting this as a use of it
+     */
+    private synchronized CachedRegion regionInRam(long id) {
+        CachedRegion region = cachedRegions.get(id);
+        return region != null ? region : prunedRegions.get(id);
+    }
+
+    /**
+     * Looks up a region in RAM, putting it back if it was pruned but hasn't finished saving yet
+     */
+    private synchronized CachedRegion lookupRegion(long id) {
+        CachedRegion region = cachedRegions.get(id);
+        if (region == null) {
+            region = prunedRegions.remove(id);
+            if (region != null) {
+                cachedRegions.put(id, region);
+            }
+        }
+        return region;
     }
 
     /**
@@ -262,11 +862,20 @@ public final class CachedWorld implements ICachedWorld, Helper {
      * @return The region located at the specified coordinates
      */
     private synchronized CachedRegion getOrCreateRegion(int regionX, int regionZ) {
-        return cachedRegions.computeIfAbsent(getRegionID(regionX, regionZ), id -> {
-            CachedRegion newRegion = new CachedRegion(regionX, regionZ, dimension);
-            newRegion.load(this.directory);
-            return newRegion;
-        });
+        long id = getRegionID(regionX, regionZ);
+        CachedRegion region = lookupRegion(id);
+        if (region != null) {
+            REGION_HITS.increment();
+            region.touch();
+            return region;
+        }
+        REGION_MISSES.increment();
+        region = new CachedRegion(regionX, regionZ, dimension);
+        region.load(this.directory);
+        region.forEachChunk(blockIndex::update); // in case the index file is missing or older than this region
+        cachedRegions.put(id, region);
+        prune();
+        return region;
     }
 
     public void tryLoadFromDisk(int regionX, int regionZ) {
@@ -300,15 +909,65 @@ public final class CachedWorld implements ICachedWorld, Helper {
         return regionX <= REGION_MAX && regionX >= -REGION_MAX && regionZ <= REGION_MAX && regionZ >= -REGION_MAX;
     }
 
+    @FunctionalInterface
+    private interface BoxReader {
+
+        /**
+         * Reads the part of a box that's in one chunk, with coordinates within the chunk
+         *
+         * @param chunk The chunk, or null if it isn't cached
+         */
+        void read(CachedChunk chunk, int x0, int y0, int z0, int x1, int y1, int z1, int offset, int strideZ, int strideY);
+    }
+
+    private static final class PendingChanges {
+
+        private final Chunk chunk;
+
+        /**
+         * Packed as in {@link TrackedPositions#pack}
+         */
+        private final IntSet positions = new IntOpenHashSet();
+
+        private PendingChanges(Chunk chunk) {
+            this.chunk = chunk;
+        }
+    }
+
     private class PackerThread implements Runnable {
 
         public void run() {
+            // reading the index can take a moment on big worlds, so do it here rather than on the main thread
+            blockIndex.load();
             while (true) {
                 try {
                     ChunkPos pos = toPackQueue.take();
+                    if (pos == STOP_PACKING) {
+                        break;
+                    }
                     Chunk chunk = toPackMap.remove(pos);
-                    CachedChunk cached = ChunkPacker.pack(chunk);
+                    PendingChanges changes;
+                    synchronized (toPatchMap) {
+                        changes = toPatchMap.remove(pos);
+                    }
+                    CachedChunk cached;
+                    long start = System.nanoTime();
+                    if (chunk != null) {
+                        // a full pack has every change there might have been too
+                        cached = ChunkPacker.pack(chunk);
+                        PACK_TIME.recordSince(start);
+                    } else if (changes != null) {
+                        cached = applyChanges(changes);
+                        PATCH_TIME.recordSince(start);
+                    } else {
+                        // queued for both, and already taken care of
+                        continue;
+                    }
                     CachedWorld.this.updateCachedChunk(cached);
+                    if (toPackQueue.isEmpty()) {
+                        // don't check the budget after every single chunk while catching up on a backlog
+                        CachedWorld.this.prune();
+                    }
                     //System.out.println("Processed chunk at " + chunk.x + "," + chunk.z);
                 } catch (InterruptedException e) {
                     e.printStackTrace();
@@ -318,6 +977,12 @@ public final class CachedWorld implements ICachedWorld, Helper {
                     th.printStackTrace();
                 }
             }
+            toPackQueue.clear();
+            toPackMap.clear();
+            synchronized (toPatchMap) {
+                toPatchMap.clear();
+            }
+            packerStopped.countDown();
         }
     }
 }
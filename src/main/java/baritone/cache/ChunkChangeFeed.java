@@ -0,0 +1,170 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.Baritone;
+import baritone.api.cache.ChunkChange;
+import baritone.api.cache.IChunkChangeListener;
+import it.unimi.dsi.fastutil.longs.Long2LongMap;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Keeps the versions of the chunks of one {@link CachedWorld}, and delivers their changes to listeners in batches.
+ * <p>
+ * Every change gets the next value of one counter as its version, so versions only ever increase. Changes pile up
+ * while a batch is being delivered, and go out together in the next one, so a slow listener gets bigger batches
+ * rather than falling behind.
+ * <p>
+ * Versions are only kept for chunks that are loaded, or whose region is in RAM. Every other chunk has the highest
+ * version dropped so far, so that versions still never go backwards.
+ */
+final class ChunkChangeFeed {
+
+    /**
+     * Every section of a chunk
+     */
+    static final int ALL_SECTIONS = 0xFFFF;
+
+    private final List<IChunkChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * The version of each chunk whose region is in RAM. The default return value is the highest version dropped.
+     */
+    private final Long2LongMap cachedVersions = new Long2LongOpenHashMap();
+
+    /**
+     * The version of each loaded chunk. The default return value is the highest version dropped.
+     */
+    private final Long2LongMap loadedVersions = new Long2LongOpenHashMap();
+
+    private final Long2ObjectMap<ChunkChange> pendingCached = new Long2ObjectLinkedOpenHashMap<>();
+
+    private final Long2ObjectMap<ChunkChange> pendingLoaded = new Long2ObjectLinkedOpenHashMap<>();
+
+    private long lastVersion;
+
+    /**
+     * Whether a batch is waiting to be delivered, or being delivered
+     */
+    private boolean scheduled;
+
+    void addListener(IChunkChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(IChunkChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    synchronized long getVersion(ChunkChange.Type type, int chunkX, int chunkZ) {
+        return versions(type).get(ChunkPos.asLong(chunkX, chunkZ));
+    }
+
+    /**
+     * Drops the loaded version of a chunk that was unloaded
+     */
+    synchronized void forgetLoaded(int chunkX, int chunkZ) {
+        forget(loadedVersions, ChunkPos.asLong(chunkX, chunkZ));
+    }
+
+    /**
+     * Drops the cached versions of every chunk in a region that is no longer in RAM
+     */
+    synchronized void forgetCachedRegion(int regionX, int regionZ) {
+        if (cachedVersions.isEmpty()) {
+            return;
+        }
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                forget(cachedVersions, ChunkPos.asLong(regionX << 5 | x, regionZ << 5 | z));
+            }
+        }
+    }
+
+    private static void forget(Long2LongMap versions, long key) {
+        if (versions.containsKey(key)) {
+            versions.defaultReturnValue(Math.max(versions.defaultReturnValue(), versions.remove(key)));
+        }
+    }
+
+    /**
+     * Records a change, doing nothing if no sections changed
+     *
+     * @param sections A mask of the sections that changed, as in {@link ChunkChange#getSections()}
+     */
+    void publish(ChunkChange.Type type, int chunkX, int chunkZ, int sections) {
+        if (sections == 0) {
+            return;
+        }
+        boolean schedule;
+        synchronized (this) {
+            long key = ChunkPos.asLong(chunkX, chunkZ);
+            long version = ++lastVersion;
+            versions(type).put(key, version);
+            if (listeners.isEmpty()) {
+                return;
+            }
+            Long2ObjectMap<ChunkChange> pending = type == ChunkChange.Type.CACHED ? pendingCached : pendingLoaded;
+            ChunkChange change = new ChunkChange(type, chunkX, chunkZ, sections, version);
+            ChunkChange previous = pending.get(key);
+            pending.put(key, previous == null ? change : previous.merge(change));
+            schedule = !scheduled;
+            scheduled = true;
+        }
+        if (schedule) {
+            Baritone.getExecutor().execute(this::deliver);
+        }
+    }
+
+    private Long2LongMap versions(ChunkChange.Type type) {
+        return type == ChunkChange.Type.CACHED ? cachedVersions : loadedVersions;
+    }
+
+    private void deliver() {
+        while (true) {
+            List<ChunkChange> batch;
+            synchronized (this) {
+                if (pendingCached.isEmpty() && pendingLoaded.isEmpty()) {
+                    scheduled = false;
+                    return;
+                }
+                batch = new ArrayList<>(pendingLoaded.size() + pendingCached.size());
+                batch.addAll(pendingLoaded.values());
+                batch.addAll(pendingCached.values());
+                pendingLoaded.clear();
+                pendingCached.clear();
+            }
+            for (IChunkChangeListener listener : listeners) {
+                try {
+                    listener.onChunksChanged(Collections.unmodifiableList(batch));
+                } catch (Throwable th) {
+                    // one broken listener shouldn't stop the others from hearing about changes
+                    th.printStackTrace();
+                }
+            }
+        }
+    }
+}
@@ -19,12 +19,17 @@ package baritone.cache;
 
 import baritone.api.utils.BlockUtils;
 import baritone.pathing.movement.MovementHelper;
+import baritone.utils.accessor.IBlockStateContainer;
+import baritone.utils.jfr.ChunkPackEvent;
+import baritone.utils.jfr.JfrEvents;
 import baritone.utils.pathing.PathingBlockType;
+import it.unimi.dsi.fastutil.ints.*;
 import net.minecraft.block.*;
 import net.minecraft.block.state.IBlockState;
 import net.minecraft.init.Blocks;
+import net.minecraft.util.BitArray;
 import net.minecraft.util.math.BlockPos;
-import net.minecraft.world.chunk.BlockStateContainer;
+import net.minecraft.world.IBlockAccess;
 import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
 
@@ -38,11 +43,62 @@ public final class ChunkPacker {
 
     private ChunkPacker() {}
 
+    /**
+     * The pathing bits of a classified palette entry, already laid out the way they are stored in the {@link BitSet}
+     * (the high bit of the {@link PathingBlockType} at the block's index, the low bit at index + 1)
+     */
+    private static final int TYPE_MASK = 0b11;
+
+    /**
+     * The palette entry is one of the {@link TrackedBlocks}
+     */
+    private static final int SPECIAL = 1 << 2;
+
+    /**
+     * The pathing type of the palette entry depends on its neighbors, so it has to go through the slow path
+     */
+    private static final int POSITIONAL = 1 << 3;
+
+    /**
+     * Set on every palette entry that has been classified, so that a zeroed array means "not classified yet"
+     */
+    private static final int CLASSIFIED = 1 << 4;
+
+    /**
+     * Past this many changed blocks, packing the whole chunk is about as quick as patching it
+     */
+    private static final int MAX_PATCH_SIZE = 4096;
+
     public static CachedChunk pack(Chunk chunk) {
+        return pack(chunk, System.currentTimeMillis());
+    }
+
+    /**
+     * @param cacheTimestamp When the chunk was in this state, see {@link CachedChunk#cacheTimestamp}
+     */
+    public static CachedChunk pack(Chunk chunk, long cacheTimestamp) {
+        return pack(chunk, chunk.getWorld(), cacheTimestamp);
+    }
+
+    /**
+     * @param neighbors      Where the blocks next to the chunk are looked up, for whether water at its edges flows
+     * @param cacheTimestamp When the chunk was in this state, see {@link CachedChunk#cacheTimestamp}
+     */
+    public static CachedChunk pack(Chunk chunk, IBlockAccess neighbors, long cacheTimestamp) {
+        return pack(chunk, neighbors, TrackedBlocks.current(), cacheTimestamp);
+    }
+
+    /**
+     * @param tracked The blocks whose positions are kept, rather than whatever the setting says now
+     */
+    static CachedChunk pack(Chunk chunk, IBlockAccess neighbors, TrackedBlocks tracked, long cacheTimestamp) {
         //long start = System.nanoTime() / 1000000L;
+        ChunkPackEvent event = JfrEvents.beginChunkPack();
 
-        Map<String, List<BlockPos>> specialBlocks = new HashMap<>();
-        BitSet bitSet = new BitSet(CachedChunk.SIZE);
+        Map<String, IntArrayList> specialBlocks = new HashMap<>();
+        long[] data = new long[CachedChunk.SIZE / 64];
+        IBlockState[] blocks = new IBlockState[256];
+        int[] heightMap = new int[256];
         try {
             ExtendedBlockStorage[] chunkInternalStorageArray = chunk.getBlockStorageArray();
             for (int y0 = 0; y0 < 16; y0++) {
@@ -58,55 +114,283 @@ public final class ChunkPacker {
                     // since a bitset is initialized to all zero, and air is saved as zeros
                     continue;
                 }
-                BlockStateContainer bsc = extendedblockstorage.getData();
-                int yReal = y0 << 4;
-                // the mapping of BlockStateContainer.getIndex from xyz to index is y << 8 | z << 4 | x;
-                // for better cache locality, iterate in that order
-                for (int y1 = 0; y1 < 16; y1++) {
-                    int y = y1 | yReal;
-                    for (int z = 0; z < 16; z++) {
-                        for (int x = 0; x < 16; x++) {
-                            int index = CachedChunk.getPositionIndex(x, y, z);
-                            IBlockState state = bsc.get(x, y1, z);
-                            boolean[] bits = getPathingBlockType(state, chunk, x, y, z).getBits();
-                            bitSet.set(index, bits[0]);
-                            bitSet.set(index + 1, bits[1]);
-                            Block block = state.getBlock();
-                            if (CachedChunk.BLOCKS_TO_KEEP_TRACK_OF.contains(block)) {
-                                String name = BlockUtils.blockToString(block);
-                                specialBlocks.computeIfAbsent(name, b -> new ArrayList<>()).add(new BlockPos(x, y, z));
-                            }
-                        }
-                    }
-                }
+                packSection(chunk, neighbors, y0, (IBlockStateContainer) extendedblockstorage.getData(), tracked, data, blocks, heightMap, specialBlocks);
             }
         } catch (Exception e) {
             e.printStackTrace();
         }
         //long end = System.nanoTime() / 1000000L;
         //System.out.println("Chunk packing took " + (end - start) + "ms for " + chunk.x + "," + chunk.z);
-        IBlockState[] blocks = new IBlockState[256];
+        for (int i = 0; i < 256; i++) {
+            if (blocks[i] == null) {
+                blocks[i] = Blocks.AIR.getDefaultState();
+            }
+        }
+        Map<String, TrackedPositions> trackedBlocks = new HashMap<>();
+        specialBlocks.forEach((name, positions) -> trackedBlocks.put(name, TrackedPositions.of(positions.elements(), positions.size())));
+        CachedChunk packed = new CachedChunk(chunk.x, chunk.z, BitSet.valueOf(data), blocks, heightMap, trackedBlocks, cacheTimestamp, tracked.fingerprint);
+        JfrEvents.endChunkPack(event, chunk.x, chunk.z);
+        return packed;
+    }
 
-        // @formatter:off
-        for (int z = 0; z < 16; z++) {
-            https://www.ibm.com/developerworks/library/j-perry-writing-good-java-code/index.html
-            for (int x = 0; x < 16; x++) {
-                for (int y = 255; y >= 0; y--) {
+    /**
+     * Packs a chunk the straightforward way, looking up and classifying every block on its own, as it was done before
+     * palette entries were classified once per section. {@link #pack} has to come up with exactly the same thing, so
+     * this is only kept around to test and benchmark it against.
+     */
+    static CachedChunk packPerBlock(Chunk chunk, IBlockAccess neighbors, TrackedBlocks tracked, long cacheTimestamp) {
+        BitSet data = new BitSet(CachedChunk.SIZE);
+        IBlockState[] overview = new IBlockState[256];
+        Arrays.fill(overview, Blocks.AIR.getDefaultState());
+        int[] heightMap = new int[256];
+        Map<String, IntArrayList> specialBlocks = new HashMap<>();
+        for (int y = 0; y < 256; y++) {
+            for (int z = 0; z < 16; z++) {
+                for (int x = 0; x < 16; x++) {
+                    IBlockState state = chunk.getBlockState(x, y, z);
+                    int bits = layout(getPathingBlockType(state, chunk, neighbors, x, y, z));
                     int index = CachedChunk.getPositionIndex(x, y, z);
-                    if (bitSet.get(index) || bitSet.get(index + 1)) {
-                        blocks[z << 4 | x] = chunk.getBlockState(x, y, z);
-                        continue https;
+                    data.set(index, (bits & 1) != 0);
+                    data.set(index + 1, (bits & 2) != 0);
+                    if (bits != 0) {
+                        // going up, so the last one is the surface
+                        overview[z << 4 | x] = state;
+                        heightMap[z << 4 | x] = y;
+                    }
+                    if (tracked.contains(state.getBlock())) {
+                        String name = BlockUtils.blockToString(state.getBlock());
+                        specialBlocks.computeIfAbsent(name, b -> new IntArrayList()).add(TrackedPositions.pack(x, y, z));
                     }
                 }
-                blocks[z << 4 | x] = Blocks.AIR.getDefaultState();
             }
         }
-        // @formatter:on
-        return new CachedChunk(chunk.x, chunk.z, bitSet, blocks, specialBlocks, System.currentTimeMillis());
+        Map<String, TrackedPositions> trackedBlocks = new HashMap<>();
+        specialBlocks.forEach((name, positions) -> trackedBlocks.put(name, TrackedPositions.of(positions.elements(), positions.size())));
+        return new CachedChunk(chunk.x, chunk.z, data, overview, heightMap, trackedBlocks, cacheTimestamp, tracked.fingerprint);
+    }
+
+    /**
+     * Packs one 16x16x16 section by classifying each palette entry, and then going through just the blocks that
+     * aren't plain air, which {@link SectionDecoder} finds a word at a time. Only palette entries that are flagged
+     * {@link #POSITIONAL} look at the blocks around them.
+     * <p>
+     * The index of a block in the storage is {@code y << 8 | z << 4 | x}, which happens to be the same order that
+     * {@link CachedChunk#getPositionIndex} uses, so the bit index of a block is just {@code (y0 << 12 | index) << 1}.
+     * Since the section is walked bottom to top, the last non air block seen in a column is its surface block, and
+     * its y is the height of that column.
+     */
+    private static void packSection(Chunk chunk, IBlockAccess neighbors, int y0, IBlockStateContainer bsc, TrackedBlocks tracked, long[] data, IBlockState[] overview, int[] heightMap, Map<String, IntArrayList> specialBlocks) {
+        BitArray storage = bsc.getStorage();
+        long[] words = storage.getBackingLongArray();
+        // a section's 4096 entries always take up exactly 64 longs per bit
+        int bitsPerEntry = words.length / (SectionDecoder.ENTRIES / 64);
+        int[] classes = new int[1 << bitsPerEntry];
+        int yReal = y0 << 4;
+
+        SectionDecoder decoder = SectionDecoder.get();
+        int count;
+        int[] indices;
+        int[] paletteIndices = null;
+        if (bitsPerEntry <= SectionDecoder.MAX_PALETTE_BITS) {
+            // classify the whole palette first, so that the plain air, by far the most common case, can be skipped a
+            // word at a time
+            boolean[] notAir = new boolean[classes.length];
+            int paletteSize = 0;
+            IBlockState paletteState;
+            while (paletteSize < classes.length && (paletteState = bsc.getAtPalette(paletteSize)) != null) {
+                classes[paletteSize] = classify(paletteState, tracked);
+                notAir[paletteSize] = classes[paletteSize] != CLASSIFIED;
+                paletteSize++;
+            }
+            count = decoder.find(words, bitsPerEntry, notAir, paletteSize);
+            indices = decoder.hits();
+        } else {
+            // the palette is every block state there is, classify just the ones that are here as they come up
+            count = SectionDecoder.ENTRIES;
+            indices = null;
+            paletteIndices = decoder.decode(words, bitsPerEntry);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int index = indices == null ? i : indices[i];
+            int paletteIndex = indices == null ? paletteIndices[index] : SectionDecoder.entry(words, bitsPerEntry, index);
+
+            int cls = classes[paletteIndex];
+            if (cls == 0) {
+                cls = classify(bsc.getAtPalette(paletteIndex), tracked);
+                classes[paletteIndex] = cls;
+            }
+            if (cls == CLASSIFIED) {
+                // air, and not special
+                continue;
+            }
+
+            int x = index & 15;
+            int z = (index >> 4) & 15;
+            int y = yReal | (index >> 8);
+            IBlockState state = null;
+            int bits = cls & TYPE_MASK;
+            if ((cls & POSITIONAL) != 0) {
+                state = bsc.getAtPalette(paletteIndex);
+                bits = layout(getPathingBlockType(state, chunk, neighbors, x, y, z));
+            }
+            if (bits != 0) {
+                int bitIndex = (y0 << 12 | index) << 1;
+                data[bitIndex >> 6] |= (long) bits << (bitIndex & 63);
+                if (state == null) {
+                    state = bsc.getAtPalette(paletteIndex);
+                }
+                overview[index & 255] = state;
+                heightMap[index & 255] = y;
+            }
+            if ((cls & SPECIAL) != 0) {
+                String name = BlockUtils.blockToString(bsc.getAtPalette(paletteIndex).getBlock());
+                specialBlocks.computeIfAbsent(name, b -> new IntArrayList()).add(TrackedPositions.pack(x, y, z));
+            }
+        }
+    }
+
+    /**
+     * Applies block changes to a chunk that's already cached, instead of packing the whole chunk again. The changed
+     * blocks are classified again along with the water next to them, since whether water is flowing depends on its
+     * neighbors, and the surface of each column they're in is found again. The cached chunk isn't modified, since
+     * it can be read from other threads at any time, so this returns a copy with the changes.
+     *
+     * @param cached    The chunk as it's cached now
+     * @param chunk     The chunk as it's loaded now, with the changes
+     * @param positions The positions of the changed blocks, packed as in {@link TrackedPositions#pack}
+     * @return The changed chunk, or null if the whole chunk has to be packed again instead
+     */
+    public static CachedChunk patch(CachedChunk cached, Chunk chunk, IntSet positions) {
+        TrackedBlocks tracked = TrackedBlocks.current();
+        if (cached.trackedSet != tracked.fingerprint || positions.size() > MAX_PATCH_SIZE) {
+            // every other block might have to be tracked or untracked as well, or it's just too many changes
+            return null;
+        }
+        IntSet affected = new IntOpenHashSet(positions);
+        for (IntIterator it = positions.iterator(); it.hasNext(); ) {
+            int packed = it.nextInt();
+            int x = TrackedPositions.unpackX(packed);
+            int y = TrackedPositions.unpackY(packed);
+            int z = TrackedPositions.unpackZ(packed);
+            if (x != 0) {
+                affected.add(TrackedPositions.pack(x - 1, y, z));
+            }
+            if (x != 15) {
+                affected.add(TrackedPositions.pack(x + 1, y, z));
+            }
+            if (z != 0) {
+                affected.add(TrackedPositions.pack(x, y, z - 1));
+            }
+            if (z != 15) {
+                affected.add(TrackedPositions.pack(x, y, z + 1));
+            }
+        }
+
+        BitSet data = cached.copyData();
+        Map<String, TrackedPositions> trackedBlocks = cached.getTrackedBlocks();
+        Map<String, IntSet> added = new HashMap<>();
+        Map<String, IntSet> removed = new HashMap<>();
+        boolean[] columns = new boolean[256];
+        for (IntIterator it = affected.iterator(); it.hasNext(); ) {
+            int packed = it.nextInt();
+            int x = TrackedPositions.unpackX(packed);
+            int y = TrackedPositions.unpackY(packed);
+            int z = TrackedPositions.unpackZ(packed);
+            IBlockState state = chunk.getBlockState(x, y, z);
+            int bits = layout(getPathingBlockType(state, chunk, chunk.getWorld(), x, y, z));
+            int bitIndex = CachedChunk.getPositionIndex(x, y, z);
+            data.set(bitIndex, (bits & 1) != 0);
+            data.set(bitIndex + 1, (bits & 2) != 0);
+            columns[z << 4 | x] = true;
+            if (!positions.contains(packed)) {
+                // a neighbor, whose block is still the same
+                continue;
+            }
+            String name = tracked.contains(state.getBlock()) ? BlockUtils.blockToString(state.getBlock()) : null;
+            for (Map.Entry<String, TrackedPositions> entry : trackedBlocks.entrySet()) {
+                if (!entry.getKey().equals(name) && entry.getValue().contains(packed)) {
+                    removed.computeIfAbsent(entry.getKey(), n -> new IntOpenHashSet()).add(packed);
+                }
+            }
+            if (name != null) {
+                added.computeIfAbsent(name, n -> new IntOpenHashSet()).add(packed);
+            }
+        }
+
+        IBlockState[] overview = cached.getOverview().clone();
+        int[] heightMap = cached.getHeightMap().clone();
+        for (int column = 0; column < 256; column++) {
+            if (!columns[column]) {
+                continue;
+            }
+            int x = column & 15;
+            int z = column >> 4;
+            heightMap[column] = 0;
+            overview[column] = Blocks.AIR.getDefaultState();
+            for (int y = 255; y >= 0; y--) {
+                int bitIndex = CachedChunk.getPositionIndex(x, y, z);
+                if (data.get(bitIndex) || data.get(bitIndex + 1)) {
+                    heightMap[column] = y;
+                    overview[column] = chunk.getBlockState(x, y, z);
+                    break;
+                }
+            }
+        }
+
+        Map<String, TrackedPositions> patchedTracked = new HashMap<>(trackedBlocks);
+        Set<String> changedNames = new HashSet<>(added.keySet());
+        changedNames.addAll(removed.keySet());
+        for (String name : changedNames) {
+            IntSet remove = removed.getOrDefault(name, IntSets.EMPTY_SET);
+            IntArrayList list = new IntArrayList();
+            TrackedPositions previous = trackedBlocks.get(name);
+            if (previous != null) {
+                previous.forEach(packed -> {
+                    if (!remove.contains(packed)) {
+                        list.add(packed);
+                    }
+                });
+            }
+            list.addAll(added.getOrDefault(name, IntSets.EMPTY_SET));
+            if (list.isEmpty()) {
+                patchedTracked.remove(name);
+            } else {
+                patchedTracked.put(name, TrackedPositions.of(list.elements(), list.size()));
+            }
+        }
+        return new CachedChunk(cached.x, cached.z, data, overview, heightMap, patchedTracked, System.currentTimeMillis(), tracked.fingerprint);
     }
 
+    /**
+     * Classifies a palette entry for {@link #packSection}, independently of where it is in the world
+     */
+    private static int classify(IBlockState state, TrackedBlocks tracked) {
+        int cls = CLASSIFIED;
+        if (state == null) {
+            // BlockStateContainer treats unknown palette entries as air
+            return cls;
+        }
+        Block block = state.getBlock();
+        if (tracked.contains(block)) {
+            cls |= SPECIAL;
+        }
+        if ((block == Blocks.WATER || block == Blocks.FLOWING_WATER) && !MovementHelper.possiblyFlowing(state)) {
+            // still water is only usable if none of its neighbors are flowing, that can't be known from the palette alone
+            return cls | POSITIONAL;
+        }
+        return cls | layout(getPathingBlockType(state));
+    }
+
+    /**
+     * @return The bits of the given type in the order that they are laid out in the {@link BitSet}
+     */
+    private static int layout(PathingBlockType type) {
+        boolean[] bits = type.getBits();
+        return (bits[0] ? 1 : 0) | (bits[1] ? 2 : 0);
+    }
 
-    private static PathingBlockType getPathingBlockType(IBlockState state, Chunk chunk, int x, int y, int z) {
+    private static PathingBlockType getPathingBlockType(IBlockState state, Chunk chunk, IBlockAccess neighbors, int x, int y, int z) {
         Block block = state.getBlock();
         if (block == Blocks.WATER || block == Blocks.FLOWING_WATER) {
             // only water source blocks are plausibly usable, flowing water should be avoid
@@ -123,7 +407,7 @@ public final class ChunkPacker {
                 return PathingBlockType.AVOID;
             }
             if (x == 0 || x == 15 || z == 0 || z == 15) {
-                if (BlockLiquid.getSlopeAngle(chunk.getWorld(), new BlockPos(x + (chunk.x << 4), y, z + (chunk.z << 4)), state.getMaterial(), state) == -1000.0F) {
+                if (BlockLiquid.getSlopeAngle(neighbors, new BlockPos(x + (chunk.x << 4), y, z + (chunk.z << 4)), state.getMaterial(), state) == -1000.0F) {
                     return PathingBlockType.WATER;
                 }
                 return PathingBlockType.AVOID;
@@ -131,6 +415,11 @@ public final class ChunkPacker {
             return PathingBlockType.WATER;
         }
 
+        return getPathingBlockType(state);
+    }
+
+    private static PathingBlockType getPathingBlockType(IBlockState state) {
+        Block block = state.getBlock();
         if (MovementHelper.avoidWalkingInto(block) || MovementHelper.isBottomSlab(state)) {
             return PathingBlockType.AVOID;
         }
@@ -24,14 +24,15 @@ import baritone.api.utils.BlockOptionalMetaLookup;
 import baritone.api.utils.IPlayerContext;
 import baritone.utils.accessor.IBitArray;
 import baritone.utils.accessor.IBlockStateContainer;
-import io.netty.buffer.Unpooled;
+import baritone.utils.jfr.JfrEvents;
+import baritone.utils.jfr.WorldScanEvent;
+import baritone.utils.metrics.Histogram;
+import baritone.utils.metrics.Metrics;
 import it.unimi.dsi.fastutil.ints.IntArrayList;
 import it.unimi.dsi.fastutil.ints.IntList;
-import net.minecraft.block.Block;
-import net.minecraft.block.state.IBlockState;
-import net.minecraft.network.PacketBuffer;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
 import net.minecraft.util.BitArray;
-import net.minecraft.util.ObjectIntIdentityMap;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
 import net.minecraft.world.chunk.*;
@@ -41,27 +42,70 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.BiConsumer;
 import java.util.function.IntConsumer;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public enum FasterWorldScanner implements IWorldScanner {
     INSTANCE;
+
+    private static final Histogram SCAN_TIME = Metrics.latency("scanner.scan.time");
+
+    private static final int ALL_SECTIONS = 0xFFFF;
+
     @Override
     public List<BlockPos> scanChunkRadius(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius) {
+        LongList packed = new LongArrayList();
+        scanNearest(ctx, filter, max, yLevelThreshold, maxSearchRadius, packed);
+        return unpack(packed);
+    }
+
+    @Override
+    public int scanNearest(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius, LongList result) {
         assert ctx.world() != null;
         if (maxSearchRadius < 0) {
             throw new IllegalArgumentException("chunkRange must be >= 0");
         }
-        return scanChunksInternal(ctx, filter, getChunkRange(ctx.playerFeet().x >> 4, ctx.playerFeet().z >> 4, maxSearchRadius), max);
+        long start = System.nanoTime();
+        WorldScanEvent event = JfrEvents.beginWorldScan();
+        PaletteMatches matches = PaletteMatches.of(filter);
+        LoadedBlockIndex index = LoadedBlockIndex.of(ctx.world());
+        int playerSectionY = ctx.playerFeet().y >> 4;
+        int count = NearestScan.scan(ctx.world().getChunkProvider(), ctx.playerFeet(), (chunk, found) -> scanChunkInto(filter, matches, index, chunk, ALL_SECTIONS, playerSectionY, found), max, yLevelThreshold, maxSearchRadius, result);
+        JfrEvents.endWorldScan(event, this, maxSearchRadius, count);
+        SCAN_TIME.recordSince(start);
+        return count;
     }
 
     @Override
     public List<BlockPos> scanChunk(IPlayerContext ctx, BlockOptionalMetaLookup filter, ChunkPos pos, int max, int yLevelThreshold) {
-        Stream<BlockPos> stream = scanChunkInternal(ctx, filter, pos);
-        if (max >= 0) {
-            stream = stream.limit(max);
+        long start = System.nanoTime();
+        WorldScanEvent event = JfrEvents.beginWorldScan();
+        LongList packed = new LongArrayList();
+        IChunkProvider chunkProvider = ctx.world().getChunkProvider();
+        // if chunk is not loaded, there's nothing to find
+        if (chunkProvider.isChunkGeneratedAt(pos.x, pos.z)) {
+            scanChunkInto(filter, PaletteMatches.of(filter), LoadedBlockIndex.of(ctx.world()), chunkProvider.getLoadedChunk(pos.x, pos.z), ALL_SECTIONS, ctx.playerFeet().y >> 4, packed);
+        }
+        if (max >= 0 && packed.size() > max) {
+            packed.size(max);
+        }
+        List<BlockPos> result = unpack(packed);
+        JfrEvents.endWorldScan(event, this, 0, result.size());
+        SCAN_TIME.recordSince(start);
+        return result;
+    }
+
+    @Override
+    public List<BlockPos> scanChunkSections(IPlayerContext ctx, BlockOptionalMetaLookup filter, ChunkPos pos, int sections) {
+        long start = System.nanoTime();
+        WorldScanEvent event = JfrEvents.beginWorldScan();
+        LongList packed = new LongArrayList();
+        IChunkProvider chunkProvider = ctx.world().getChunkProvider();
+        if (chunkProvider.isChunkGeneratedAt(pos.x, pos.z)) {
+            scanChunkInto(filter, PaletteMatches.of(filter), LoadedBlockIndex.of(ctx.world()), chunkProvider.getLoadedChunk(pos.x, pos.z), sections, ctx.playerFeet().y >> 4, packed);
         }
-        return stream.collect(Collectors.toList());
+        List<BlockPos> result = unpack(packed);
+        JfrEvents.endWorldScan(event, this, 0, result.size());
+        SCAN_TIME.recordSince(start);
+        return result;
     }
 
     @Override
@@ -125,59 +169,40 @@ public enum FasterWorldScanner implements IWorldScanner {
         return chunks;
     }
 
-    private List<BlockPos> scanChunksInternal(IPlayerContext ctx, BlockOptionalMetaLookup lookup, List<ChunkPos> chunkPositions, int maxBlocks) {
-        assert ctx.world() != null;
-        try {
-            // p -> scanChunkInternal(ctx, lookup, p)
-            Stream<BlockPos> posStream = chunkPositions.parallelStream().flatMap(p -> scanChunkInternal(ctx, lookup, p));
-            if (maxBlocks >= 0) {
-                // WARNING: this can be expensive if maxBlocks is large...
-                // see limit's javadoc
-                posStream = posStream.limit(maxBlocks);
-            }
-            return posStream.collect(Collectors.toList());
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw e;
+    static List<BlockPos> unpack(LongList packed) {
+        List<BlockPos> result = new ArrayList<>(packed.size());
+        for (int i = 0; i < packed.size(); i++) {
+            result.add(BlockPos.fromLong(packed.getLong(i)));
         }
+        return result;
     }
 
-    private Stream<BlockPos> scanChunkInternal(IPlayerContext ctx, BlockOptionalMetaLookup lookup, ChunkPos pos) {
-        IChunkProvider chunkProvider = ctx.world().getChunkProvider();
-        // if chunk is not loaded, return empty stream
-        if (!chunkProvider.isChunkGeneratedAt(pos.x, pos.z)) {
-            return Stream.empty();
+    /**
+     * Goes through the given sections of a chunk outwards from the one the player is in
+     */
+    private void scanChunkInto(BlockOptionalMetaLookup lookup, PaletteMatches matches, LoadedBlockIndex index, Chunk chunk, int sections, int playerSection, LongList result) {
+        // sections without anything in the filter aren't looked at
+        int candidates = index.sectionsMatching(chunk, matches.signature) & sections;
+        if (candidates == 0) {
+            return;
         }
-
-        long chunkX = (long) pos.x << 4;
-        long chunkZ = (long) pos.z << 4;
-
-        int playerSectionY = ctx.playerFeet().y >> 4;
-
-        return collectChunkSections(lookup, chunkProvider.getLoadedChunk(pos.x, pos.z), chunkX, chunkZ, playerSectionY).stream();
-    }
-
-
-
-    private List<BlockPos> collectChunkSections(BlockOptionalMetaLookup lookup, Chunk chunk, long chunkX, long chunkZ, int playerSection) {
-        // iterate over sections relative to player
-        List<BlockPos> blocks = new ArrayList<>();
+        int chunkX = chunk.x << 4;
+        int chunkZ = chunk.z << 4;
         ExtendedBlockStorage[] sections = chunk.getBlockStorageArray();
         int l = sections.length;
         int i = playerSection - 1;
         int j = playerSection;
         for (; i >= 0 || j < l; ++j, --i) {
-            if (j < l) {
-                visitSection(lookup, sections[j], blocks, chunkX, chunkZ);
+            if (j >= 0 && j < l && (candidates & (1 << j)) != 0) {
+                visitSection(lookup, matches, sections[j], result, chunkX, chunkZ);
             }
-            if (i >= 0) {
-                visitSection(lookup, sections[i], blocks, chunkX, chunkZ);
+            if (i >= 0 && i < l && (candidates & (1 << i)) != 0) {
+                visitSection(lookup, matches, sections[i], result, chunkX, chunkZ);
             }
         }
-        return blocks;
     }
 
-    private void visitSection(BlockOptionalMetaLookup lookup, ExtendedBlockStorage section, List<BlockPos> blocks, long chunkX, long chunkZ) {
+    private void visitSection(BlockOptionalMetaLookup lookup, PaletteMatches matches, ExtendedBlockStorage section, LongList blocks, int chunkX, int chunkZ) {
         if (section == null || section.isEmpty()) {
             return;
         }
@@ -188,89 +213,26 @@ public enum FasterWorldScanner implements IWorldScanner {
             return;
         }
 
-        boolean[] isInFilter = getIncludedFilterIndices(lookup, ((IBlockStateContainer) sectionContainer).getPalette());
-        if (isInFilter.length == 0) {
+        PaletteMatches.Mask mask = matches.get((IBlockStateContainer) sectionContainer, lookup);
+        if (!mask.any) {
             return;
         }
 
         BitArray array = ((IBlockStateContainer) section.getData()).getStorage();
-        long[] longArray = array.getBackingLongArray();
-        int arraySize = array.size();
         int bitsPerEntry = ((IBitArray) array).getBitsPerEntry();
-        long maxEntryValue = ((IBitArray) array).getMaxEntryValue();
-
+        SectionDecoder decoder = SectionDecoder.get();
+        int count = decoder.find(array.getBackingLongArray(), bitsPerEntry, mask.matches, mask.size);
+        int[] hits = decoder.hits();
 
         int yOffset = section.getYLocation();
 
-        for (int idx = 0, kl = bitsPerEntry - 1; idx < arraySize; idx++, kl += bitsPerEntry) {
-            final int i = idx * bitsPerEntry;
-            final int j = i >> 6;
-            final int l = i & 63;
-            final int k = kl >> 6;
-            final long jl = longArray[j] >>> l;
-
-            if (j == k) {
-                if (isInFilter[(int) (jl & maxEntryValue)]) {
-                    //noinspection DuplicateExpressions
-                    blocks.add(new BlockPos(
-                        chunkX + ((idx & 255) & 15),
-                        yOffset + (idx >> 8),
-                        chunkZ + ((idx & 255) >> 4)
-                    ));
-                }
-            } else {
-                if (isInFilter[(int) ((jl | longArray[k] << (64 - l)) & maxEntryValue)]) {
-                    //noinspection DuplicateExpressions
-                    blocks.add(new BlockPos(
-                        chunkX + ((idx & 255) & 15),
-                        yOffset + (idx >> 8),
-                        chunkZ + ((idx & 255) >> 4)
-                    ));
-                }
-            }
-        }
-    }
-
-    private boolean[] getIncludedFilterIndices(BlockOptionalMetaLookup lookup, IBlockStatePalette palette) {
-        boolean commonBlockFound = false;
-        ObjectIntIdentityMap<IBlockState> paletteMap = getPalette(palette);
-        int size = paletteMap.size();
-
-        boolean[] isInFilter = new boolean[size];
-
-        for (int i = 0; i < size; i++) {
-            IBlockState state = paletteMap.getByValue(i);
-            if (lookup.has(state)) {
-                isInFilter[i] = true;
-                commonBlockFound = true;
-            } else {
-                isInFilter[i] = false;
-            }
-        }
-
-        if (!commonBlockFound) {
-            return new boolean[0];
-        }
-        return isInFilter;
-    }
-
-    /**
-     * cheats to get the actual map of id -> blockstate from the various palette implementations
-     */
-    private static ObjectIntIdentityMap<IBlockState> getPalette(IBlockStatePalette palette) {
-        if (palette instanceof BlockStatePaletteRegistry) {
-            return Block.BLOCK_STATE_IDS;
-        } else {
-            PacketBuffer buf = new PacketBuffer(Unpooled.buffer());
-            palette.write(buf);
-            int size = buf.readVarInt();
-            ObjectIntIdentityMap<IBlockState> states = new ObjectIntIdentityMap<>();
-            for (int i = 0; i < size; i++) {
-                IBlockState state = Block.BLOCK_STATE_IDS.getByValue(buf.readVarInt());
-                assert state != null;
-                states.put(state, i);
-            }
-            return states;
+        for (int i = 0; i < count; i++) {
+            int idx = hits[i];
+            blocks.add(BetterBlockPos.toLong(
+                chunkX + (idx & 15),
+                yOffset + (idx >> 8),
+                chunkZ + ((idx >> 4) & 15)
+            ));
         }
     }
 }
@@ -0,0 +1,126 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.cache;
+
+import baritone.api.cache.IWorldScanner;
+import baritone.api.utils.BetterBlockPos;
+import baritone.api.utils.BlockOptionalMetaLookup;
+import baritone.api.utils.IPlayerContext;
+import baritone.utils.jfr.JfrEvents;
+import baritone.utils.jfr.WorldScanEvent;
+import baritone.utils.metrics.Histogram;
+import baritone.utils.metrics.Metrics;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.Chunk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Answers searches of the loaded chunks from the {@link LoadedBlockIndex} of the world, nearest blocks first, rather
+ * than decoding every section of every chunk for each one.
+ */
+public enum IndexedWorldScanner implements IWorldScanner {
+    INSTANCE;
+
+    private static final Histogram SCAN_TIME = Metrics.latency("scanner.scan.time");
+
+    @Override
+    public List<BlockPos> scanChunkRadius(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius) {
+        LongList packed = new LongArrayList();
+        scanNearest(ctx, filter, max, yLevelThreshold, maxSearchRadius, packed);
+        return FasterWorldScanner.unpack(packed);
+    }
+
+    @Override
+    public int scanNearest(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius, LongList result) {
+        if (maxSearchRadius < 0) {
+            throw new IllegalArgumentException("chunkRange must be >= 0");
+        }
+        if (filter.blocks().isEmpty()) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        WorldScanEvent event = JfrEvents.beginWorldScan();
+        LoadedBlockIndex index = LoadedBlockIndex.of(ctx.world());
+        LoadedBlockIndex.Matcher matcher = new LoadedBlockIndex.Matcher(filter);
+        int count = NearestScan.scan(ctx.world().getChunkProvider(), ctx.playerFeet(), (chunk, found) -> index.find(chunk, matcher, found), max, yLevelThreshold, maxSearchRadius, result);
+        JfrEvents.endWorldScan(event, this, maxSearchRadius, count);
+        SCAN_TIME.recordSince(start);
+        return count;
+    }
+
+    @Override
+    public List<BlockPos> scanChunk(IPlayerContext ctx, BlockOptionalMetaLookup filter, ChunkPos pos, int max, int yLevelThreshold) {
+        if (filter.blocks().isEmpty()) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        WorldScanEvent event = JfrEvents.beginWorldScan();
+        List<BlockPos> result = new ArrayList<>();
+        Chunk chunk = ctx.world().getChunkProvider().getLoadedChunk(pos.x, pos.z);
+        if (chunk != null && !chunk.isEmpty()) {
+            LongList packed = new LongArrayList();
+            LoadedBlockIndex.of(ctx.world()).find(chunk, new LoadedBlockIndex.Matcher(filter), packed);
+            result = FasterWorldScanner.unpack(packed);
+            BetterBlockPos feet = ctx.playerFeet();
+            result.sort(Comparator.comparingDouble(feet::distanceSq));
+            if (max >= 0 && result.size() > max) {
+                result = new ArrayList<>(result.subList(0, max));
+            }
+        }
+        JfrEvents.endWorldScan(event, this, 0, result.size());
+        SCAN_TIME.recordSince(start);
+        return result;
+    }
+
+    @Override
+    public List<BlockPos> scanChunkSections(IPlayerContext ctx, BlockOptionalMetaLookup filter, ChunkPos pos, int sections) {
+        if (filter.blocks().isEmpty()) {
+            return Collections.emptyList();
+        }
+        long start = System.nanoTime();
+        WorldScanEvent event = JfrEvents.beginWorldScan();
+        List<BlockPos> result = Collections.emptyList();
+        Chunk chunk = ctx.world().getChunkProvider().getLoadedChunk(pos.x, pos.z);
+        if (chunk != null && !chunk.isEmpty()) {
+            LongList packed = new LongArrayList();
+            LoadedBlockIndex.of(ctx.world()).find(chunk, new LoadedBlockIndex.Matcher(filter), sections, packed);
+            result = FasterWorldScanner.unpack(packed);
+        }
+        JfrEvents.endWorldScan(event, this, 0, result.size());
+        SCAN_TIME.recordSince(start);
+        return result;
+    }
+
+    @Override
+    public int repack(IPlayerContext ctx) {
+        return FasterWorldScanner.INSTANCE.repack(ctx);
+    }
+
+    @Override
+    public int repack(IPlayerContext ctx, int range) {
+        return FasterWorldScanner.INSTANCE.repack(ctx, range);
+    }
+}
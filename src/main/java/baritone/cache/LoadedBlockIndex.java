@@ -0,0 +1,439 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.cache;
+
+import baritone.Baritone;
+import baritone.api.utils.BetterBlockPos;
+import baritone.api.utils.BlockOptionalMetaLookup;
+import baritone.utils.accessor.IBitArray;
+import baritone.utils.accessor.IBlockStateContainer;
+import it.unimi.dsi.fastutil.ints.Int2ObjectMap;
+import it.unimi.dsi.fastutil.ints.Int2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Where each block state is in the loaded chunks of one world, so that searching them for a few kinds of blocks
+ * doesn't have to decode every section of every chunk again.
+ * <p>
+ * Every section keeps the positions of each state that it has at most {@link #SPARSE_LIMIT} of, which covers ores and
+ * most other things worth searching for. States there are more of, like stone or air, are only recorded as being in
+ * the section, and searching for one of those decodes that section from the chunk. Chunks are indexed in the background
+ * as they load, or by whichever search needs them first, and sections that blocks changed in are indexed again the
+ * next time a search looks at them.
+ * <p>
+ * Each loaded chunk also has a {@link SectionSignature} of every section, worked out from the palettes as it loads and
+ * added to as blocks change, which every scanner checks to pass over sections without what it's looking for. Those are
+ * kept whether or not {@link baritone.api.Settings#loadedBlockIndex} is on, it only decides whether chunks are indexed
+ * as they load.
+ */
+public final class LoadedBlockIndex {
+
+    /**
+     * Past this many of one state in a section, its positions aren't kept
+     */
+    static final int SPARSE_LIMIT = 64;
+
+    private static final int ALL_SECTIONS = 0xFFFF;
+
+    private static final Map<World, LoadedBlockIndex> INDICES = new WeakHashMap<>();
+
+    /**
+     * Guarded by itself
+     */
+    private final Long2ObjectMap<ChunkIndex> chunks = new Long2ObjectOpenHashMap<>();
+
+    private LoadedBlockIndex() {}
+
+    public static LoadedBlockIndex of(World world) {
+        synchronized (INDICES) {
+            return INDICES.computeIfAbsent(world, w -> new LoadedBlockIndex());
+        }
+    }
+
+    /**
+     * Called when the server sends all or part of a chunk, indexes it again in the background
+     */
+    public void onChunkLoaded(Chunk chunk) {
+        long key = ChunkPos.asLong(chunk.x, chunk.z);
+        ChunkIndex index;
+        synchronized (chunks) {
+            index = chunks.get(key);
+            if (index == null || !index.isOf(chunk)) {
+                index = new ChunkIndex(chunk);
+                chunks.put(key, index);
+            } else {
+                index.markDirty(ALL_SECTIONS);
+            }
+        }
+        index.summarize(chunk);
+        if (Baritone.settings().loadedBlockIndex.value) {
+            ChunkIndex toIndex = index;
+            Baritone.getExecutor().execute(() -> toIndex.refresh(chunk));
+        }
+    }
+
+    public void onChunkUnloaded(int chunkX, int chunkZ) {
+        synchronized (chunks) {
+            chunks.remove(ChunkPos.asLong(chunkX, chunkZ));
+        }
+    }
+
+    /**
+     * Called after blocks change in a chunk, the sections that they're in are indexed again when next searched
+     *
+     * @param states The new state of the block at each position
+     */
+    public void onBlocksChanged(int chunkX, int chunkZ, List<BlockPos> positions, List<IBlockState> states) {
+        ChunkIndex index;
+        synchronized (chunks) {
+            index = chunks.get(ChunkPos.asLong(chunkX, chunkZ));
+        }
+        if (index == null) {
+            return;
+        }
+        int sections = 0;
+        for (int i = 0; i < positions.size(); i++) {
+            int y = positions.get(i).getY();
+            if (y >= 0 && y < 256) {
+                sections |= 1 << (y >> 4);
+                index.addToSignature(y >> 4, SectionSignature.of(states.get(i)));
+            }
+        }
+        index.markDirty(sections);
+    }
+
+    /**
+     * @param signature The {@link SectionSignature} of what's being searched for
+     * @return A bit for each section of the chunk that could have any of it, every section if the chunk hasn't been seen
+     */
+    int sectionsMatching(Chunk chunk, long signature) {
+        ChunkIndex index;
+        synchronized (chunks) {
+            index = chunks.get(ChunkPos.asLong(chunk.x, chunk.z));
+        }
+        if (index == null || !index.isOf(chunk)) {
+            return ALL_SECTIONS;
+        }
+        return index.sectionsMatching(signature);
+    }
+
+    /**
+     * Adds the position of every block in a loaded chunk that matches the filter, packed as by
+     * {@link BetterBlockPos#toLong(int, int, int)}
+     */
+    public void find(Chunk chunk, Matcher matcher, LongList result) {
+        find(chunk, matcher, ALL_SECTIONS, result);
+    }
+
+    /**
+     * Same as {@link #find(Chunk, Matcher, LongList)}, but only in some of the sections, and only those are indexed
+     * again if they've changed
+     *
+     * @param sections Bit {@code n} for the section starting at y {@code n * 16}
+     */
+    public void find(Chunk chunk, Matcher matcher, int sections, LongList result) {
+        long key = ChunkPos.asLong(chunk.x, chunk.z);
+        ChunkIndex index;
+        synchronized (chunks) {
+            index = chunks.get(key);
+            if (index == null || !index.isOf(chunk)) {
+                // missed the load, or it hasn't been seen yet
+                index = new ChunkIndex(chunk);
+                chunks.put(key, index);
+            }
+        }
+        index.find(chunk, matcher, sections, result);
+    }
+
+    /**
+     * A filter, along with its {@link SectionSignature}
+     */
+    public static final class Matcher {
+
+        private final BlockOptionalMetaLookup filter;
+
+        private final long signature;
+
+        public Matcher(BlockOptionalMetaLookup filter) {
+            this.filter = filter;
+            this.signature = PaletteMatches.of(filter).signature;
+        }
+
+        boolean matches(int stateId) {
+            return filter.has(stateId);
+        }
+    }
+
+    private static final class ChunkIndex {
+
+        /**
+         * Weak, so that the index of a world doesn't keep the world loaded through its chunks
+         */
+        private final WeakReference<Chunk> chunk;
+
+        private final SectionIndex[] sections = new SectionIndex[16];
+
+        /**
+         * The {@link SectionSignature} of each section, of anything until the chunk is summarized
+         */
+        private final AtomicLongArray signatures = new AtomicLongArray(16);
+
+        /**
+         * The sections that need to be indexed before they're searched
+         */
+        private int dirty = ALL_SECTIONS;
+
+        private ChunkIndex(Chunk chunk) {
+            this.chunk = new WeakReference<>(chunk);
+            for (int y0 = 0; y0 < 16; y0++) {
+                signatures.set(y0, SectionSignature.ANY);
+            }
+        }
+
+        private boolean isOf(Chunk chunk) {
+            return this.chunk.get() == chunk;
+        }
+
+        private synchronized void markDirty(int sections) {
+            dirty |= sections;
+        }
+
+        /**
+         * Not synchronized, this is on the main thread and shouldn't wait for the chunk to be indexed
+         */
+        private void summarize(Chunk chunk) {
+            ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+            for (int y0 = 0; y0 < 16; y0++) {
+                signatures.set(y0, SectionSignature.of(storage[y0]));
+            }
+        }
+
+        private void addToSignature(int y0, long signature) {
+            long current;
+            do {
+                current = signatures.get(y0);
+            } while ((current & signature) != signature && !signatures.compareAndSet(y0, current, current | signature));
+        }
+
+        private int sectionsMatching(long signature) {
+            int sections = 0;
+            for (int y0 = 0; y0 < 16; y0++) {
+                if ((signatures.get(y0) & signature) != 0) {
+                    sections |= 1 << y0;
+                }
+            }
+            return sections;
+        }
+
+        private void refresh(Chunk chunk) {
+            refresh(chunk, ALL_SECTIONS);
+        }
+
+        private synchronized void refresh(Chunk chunk, int wanted) {
+            int refresh = dirty & wanted;
+            if (refresh == 0) {
+                return;
+            }
+            ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+            for (int y0 = 0; y0 < 16; y0++) {
+                if ((refresh & (1 << y0)) != 0) {
+                    sections[y0] = SectionIndex.of(storage[y0]);
+                }
+            }
+            dirty &= ~refresh;
+        }
+
+        private synchronized void find(Chunk chunk, Matcher matcher, int wanted, LongList result) {
+            refresh(chunk, wanted);
+            ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+            for (int y0 = 0; y0 < 16; y0++) {
+                if ((wanted & (1 << y0)) != 0 && sections[y0] != null && (signatures.get(y0) & matcher.signature) != 0) {
+                    sections[y0].find(storage[y0], matcher, chunk.x << 4, y0 << 4, chunk.z << 4, result);
+                }
+            }
+        }
+    }
+
+    private static final class SectionIndex {
+
+        private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+        /**
+         * The index within the section, {@code y << 8 | z << 4 | x}, of every block of each sparse state
+         */
+        private final Int2ObjectMap<short[]> sparse;
+
+        /**
+         * The states that there were too many of to keep their positions
+         */
+        private final int[] dense;
+
+        private SectionIndex(Int2ObjectMap<short[]> sparse, int[] dense) {
+            this.sparse = sparse;
+            this.dense = dense;
+        }
+
+        private static SectionIndex of(ExtendedBlockStorage section) {
+            if (section == null || section.isEmpty()) {
+                return null;
+            }
+            IBlockStateContainer bsc = (IBlockStateContainer) section.getData();
+            if (bsc.getStorage() == null) {
+                return null;
+            }
+            int bitsPerEntry = ((IBitArray) bsc.getStorage()).getBitsPerEntry();
+            int[] paletteIndices = SectionDecoder.get().decode(bsc.getStorage().getBackingLongArray(), bitsPerEntry);
+            Scratch scratch = SCRATCH.get();
+            scratch.ensureCapacity(1 << bitsPerEntry);
+            int[] counts = scratch.counts;
+            short[][] positions = scratch.positions;
+            int[] seen = scratch.seen;
+            int numSeen = 0;
+            for (int paletteIndex : paletteIndices) {
+                if (counts[paletteIndex]++ == 0) {
+                    seen[numSeen++] = paletteIndex;
+                }
+            }
+            try {
+                int[] dense = new int[numSeen];
+                int numDense = 0;
+                Int2ObjectMap<short[]> sparse = new Int2ObjectOpenHashMap<>(numSeen);
+                for (int s = 0; s < numSeen; s++) {
+                    int i = seen[s];
+                    int stateId = Block.BLOCK_STATE_IDS.get(bsc.getAtPalette(i));
+                    if (counts[i] > SPARSE_LIMIT) {
+                        dense[numDense++] = stateId;
+                    } else {
+                        positions[i] = new short[counts[i]];
+                        sparse.put(stateId, positions[i]);
+                        counts[i] = 0; // reused as how many positions have been filled in
+                    }
+                }
+                for (int index = 0; index < paletteIndices.length; index++) {
+                    short[] list = positions[paletteIndices[index]];
+                    if (list != null) {
+                        list[counts[paletteIndices[index]]++] = (short) index;
+                    }
+                }
+                return new SectionIndex(sparse, Arrays.copyOf(dense, numDense));
+            } finally {
+                // only what this section used has to be cleared for the next one
+                for (int s = 0; s < numSeen; s++) {
+                    counts[seen[s]] = 0;
+                    positions[seen[s]] = null;
+                }
+            }
+        }
+
+        private void find(ExtendedBlockStorage section, Matcher matcher, int x, int y, int z, LongList result) {
+            for (Int2ObjectMap.Entry<short[]> entry : sparse.int2ObjectEntrySet()) {
+                if (matcher.matches(entry.getIntKey())) {
+                    for (short index : entry.getValue()) {
+                        result.add(BetterBlockPos.toLong(x | (index & 15), y | (index >> 8), z | ((index >> 4) & 15)));
+                    }
+                }
+            }
+            boolean anyDense = false;
+            for (int stateId : dense) {
+                anyDense |= matcher.matches(stateId);
+            }
+            if (!anyDense || section == null || section.isEmpty()) {
+                return;
+            }
+            // too many of them to have kept track of, so go through the section the slow way
+            IBlockStateContainer bsc = (IBlockStateContainer) section.getData();
+            if (bsc.getStorage() == null) {
+                return;
+            }
+            int bitsPerEntry = ((IBitArray) bsc.getStorage()).getBitsPerEntry();
+            Scratch scratch = SCRATCH.get();
+            int paletteSize;
+            if (bitsPerEntry > SectionDecoder.MAX_PALETTE_BITS) {
+                // the global palette, where the index of a state is its id, so just the dense states are marked
+                paletteSize = 0;
+                for (int stateId : dense) {
+                    if (matcher.matches(stateId)) {
+                        paletteSize = Math.max(paletteSize, stateId + 1);
+                    }
+                }
+                scratch.ensureCapacity(paletteSize);
+                for (int stateId : dense) {
+                    if (matcher.matches(stateId)) {
+                        scratch.matches[stateId] = true;
+                    }
+                }
+            } else {
+                paletteSize = 1 << bitsPerEntry;
+                scratch.ensureCapacity(paletteSize);
+                for (int i = 0; i < paletteSize; i++) {
+                    IBlockState state = bsc.getAtPalette(i);
+                    if (state != null) {
+                        int stateId = Block.BLOCK_STATE_IDS.get(state);
+                        // the sparse ones were already added above
+                        scratch.matches[i] = !sparse.containsKey(stateId) && matcher.matches(stateId);
+                    }
+                }
+            }
+            SectionDecoder decoder = SectionDecoder.get();
+            int count = decoder.find(bsc.getStorage().getBackingLongArray(), bitsPerEntry, scratch.matches, paletteSize);
+            Arrays.fill(scratch.matches, 0, paletteSize, false);
+            int[] hits = decoder.hits();
+            for (int i = 0; i < count; i++) {
+                int index = hits[i];
+                result.add(BetterBlockPos.toLong(x | (index & 15), y | (index >> 8), z | ((index >> 4) & 15)));
+            }
+        }
+
+        /**
+         * Buffers reused by every section indexed or searched on one thread, as big as the biggest palette seen so
+         * far. Only the entries that a section used are set, and they're cleared again before it's done.
+         */
+        private static final class Scratch {
+
+            private final int[] seen = new int[SectionDecoder.ENTRIES];
+            private int[] counts = new int[0];
+            private short[][] positions = new short[0][];
+            private boolean[] matches = new boolean[0];
+
+            private void ensureCapacity(int paletteSize) {
+                if (counts.length < paletteSize) {
+                    counts = new int[paletteSize];
+                    positions = new short[paletteSize][];
+                    matches = new boolean[paletteSize];
+                }
+            }
+        }
+    }
+}
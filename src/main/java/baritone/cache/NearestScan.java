@@ -0,0 +1,189 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.cache;
+
+import baritone.Baritone;
+import baritone.api.utils.BetterBlockPos;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrays;
+import it.unimi.dsi.fastutil.longs.LongComparator;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.IChunkProvider;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Scans loaded chunks for blocks nearest first, a ring of chunks at a time, stopping as soon as enough are found that
+ * nothing further out could be nearer than.
+ * <p>
+ * The ring after the one being gone through is scanned ahead on the executor, and this thread takes over any chunk of
+ * its own ring that nothing has started on yet, so it never sits waiting on a queue. Positions are kept packed as by
+ * {@link BetterBlockPos#toLong(int, int, int)} throughout.
+ */
+final class NearestScan {
+
+    private static final int LOOK_AHEAD_WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    /**
+     * Adds the packed position of every block in a chunk that's being looked for
+     */
+    @FunctionalInterface
+    interface ChunkScan {
+
+        void scan(Chunk chunk, LongList result);
+    }
+
+    private NearestScan() {}
+
+    /**
+     * @param center          What to find the nearest blocks to
+     * @param max             How many blocks to find, or negative to go through every chunk in range
+     * @param yLevelThreshold How far above or below the center a block can be to count towards max, or negative for any
+     * @param chunkRadius     How many rings of chunks to go out to, as in {@link FasterWorldScanner#getChunkRange}
+     * @return How many positions were added to the result
+     */
+    static int scan(IChunkProvider provider, BetterBlockPos center, ChunkScan scan, int max, int yLevelThreshold, int chunkRadius, LongList result) {
+        if (max == 0) {
+            return 0;
+        }
+        List<ChunkPos> chunks = FasterWorldScanner.getChunkRange(center.x >> 4, center.z >> 4, chunkRadius);
+        @SuppressWarnings("unchecked")
+        FutureTask<LongList>[] tasks = new FutureTask[chunks.size()];
+        for (int i = 0; i < tasks.length; i++) {
+            ChunkPos pos = chunks.get(i);
+            tasks[i] = new FutureTask<>(() -> {
+                LongList found = new LongArrayList();
+                Chunk chunk = provider.getLoadedChunk(pos.x, pos.z);
+                if (chunk != null && !chunk.isEmpty()) {
+                    scan.scan(chunk, found);
+                }
+                return found;
+            });
+        }
+        LongArrayList found = new LongArrayList();
+        ByDistance byDistance = new ByDistance(center);
+        try {
+            // ring r is the 8r chunks around the ones before it, which getChunkRange lists in order
+            for (int ring = 0; ; ring++) {
+                int from = ring == 0 ? 0 : (2 * ring - 1) * (2 * ring - 1);
+                if (from >= tasks.length) {
+                    break;
+                }
+                int to = Math.min((2 * ring + 1) * (2 * ring + 1), tasks.length);
+                lookAhead(tasks, to, Math.min((2 * ring + 3) * (2 * ring + 3), tasks.length));
+                for (int i = from; i < to; i++) {
+                    tasks[i].run(); // does nothing if a worker already has it
+                    found.addAll(get(tasks[i]));
+                }
+                // every chunk in the rings after this one is at least this far away along x or z
+                long nearestUnscanned = 16L * ring + 1;
+                if (max > 0 && confirmed(found, center, nearestUnscanned * nearestUnscanned, yLevelThreshold) >= max) {
+                    break;
+                }
+            }
+        } finally {
+            for (FutureTask<LongList> task : tasks) {
+                task.cancel(false);
+            }
+        }
+        LongArrays.quickSort(found.elements(), 0, found.size(), byDistance);
+        int count = max < 0 ? found.size() : Math.min(max, found.size());
+        for (int i = 0; i < count; i++) {
+            result.add(found.getLong(i));
+        }
+        return count;
+    }
+
+    private static void lookAhead(FutureTask<LongList>[] tasks, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        AtomicInteger next = new AtomicInteger(from);
+        for (int worker = 0; worker < Math.min(LOOK_AHEAD_WORKERS, to - from); worker++) {
+            Baritone.getExecutor().execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < to) {
+                    tasks[i].run(); // does nothing once cancelled
+                }
+            });
+        }
+    }
+
+    private static LongList get(FutureTask<LongList> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @return How many of the positions are nearer than anything that hasn't been scanned, and within the Y threshold
+     */
+    private static int confirmed(LongList found, BetterBlockPos center, long bound, int yLevelThreshold) {
+        int confirmed = 0;
+        for (int i = 0; i < found.size(); i++) {
+            long packed = found.getLong(i);
+            if (distanceSq(packed, center) < bound && (yLevelThreshold < 0 || Math.abs(BetterBlockPos.yFromLong(packed) - center.y) < yLevelThreshold)) {
+                confirmed++;
+            }
+        }
+        return confirmed;
+    }
+
+    private static long distanceSq(long packed, BetterBlockPos center) {
+        long dx = BetterBlockPos.xFromLong(packed) - center.x;
+        long dy = BetterBlockPos.yFromLong(packed) - center.y;
+        long dz = BetterBlockPos.zFromLong(packed) - center.z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Both compare methods, so that this works with fastutil before and after it gave the boxed one a default
+     */
+    private static final class ByDistance implements LongComparator {
+
+        private final BetterBlockPos center;
+
+        private ByDistance(BetterBlockPos center) {
+            this.center = center;
+        }
+
+        @Override
+        public int compare(long a, long b) {
+            return Long.compare(distanceSq(a, center), distanceSq(b, center));
+        }
+
+        @Override
+        public int compare(Long a, Long b) {
+            return compare(a.longValue(), b.longValue());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.cache;
+
+import baritone.api.utils.BlockOptionalMetaLookup;
+import baritone.utils.accessor.IBlockStateContainer;
+import baritone.utils.accessor.IBlockStatePaletteHashMap;
+import baritone.utils.accessor.IBlockStatePaletteLinear;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.world.chunk.BlockStatePaletteHashMap;
+import net.minecraft.world.chunk.BlockStatePaletteLinear;
+import net.minecraft.world.chunk.IBlockStatePalette;
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Which entries of the palettes of sections match one filter.
+ * <p>
+ * Working that out looks every state of a palette up in the filter, so it's remembered for each palette for as long as
+ * both are around. Palettes only ever grow, by adding states to the end, so a mask that's shorter than its palette is
+ * extended with just the new states. A section that outgrows its palette gets a new one, and with it a new mask.
+ */
+final class PaletteMatches {
+
+    private static final Map<BlockOptionalMetaLookup, PaletteMatches> CACHE = new WeakHashMap<>();
+
+    /**
+     * Guarded by itself
+     */
+    private final Map<IBlockStatePalette, Mask> masks = new WeakHashMap<>();
+
+    /**
+     * The mask for sections that use the global palette of every block state, where the index is the state id
+     */
+    private volatile Mask registry;
+
+    /**
+     * The {@link SectionSignature} of the states that the filter matches
+     */
+    final long signature;
+
+    private PaletteMatches(BlockOptionalMetaLookup filter) {
+        this.signature = SectionSignature.of(filter);
+    }
+
+    /**
+     * The masks of a filter are only kept while the filter is, and searching for the same blocks again with a new
+     * filter works them out again
+     */
+    static PaletteMatches of(BlockOptionalMetaLookup filter) {
+        synchronized (CACHE) {
+            return CACHE.computeIfAbsent(filter, PaletteMatches::new);
+        }
+    }
+
+    /**
+     * @param filter The filter these are the masks of, not kept here so that it can be garbage collected
+     */
+    Mask get(IBlockStateContainer bsc, BlockOptionalMetaLookup filter) {
+        IBlockStatePalette palette = bsc.getPalette();
+        int size = sizeOf(palette);
+        if (size < 0) {
+            Mask mask = registry;
+            if (mask == null) {
+                registry = mask = registryMask(filter);
+            }
+            return mask;
+        }
+        Mask mask;
+        synchronized (masks) {
+            mask = masks.get(palette);
+        }
+        if (mask != null && mask.size == size) {
+            return mask;
+        }
+        boolean[] matches = new boolean[size];
+        int from = 0;
+        boolean any = false;
+        if (mask != null && mask.size < size) {
+            System.arraycopy(mask.matches, 0, matches, 0, mask.size);
+            from = mask.size;
+            any = mask.any;
+        }
+        for (int i = from; i < size; i++) {
+            IBlockState state = palette.getBlockState(i);
+            matches[i] = state != null && filter.has(state);
+            any |= matches[i];
+        }
+        mask = new Mask(matches, size, any);
+        synchronized (masks) {
+            masks.put(palette, mask);
+        }
+        return mask;
+    }
+
+    /**
+     * @return How many states are in a palette, or -1 for the global palette
+     */
+    static int sizeOf(IBlockStatePalette palette) {
+        if (palette instanceof BlockStatePaletteLinear) {
+            return ((IBlockStatePaletteLinear) palette).getArraySize();
+        }
+        if (palette instanceof BlockStatePaletteHashMap) {
+            return ((IBlockStatePaletteHashMap) palette).getStatePaletteMap().size();
+        }
+        return -1;
+    }
+
+    private static Mask registryMask(BlockOptionalMetaLookup filter) {
+        int size = 0;
+        for (IBlockState state : Block.BLOCK_STATE_IDS) {
+            size = Math.max(size, Block.BLOCK_STATE_IDS.get(state) + 1);
+        }
+        boolean[] matches = new boolean[size];
+        boolean any = false;
+        for (int id = 0; id < size; id++) {
+            matches[id] = filter.has(id);
+            any |= matches[id];
+        }
+        return new Mask(matches, size, any);
+    }
+
+    static final class Mask {
+
+        /**
+         * Whether each palette index matches
+         */
+        final boolean[] matches;
+
+        /**
+         * How many states were in the palette, anything past that never shows up in the section
+         */
+        final int size;
+
+        /**
+         * Whether anything in the palette matches at all
+         */
+        final boolean any;
+
+        private Mask(boolean[] matches, int size, boolean any) {
+            this.matches = matches;
+            this.size = size;
+            this.any = any;
+        }
+    }
+}
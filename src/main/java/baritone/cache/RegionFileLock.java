@@ -0,0 +1,88 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A lock on one region file that holds across every game sharing a cache directory, taken on a {@code .lock} file
+ * next to it since the region file itself gets replaced on every save.
+ * <p>
+ * File locks belong to the whole process, so threads of this process are kept apart by one of a fixed set of
+ * in-process locks first.
+ * <p>
+ * {@link baritone.cache.tool.CacheTool} takes the same lock, so that it can be run on a cache that a game is using.
+ */
+public final class RegionFileLock implements AutoCloseable {
+
+    private static final ReentrantLock[] STRIPES = new ReentrantLock[64];
+
+    static {
+        for (int i = 0; i < STRIPES.length; i++) {
+            STRIPES[i] = new ReentrantLock();
+        }
+    }
+
+    private final ReentrantLock stripe;
+    private final FileChannel channel;
+    private final FileLock lock;
+
+    private RegionFileLock(ReentrantLock stripe, FileChannel channel, FileLock lock) {
+        this.stripe = stripe;
+        this.channel = channel;
+        this.lock = lock;
+    }
+
+    /**
+     * Waits for the lock on a region file
+     *
+     * @param shared Whether other games can hold the lock at the same time, for reading
+     */
+    public static RegionFileLock acquire(Path regionFile, boolean shared) throws IOException {
+        Path lockFile = regionFile.resolveSibling(regionFile.getFileName() + ".lock");
+        ReentrantLock stripe = STRIPES[(lockFile.hashCode() & Integer.MAX_VALUE) % STRIPES.length];
+        stripe.lock();
+        try {
+            FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            try {
+                return new RegionFileLock(stripe, channel, channel.lock(0, Long.MAX_VALUE, shared));
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        } catch (IOException | RuntimeException ex) {
+            stripe.unlock();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            lock.release();
+            channel.close();
+        } finally {
+            stripe.unlock();
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongSet;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Watches a cache directory for region files written by other games sharing it, and tells the {@link CachedWorld}
+ * about them. Files written by this game show up too, and are told about the same way; the world ignores the ones
+ * that are still as it wrote them.
+ * <p>
+ * Writing one file can fire several events, and another game saving often fires more, so the regions are collected
+ * until the directory has been quiet for a moment, and then each one is told about once.
+ */
+final class RegionFileWatcher {
+
+    private static final Pattern REGION_FILE = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.bcr");
+
+    /**
+     * How long the directory has to be quiet before the changed regions are told about
+     */
+    private static final long QUIET_MILLIS = 500;
+
+    /**
+     * The longest that a changed region waits to be told about, however busy the directory is
+     */
+    private static final long MAX_DELAY_MILLIS = 5000;
+
+    private final WatchService watchService;
+
+    private RegionFileWatcher(Path directory, CachedWorld world) throws IOException {
+        this.watchService = directory.getFileSystem().newWatchService();
+        // region files are moved into place, which shows up as created, but some file systems report it as modified
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        Thread thread = new Thread(() -> run(world), "Baritone region file watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return The watcher, or null if the file system can't watch the directory
+     */
+    static RegionFileWatcher start(Path directory, CachedWorld world) {
+        try {
+            return new RegionFileWatcher(directory, world);
+        } catch (IOException | UnsupportedOperationException ex) {
+            System.out.println("Unable to watch " + directory + " for changes from other games sharing it");
+            ex.printStackTrace();
+            return null;
+        }
+    }
+
+    void stop() {
+        try {
+            watchService.close();
+        } catch (IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+
+    private void run(CachedWorld world) {
+        LongSet pending = new LongLinkedOpenHashSet(); // region x in the low bits, z in the high bits
+        long firstPending = 0;
+        try {
+            while (true) {
+                long now = System.currentTimeMillis();
+                WatchKey key = null;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else if (now - firstPending < MAX_DELAY_MILLIS) {
+                    key = watchService.poll(Math.min(QUIET_MILLIS, firstPending + MAX_DELAY_MILLIS - now), TimeUnit.MILLISECONDS);
+                }
+                if (key == null) {
+                    for (LongIterator it = pending.iterator(); it.hasNext(); ) {
+                        long region = it.nextLong();
+                        try {
+                            world.onRegionFileChanged((int) region, (int) (region >>> 32));
+                        } catch (Throwable th) {
+                            th.printStackTrace();
+                        }
+                    }
+                    pending.clear();
+                    continue;
+                }
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    Matcher matcher = REGION_FILE.matcher(event.context().toString());
+                    if (!matcher.matches()) {
+                        continue;
+                    }
+                    if (pending.isEmpty()) {
+                        firstPending = System.currentTimeMillis();
+                    }
+                    pending.add((long) Integer.parseInt(matcher.group(2)) << 32 | (Integer.parseInt(matcher.group(1)) & 0xffffffffL));
+                }
+                if (!key.reset()) {
+                    return; // the directory is gone
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException ignored) {
+            // stopped
+        }
+    }
+}
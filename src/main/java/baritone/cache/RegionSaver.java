@@ -0,0 +1,290 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.Baritone;
+import baritone.utils.metrics.Counter;
+import baritone.utils.metrics.Histogram;
+import baritone.utils.metrics.Metrics;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Writes the cached regions of one {@link CachedWorld} to disk, one at a time, on a thread of its own.
+ * <p>
+ * Regions that were pruned from RAM go first, since they take up memory outside of the budget until they're
+ * written, and after that the regions that have had unsaved changes for the longest. A region is only ever queued
+ * once, and callers asking for more than {@link #QUEUE_CAPACITY} regions to be saved wait for room, so a slow disk
+ * holds up whoever is producing the work instead of piling it up. Writes are spread out to stay under
+ * {@link baritone.api.Settings#cachedRegionSaveRateKB}, except while shutting down.
+ */
+final class RegionSaver {
+
+    /**
+     * How many regions can wait to be saved before {@link #saveAll} has to wait for room
+     */
+    static final int QUEUE_CAPACITY = 64;
+
+    private static final Counter REGIONS_SAVED = Metrics.counter("cache.region.saves", "regions");
+    private static final Counter BYTES_WRITTEN = Metrics.counter("cache.region.save.bytes", "bytes");
+    private static final Histogram SAVE_TIME = Metrics.latency("cache.region.save.time");
+
+    private static final Comparator<Job> PRIORITY = Comparator.<Job>comparingInt(job -> job.evicted ? 0 : 1).thenComparingLong(job -> job.dirtySince);
+
+    private final String directory;
+
+    /**
+     * Given the chunks that other games sharing the directory saved more recently, found while saving
+     */
+    private final Consumer<CachedChunk> onMerged;
+
+    /**
+     * Given every region once it's been written
+     */
+    private final Consumer<CachedRegion> onWritten;
+
+    private final Thread thread;
+
+    private final PriorityQueue<Job> queue = new PriorityQueue<>(PRIORITY);
+
+    /**
+     * The queued job of each region, so that it's only queued once
+     */
+    private final Map<CachedRegion, Job> queued = new HashMap<>();
+
+    /**
+     * The region being written right now, if any
+     */
+    private CachedRegion inFlight;
+
+    /**
+     * Set once the thread should finish what's queued without the rate limit, and then stop
+     */
+    private boolean stopping;
+
+    /**
+     * Set once the thread has stopped, after which regions are saved by whoever asks
+     */
+    private boolean stopped;
+
+    RegionSaver(String directory, Consumer<CachedChunk> onMerged, Consumer<CachedRegion> onWritten) {
+        this.directory = directory;
+        this.onMerged = onMerged;
+        this.onWritten = onWritten;
+        this.thread = new Thread(this::run, "Baritone region saver");
+        // the shutdown hook of the world is what makes sure that nothing is lost on exit
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a region that was just pruned from RAM, ahead of everything else. This never waits, since it's called
+     * while the world is locked.
+     *
+     * @param onSaved Run once the region has been written
+     */
+    void saveEvicted(CachedRegion region, Runnable onSaved) {
+        synchronized (this) {
+            if (!stopped) {
+                Job job = queued.get(region);
+                if (job == null || !job.evicted) {
+                    if (job != null) {
+                        queue.remove(job);
+                    }
+                    enqueue(new Job(region, true, region.dirtySince(), onSaved));
+                }
+                return;
+            }
+        }
+        write(region);
+        onSaved.run();
+    }
+
+    /**
+     * Saves every region that has unsaved changes, and waits until they're written
+     */
+    void saveAll(Collection<CachedRegion> regions) {
+        List<CachedRegion> dirty = new ArrayList<>();
+        for (CachedRegion region : regions) {
+            if (region.hasUnsavedChanges()) {
+                dirty.add(region);
+            }
+        }
+        if (dirty.isEmpty()) {
+            return;
+        }
+        dirty.sort(Comparator.comparingLong(CachedRegion::dirtySince));
+        try {
+            synchronized (this) {
+                for (CachedRegion region : dirty) {
+                    while (queue.size() >= QUEUE_CAPACITY && !stopped) {
+                        wait();
+                    }
+                    if (stopped) {
+                        break;
+                    }
+                    if (!queued.containsKey(region)) {
+                        enqueue(new Job(region, false, region.dirtySince(), null));
+                    }
+                }
+                while (!stopped && isPending(dirty)) {
+                    wait();
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        // whatever is left once the thread has stopped. a region that was already written has nothing left to save
+        for (CachedRegion region : dirty) {
+            write(region);
+        }
+    }
+
+    /**
+     * Writes everything that's queued without the rate limit, waits for it, and stops the thread. Regions passed in
+     * that still have unsaved changes are then written on the calling thread.
+     */
+    void shutdown(Collection<CachedRegion> regions) {
+        synchronized (this) {
+            stopping = true;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        saveAll(regions);
+    }
+
+    synchronized int getQueueLength() {
+        return queue.size();
+    }
+
+    private void enqueue(Job job) {
+        queue.add(job);
+        queued.put(job.region, job);
+        notifyAll();
+    }
+
+    private boolean isPending(List<CachedRegion> regions) {
+        for (CachedRegion region : regions) {
+            if (region == inFlight || queued.containsKey(region)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return How many bytes were written
+     */
+    private long write(CachedRegion region) {
+        long start = System.nanoTime();
+        long bytes = region.save(directory, onMerged);
+        if (bytes > 0) {
+            onWritten.accept(region);
+            REGIONS_SAVED.increment();
+            BYTES_WRITTEN.add(bytes);
+            SAVE_TIME.recordSince(start);
+        }
+        return bytes;
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Job job;
+                synchronized (this) {
+                    while (queue.isEmpty() && !stopping) {
+                        wait();
+                    }
+                    job = queue.poll();
+                    if (job == null) {
+                        return;
+                    }
+                    queued.remove(job.region);
+                    inFlight = job.region;
+                    notifyAll(); // there's room in the queue
+                }
+                long start = System.nanoTime();
+                long bytes = 0;
+                try {
+                    bytes = write(job.region);
+                    if (job.onSaved != null) {
+                        job.onSaved.run();
+                    }
+                } catch (Throwable th) {
+                    // one region that can't be saved shouldn't stop the others from being saved
+                    th.printStackTrace();
+                }
+                synchronized (this) {
+                    inFlight = null;
+                    notifyAll();
+                }
+                throttle(bytes, System.nanoTime() - start);
+            }
+        } catch (InterruptedException ex) {
+            ex.printStackTrace();
+        } finally {
+            synchronized (this) {
+                stopped = true;
+                inFlight = null;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Waits long enough after a write that the average rate stays under the limit, or until shutdown starts
+     */
+    private synchronized void throttle(long bytes, long elapsedNanos) throws InterruptedException {
+        long limit = Baritone.settings().cachedRegionSaveRateKB.value * 1024L;
+        if (limit <= 0 || bytes <= 0) {
+            return;
+        }
+        long deadline = System.nanoTime() + bytes * 1000000000L / limit - elapsedNanos;
+        long remaining;
+        while (!stopping && (remaining = deadline - System.nanoTime()) > 0) {
+            wait(Math.max(1, remaining / 1000000L));
+        }
+    }
+
+    private static final class Job {
+
+        private final CachedRegion region;
+
+        /**
+         * Whether the region was pruned from RAM, and is waiting for this to be dropped for good
+         */
+        private final boolean evicted;
+
+        private final long dirtySince;
+
+        private final Runnable onSaved;
+
+        private Job(CachedRegion region, boolean evicted, long dirtySince, Runnable onSaved) {
+            this.region = region;
+            this.evicted = evicted;
+            this.dirtySince = dirtySince;
+            this.onSaved = onSaved;
+        }
+    }
+}
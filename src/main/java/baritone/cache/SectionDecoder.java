@@ -0,0 +1,239 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.cache;
+
+/**
+ * Decodes the packed storage of 16x16x16 sections, the {@code long[]} behind a {@link net.minecraft.util.BitArray},
+ * into reusable buffers, so that going through a section allocates nothing.
+ * <p>
+ * Finding the entries whose palette index is in a set is done a word at a time when there are only a few indices in
+ * the set, or only a few outside of it: every entry that lies entirely within a word is compared against an index at
+ * once, by XORing the word with the index repeated in every entry and checking which entries came out zero. The odd
+ * entry that straddles two words is checked on its own.
+ * <p>
+ * Decoders aren't thread safe, {@link #get()} gives each thread its own.
+ */
+public final class SectionDecoder {
+
+    /**
+     * How many entries there are in a section
+     */
+    public static final int ENTRIES = 4096;
+
+    /**
+     * Sections with more bits per entry than this use the global palette of every block state, rather than one of
+     * their own
+     */
+    public static final int MAX_PALETTE_BITS = 8;
+
+    /**
+     * With more indices than this to compare against, checking the entries one at a time is quicker
+     */
+    private static final int MAX_WORD_PARALLEL = 4;
+
+    private static final int MAX_BITS = 32;
+
+    /**
+     * For entries of {@code bits} bits, the first of which starts {@code offset} bits into a word, {@code LOW[bits][offset]}
+     * has the lowest bit of every entry that lies entirely within the word set, and {@code HIGH[bits][offset]} the highest
+     */
+    private static final long[][] LOW = new long[MAX_BITS + 1][];
+    private static final long[][] HIGH = new long[MAX_BITS + 1][];
+
+    static {
+        for (int bits = 1; bits <= MAX_BITS; bits++) {
+            LOW[bits] = new long[bits];
+            HIGH[bits] = new long[bits];
+            for (int offset = 0; offset < bits; offset++) {
+                for (int start = offset; start + bits <= 64; start += bits) {
+                    LOW[bits][offset] |= 1L << start;
+                    HIGH[bits][offset] |= 1L << (start + bits - 1);
+                }
+            }
+        }
+    }
+
+    private static final ThreadLocal<SectionDecoder> DECODERS = ThreadLocal.withInitial(SectionDecoder::new);
+
+    private final int[] values = new int[ENTRIES];
+
+    private final int[] hits = new int[ENTRIES];
+
+    /**
+     * The indices being compared against, by {@link #find}
+     */
+    private final int[] compared = new int[MAX_WORD_PARALLEL];
+
+    private SectionDecoder() {}
+
+    public static SectionDecoder get() {
+        return DECODERS.get();
+    }
+
+    /**
+     * Decodes the palette index of every entry of a section
+     *
+     * @return The palette indices, in storage order, valid until this decoder is next used
+     */
+    public int[] decode(long[] words, int bitsPerEntry) {
+        long maxEntryValue = (1L << bitsPerEntry) - 1;
+        int word = 0;
+        int offset = 0;
+        long current = words[0];
+        for (int index = 0; index < ENTRIES; index++) {
+            int end = offset + bitsPerEntry;
+            if (end < 64) {
+                values[index] = (int) ((current >>> offset) & maxEntryValue);
+                offset = end;
+            } else if (end == 64) {
+                values[index] = (int) ((current >>> offset) & maxEntryValue);
+                offset = 0;
+                if (++word < words.length) {
+                    current = words[word];
+                }
+            } else {
+                // this entry straddles two longs
+                long next = words[++word];
+                values[index] = (int) (((current >>> offset) | (next << (64 - offset))) & maxEntryValue);
+                offset = end - 64;
+                current = next;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Decodes the palette index of a single entry
+     */
+    public static int entry(long[] words, int bitsPerEntry, int index) {
+        int bit = index * bitsPerEntry;
+        int word = bit >> 6;
+        int offset = bit & 63;
+        long value = words[word] >>> offset;
+        if (offset + bitsPerEntry > 64) {
+            value |= words[word + 1] << (64 - offset);
+        }
+        return (int) (value & ((1L << bitsPerEntry) - 1));
+    }
+
+    /**
+     * Finds every entry of a section whose palette index is set in {@code matches}. The indices of the entries found,
+     * {@code y << 8 | z << 4 | x}, go in ascending order at the start of {@link #hits()}.
+     *
+     * @param matches     Which palette indices to find, anything past the end of it isn't
+     * @param paletteSize How many palette indices are in use, entries with any other index are assumed not to be there
+     * @return How many entries were found
+     */
+    public int find(long[] words, int bitsPerEntry, boolean[] matches, int paletteSize) {
+        int limit = Math.min(paletteSize, matches.length);
+        int wanted = 0;
+        for (int i = 0; i < limit; i++) {
+            if (matches[i]) {
+                wanted++;
+            }
+        }
+        if (wanted == 0) {
+            return 0;
+        }
+        if (bitsPerEntry <= MAX_BITS) {
+            if (wanted <= MAX_WORD_PARALLEL) {
+                collect(matches, limit, true);
+                return findWordParallel(words, bitsPerEntry, matches, wanted, false);
+            }
+            if (paletteSize - wanted <= MAX_WORD_PARALLEL) {
+                collect(matches, paletteSize, false);
+                return findWordParallel(words, bitsPerEntry, matches, paletteSize - wanted, true);
+            }
+        }
+        return findEach(words, bitsPerEntry, matches);
+    }
+
+    /**
+     * @return The indices of the entries found by {@link #find}, valid until this decoder is next used
+     */
+    public int[] hits() {
+        return hits;
+    }
+
+    private void collect(boolean[] matches, int limit, boolean match) {
+        int count = 0;
+        for (int i = 0; i < limit; i++) {
+            if ((i < matches.length && matches[i]) == match) {
+                compared[count++] = i;
+            }
+        }
+    }
+
+    /**
+     * @param invert Whether {@link #compared} has the indices to leave out, rather than the ones to find
+     */
+    private int findWordParallel(long[] words, int bitsPerEntry, boolean[] matches, int numCompared, boolean invert) {
+        long maxEntryValue = (1L << bitsPerEntry) - 1;
+        long[] lows = LOW[bitsPerEntry];
+        long[] highs = HIGH[bitsPerEntry];
+        int found = 0;
+        for (int word = 0; word < words.length; word++) {
+            long bitStart = (long) word << 6;
+            // the first entry that starts within this word, and where it starts
+            int first = (int) ((bitStart + bitsPerEntry - 1) / bitsPerEntry);
+            int offset = (int) (first * (long) bitsPerEntry - bitStart);
+            long current = words[word];
+            int whole = 0;
+            if (offset < 64) {
+                long low = lows[offset];
+                long high = highs[offset];
+                long rest = high - low; // every bit of every entry but its highest
+                long equal = 0;
+                for (int i = 0; i < numCompared; i++) {
+                    long diff = current ^ (compared[i] * low);
+                    // the highest bit of an entry ends up set exactly when all of its bits in diff were clear
+                    equal |= ~(((diff & rest) + rest) | diff | rest) & high;
+                }
+                long hit = invert ? ~equal & high : equal;
+                while (hit != 0) {
+                    int top = Long.numberOfTrailingZeros(hit);
+                    hits[found++] = first + (top - offset - bitsPerEntry + 1) / bitsPerEntry;
+                    hit &= hit - 1;
+                }
+                whole = Long.bitCount(high);
+            }
+            int straddling = first + whole;
+            int start = offset + whole * bitsPerEntry;
+            if (start < 64 && straddling < ENTRIES) {
+                int value = (int) (((current >>> start) | (words[word + 1] << (64 - start))) & maxEntryValue);
+                if (value < matches.length && matches[value]) {
+                    hits[found++] = straddling;
+                }
+            }
+        }
+        return found;
+    }
+
+    private int findEach(long[] words, int bitsPerEntry, boolean[] matches) {
+        int[] decoded = decode(words, bitsPerEntry);
+        int found = 0;
+        for (int index = 0; index < ENTRIES; index++) {
+            int value = decoded[index];
+            if (value < matches.length && matches[value]) {
+                hits[found++] = index;
+            }
+        }
+        return found;
+    }
+}
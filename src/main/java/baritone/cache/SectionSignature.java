@@ -0,0 +1,92 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.cache;
+
+import baritone.api.utils.BlockOptionalMeta;
+import baritone.api.utils.BlockOptionalMetaLookup;
+import baritone.utils.accessor.IBlockStateContainer;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.world.chunk.IBlockStatePalette;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/**
+ * A 64 bit summary of which block states can be in a section, with each state setting one bit picked by hashing its id,
+ * so that a search can tell with one AND that a section has none of what it's looking for.
+ * <p>
+ * A state that's in the section always has its bit set. Bits of states that aren't there can be set too, by another
+ * state that hashes to the same bit, or by one that used to be there, so a match only means the section has to be
+ * looked through.
+ */
+final class SectionSignature {
+
+    /**
+     * The signature of a section that anything could be in
+     */
+    static final long ANY = -1L;
+
+    private SectionSignature() {}
+
+    static long of(int stateId) {
+        return 1L << ((stateId * 0x9E3779B97F4A7C15L) >>> 58);
+    }
+
+    static long of(IBlockState state) {
+        return of(Block.BLOCK_STATE_IDS.get(state));
+    }
+
+    /**
+     * From the palette of a section, which has every state in the section and maybe some that were replaced since
+     */
+    static long of(ExtendedBlockStorage section) {
+        if (section == null || section.isEmpty()) {
+            return 0;
+        }
+        IBlockStateContainer bsc = (IBlockStateContainer) section.getData();
+        if (bsc.getStorage() == null) {
+            return 0;
+        }
+        IBlockStatePalette palette = bsc.getPalette();
+        int size = PaletteMatches.sizeOf(palette);
+        if (size < 0) {
+            return ANY;
+        }
+        long signature = 0;
+        for (int i = 0; i < size; i++) {
+            IBlockState state = palette.getBlockState(i);
+            if (state != null) {
+                signature |= of(state);
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * Worked out once for each filter and kept with its {@link PaletteMatches}
+     */
+    static long of(BlockOptionalMetaLookup filter) {
+        long signature = 0;
+        for (BlockOptionalMeta bom : filter.blocks()) {
+            for (IBlockState state : bom.getAllBlockStates()) {
+                signature |= of(state);
+            }
+        }
+        return signature;
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.Baritone;
+import baritone.api.utils.BlockUtils;
+import baritone.cache.tool.BlockNameTable;
+import it.unimi.dsi.fastutil.objects.ReferenceOpenHashSet;
+import net.minecraft.block.Block;
+
+import java.util.*;
+
+/**
+ * The blocks whose locations are remembered in the cache: {@link CachedChunk#BLOCKS_TO_KEEP_TRACK_OF} plus
+ * {@link baritone.api.Settings#additionalTrackedBlocks}. Each distinct set has a fingerprint, which is saved along
+ * with every cached chunk so that chunks packed with a different set can be found and re-indexed.
+ */
+public final class TrackedBlocks {
+
+    /**
+     * The fingerprint of {@link CachedChunk#BLOCKS_TO_KEEP_TRACK_OF} on its own, which is what every chunk cached
+     * before the set was configurable was packed with
+     */
+    public static final long DEFAULT_FINGERPRINT = fingerprint(CachedChunk.BLOCKS_TO_KEEP_TRACK_OF);
+
+    private static volatile TrackedBlocks current = new TrackedBlocks(Collections.emptyList(), 0);
+
+    /**
+     * The setting value that this was built from, to notice when it's replaced or modified
+     */
+    private final List<Block> source;
+
+    private final int sourceHash;
+
+    private final Set<Block> blocks;
+
+    private final Set<String> names;
+
+    public final long fingerprint;
+
+    private TrackedBlocks(List<Block> source, int sourceHash) {
+        this.source = source;
+        this.sourceHash = sourceHash;
+        Set<Block> blocks = new ReferenceOpenHashSet<>(CachedChunk.BLOCKS_TO_KEEP_TRACK_OF);
+        blocks.addAll(source);
+        this.blocks = Collections.unmodifiableSet(blocks);
+        Set<String> names = new HashSet<>();
+        for (Block block : blocks) {
+            names.add(BlockUtils.blockToString(block));
+        }
+        this.names = Collections.unmodifiableSet(names);
+        this.fingerprint = fingerprint(blocks);
+    }
+
+    /**
+     * @return The tracked blocks according to the current value of the setting
+     */
+    public static TrackedBlocks current() {
+        TrackedBlocks tracked = current;
+        List<Block> additional = Baritone.settings().additionalTrackedBlocks.value;
+        int hash = additional.hashCode();
+        if (tracked.source != additional || tracked.sourceHash != hash) {
+            // the setting was replaced or modified in place
+            tracked = new TrackedBlocks(additional, hash);
+            current = tracked;
+        }
+        return tracked;
+    }
+
+    /**
+     * @param additional Blocks to track on top of {@link CachedChunk#BLOCKS_TO_KEEP_TRACK_OF}, as in the setting
+     * @return The tracked blocks for the given setting value, without going through the settings
+     */
+    static TrackedBlocks of(List<Block> additional) {
+        return new TrackedBlocks(additional, additional.hashCode());
+    }
+
+    public boolean contains(Block block) {
+        return blocks.contains(block);
+    }
+
+    /**
+     * @param name A block name, as in {@link BlockUtils#blockToString}
+     */
+    public boolean contains(String name) {
+        return names.contains(name);
+    }
+
+    public Set<Block> blocks() {
+        return blocks;
+    }
+
+    private static long fingerprint(Collection<Block> blocks) {
+        List<String> names = new ArrayList<>();
+        for (Block block : blocks) {
+            names.add(BlockUtils.blockToString(block));
+        }
+        return BlockNameTable.fingerprint(names);
+    }
+}
@@ -0,0 +1,199 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * The positions of one tracked block within a chunk, each packed as {@code y << 8 | z << 4 | x}.
+ * <p>
+ * Rare blocks are stored as a sorted array of 16 bit positions. Once that would take more space than one bit for
+ * every block in the chunk, they're stored as a bitmap instead, so that tracking something as common as stone
+ * costs at most 8 KiB per chunk.
+ */
+public final class TrackedPositions {
+
+    /**
+     * Past this many positions, a bitmap of the whole chunk is smaller than the sorted array
+     */
+    private static final int BITMAP_THRESHOLD = 65536 / 16;
+
+    private final char[] sorted;
+
+    private final long[] bitmap;
+
+    private final int size;
+
+    private TrackedPositions(char[] sorted, long[] bitmap, int size) {
+        this.sorted = sorted;
+        this.bitmap = bitmap;
+        this.size = size;
+    }
+
+    /**
+     * @param packed The packed positions, in any order. Duplicates are ignored.
+     * @param count  How many entries of {@code packed} to use
+     * @return The positions, in whichever representation is smaller
+     */
+    public static TrackedPositions of(int[] packed, int count) {
+        if (count > BITMAP_THRESHOLD) {
+            long[] bitmap = new long[65536 / 64];
+            for (int i = 0; i < count; i++) {
+                bitmap[packed[i] >>> 6] |= 1L << packed[i];
+            }
+            int size = 0;
+            for (long word : bitmap) {
+                size += Long.bitCount(word);
+            }
+            return new TrackedPositions(null, bitmap, size);
+        }
+        char[] sorted = new char[count];
+        boolean inOrder = true;
+        for (int i = 0; i < count; i++) {
+            sorted[i] = (char) packed[i];
+            inOrder &= i == 0 || sorted[i - 1] < sorted[i];
+        }
+        if (!inOrder) {
+            Arrays.sort(sorted);
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                if (unique == 0 || sorted[unique - 1] != sorted[i]) {
+                    sorted[unique++] = sorted[i];
+                }
+            }
+            if (unique != count) {
+                sorted = Arrays.copyOf(sorted, unique);
+            }
+        }
+        return new TrackedPositions(sorted, null, sorted.length);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int packed) {
+        if (bitmap != null) {
+            return (bitmap[packed >>> 6] & (1L << packed)) != 0;
+        }
+        return Arrays.binarySearch(sorted, (char) packed) >= 0;
+    }
+
+    /**
+     * Calls the action with every packed position, in ascending order
+     */
+    public void forEach(IntConsumer action) {
+        if (bitmap != null) {
+            for (int i = 0; i < bitmap.length; i++) {
+                long word = bitmap[i];
+                while (word != 0) {
+                    action.accept(i << 6 | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return;
+        }
+        for (char packed : sorted) {
+            action.accept(packed);
+        }
+    }
+
+    /**
+     * @return Every packed position, in ascending order
+     */
+    public int[] toArray() {
+        int[] res = new int[size];
+        int[] i = {0};
+        forEach(packed -> res[i[0]++] = packed);
+        return res;
+    }
+
+    /**
+     * @return An estimate of how many bytes of heap this takes up
+     */
+    public int sizeInBytes() {
+        return 32 + (bitmap != null ? bitmap.length * 8 : sorted.length * 2);
+    }
+
+    /**
+     * Writes the positions as a count followed by either the bitmap or each packed position, whichever is smaller.
+     * A count of 65536 wraps around to 0.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeShort(size);
+        if (bitmap != null && size > BITMAP_THRESHOLD) {
+            for (long word : bitmap) {
+                out.writeLong(word);
+            }
+            return;
+        }
+        // a bitmap can hold fewer positions than it was built for once duplicates are gone, so go by the count
+        for (int packed : toArray()) {
+            out.writeShort(packed);
+        }
+    }
+
+    /**
+     * Reads positions as they were written by {@link #write}
+     *
+     * @throws IOException If the stream ends early, or the bitmap doesn't hold as many positions as its count says
+     */
+    public static TrackedPositions read(DataInput in) throws IOException {
+        int size = in.readUnsignedShort();
+        if (size == 0) {
+            size = 65536;
+        }
+        if (size > BITMAP_THRESHOLD) {
+            long[] bitmap = new long[65536 / 64];
+            int actual = 0;
+            for (int i = 0; i < bitmap.length; i++) {
+                bitmap[i] = in.readLong();
+                actual += Long.bitCount(bitmap[i]);
+            }
+            if (actual != size) {
+                throw new IOException("Bitmap holds " + actual + " positions instead of " + size);
+            }
+            return new TrackedPositions(null, bitmap, size);
+        }
+        int[] packed = new int[size];
+        for (int i = 0; i < size; i++) {
+            packed[i] = in.readUnsignedShort();
+        }
+        return of(packed, size);
+    }
+
+    public static int pack(int x, int y, int z) {
+        return y << 8 | z << 4 | x;
+    }
+
+    public static int unpackX(int packed) {
+        return packed & 15;
+    }
+
+    public static int unpackY(int packed) {
+        return (packed >> 8) & 255;
+    }
+
+    public static int unpackZ(int packed) {
+        return (packed >> 4) & 15;
+    }
+}
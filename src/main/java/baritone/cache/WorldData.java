@@ -37,6 +37,18 @@ public class WorldData implements IWorldData {
     public final Path directory;
     public final int dimension;
 
+    /**
+     * How many {@link WorldProvider}s have this as their current world, guarded by the world cache of
+     * {@link WorldProvider}
+     */
+    private int references;
+
+    /**
+     * Goes up every time the last reference is released, so that a delayed unload can tell whether this world was
+     * used again in the meantime
+     */
+    private int releases;
+
     WorldData(Path directory, int dimension) {
         this.directory = directory;
         this.cache = new CachedWorld(directory.resolve("cache"), dimension);
@@ -45,10 +57,34 @@ public class WorldData implements IWorldData {
     }
 
     public void onClose() {
-        Baritone.getExecutor().execute(() -> {
-            System.out.println("Started saving the world in a new thread");
-            cache.save();
-        });
+        // the regions themselves are written by the saver thread of the cache, this just waits for it
+        Baritone.getExecutor().execute(cache::save);
+    }
+
+    int retain() {
+        return ++references;
+    }
+
+    /**
+     * @return The number of times that the last reference has been released, or -1 if there are references left
+     */
+    int release() {
+        return --references == 0 ? ++releases : -1;
+    }
+
+    /**
+     * @return Whether nothing has used this world since the given release of its last reference, as returned by
+     * {@link #release()}
+     */
+    boolean isUnusedSince(int release) {
+        return references == 0 && releases == release;
+    }
+
+    /**
+     * Saves and drops everything about this world, once nothing uses it anymore
+     */
+    void unload() {
+        cache.close();
     }
 
     @Override
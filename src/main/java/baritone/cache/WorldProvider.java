@@ -22,6 +22,7 @@ import baritone.api.cache.IWorldProvider;
 import baritone.api.utils.Helper;
 import baritone.utils.accessor.IAnvilChunkLoader;
 import baritone.utils.accessor.IChunkProviderServer;
+import baritone.utils.metrics.Metrics;
 import net.minecraft.server.integrated.IntegratedServer;
 import net.minecraft.world.World;
 import net.minecraft.world.WorldServer;
@@ -34,7 +35,12 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
+import java.util.function.ToLongFunction;
 
 /**
  * @author Brady
@@ -44,9 +50,55 @@ public class WorldProvider implements IWorldProvider, Helper {
 
     private static final Map<Path, WorldData> worldCache = new HashMap<>(); // this is how the bots have the same cached world
 
+    /**
+     * Worlds that were dropped from {@link #worldCache} and are still being saved, guarded by {@link #worldCache}.
+     * Going back to one of these doesn't load it until that's finished, rather than reading regions and the block index
+     * while they're still being written.
+     */
+    private static final Map<Path, CountDownLatch> unloadingWorlds = new HashMap<>();
+
+    /**
+     * Waits out {@link baritone.api.Settings#worldDataUnloadDelaySeconds} for every released world, on one thread however
+     * many there are, a world that's retained again in the meantime is left alone once its time comes
+     */
+    private static final ScheduledExecutorService unloadScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Baritone world unload scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Metrics.gauge("cache.worlds", "worlds", () -> {
+            synchronized (worldCache) {
+                return worldCache.size();
+            }
+        });
+        Metrics.gauge("cache.regions.memory", "bytes", () -> sumOverWorlds(CachedWorld::getRegionMemoryUsage));
+        Metrics.gauge("cache.index.memory", "bytes", () -> sumOverWorlds(CachedWorld::getBlockIndexMemoryUsage));
+        Metrics.gauge("cache.packer.queue", "chunks", () -> sumOverWorlds(CachedWorld::getPackQueueLength));
+        Metrics.gauge("cache.saver.queue", "regions", () -> sumOverWorlds(CachedWorld::getSaveQueueLength));
+    }
+
+    private static long sumOverWorlds(ToLongFunction<CachedWorld> value) {
+        synchronized (worldCache) {
+            long total = 0;
+            for (WorldData world : worldCache.values()) {
+                total += value.applyAsLong(world.cache);
+            }
+            return total;
+        }
+    }
+
     private WorldData currentWorld;
     private World mcWorld; // this let's us detect a broken load/unload hook
 
+    /**
+     * Set while the world that {@link #initWorld} was asked for is still being saved from a previous visit, it's loaded
+     * once this counts down
+     */
+    private CountDownLatch waitingForUnload;
+    private int waitingForUnloadDimension;
+
     @Override
     public final WorldData getCurrentWorld() {
         detectAndHandleBrokenLoading();
@@ -59,6 +111,7 @@ public class WorldProvider implements IWorldProvider, Helper {
      * @param dimension The ID of the world's dimension
      */
     public final void initWorld(int dimension) {
+        this.waitingForUnload = null;
         File directory;
         File readme;
 
@@ -113,7 +166,18 @@ public class WorldProvider implements IWorldProvider, Helper {
 
         System.out.println("Baritone world data dir: " + dir);
         synchronized (worldCache) {
-            this.currentWorld = worldCache.computeIfAbsent(dir, d -> new WorldData(d, dimension));
+            CountDownLatch unloading = unloadingWorlds.get(dir);
+            if (unloading != null) {
+                // this is the client thread, so rather than waiting here, go without a world until the old one has
+                // finished writing, otherwise this one would read regions and an index that are about to be replaced
+                System.out.println("Previous visit to this world is still saving, loading it once that's done");
+                this.waitingForUnload = unloading;
+                this.waitingForUnloadDimension = dimension;
+                this.currentWorld = null;
+            } else {
+                this.currentWorld = worldCache.computeIfAbsent(dir, d -> new WorldData(d, dimension));
+                this.currentWorld.retain();
+            }
         }
         this.mcWorld = mc.world;
     }
@@ -122,10 +186,49 @@ public class WorldProvider implements IWorldProvider, Helper {
         WorldData world = this.currentWorld;
         this.currentWorld = null;
         this.mcWorld = null;
+        this.waitingForUnload = null;
         if (world == null) {
             return;
         }
         world.onClose();
+        release(world);
+    }
+
+    /**
+     * Drops a reference to a world, and once there are none left, unloads it if it stays unused for
+     * {@link baritone.api.Settings#worldDataUnloadDelaySeconds}
+     */
+    private static void release(WorldData world) {
+        int release;
+        synchronized (worldCache) {
+            release = world.release();
+        }
+        int delay = Baritone.settings().worldDataUnloadDelaySeconds.value;
+        if (release < 0 || delay < 0) {
+            return;
+        }
+        unloadScheduler.schedule(() -> {
+            CountDownLatch unloaded = new CountDownLatch(1);
+            synchronized (worldCache) {
+                if (!world.isUnusedSince(release) || worldCache.get(world.directory) != world) {
+                    return;
+                }
+                worldCache.remove(world.directory);
+                unloadingWorlds.put(world.directory, unloaded);
+            }
+            // saving can take a while, so it doesn't hold up any other world's unload
+            Baritone.getExecutor().execute(() -> {
+                try {
+                    System.out.println("Unloading unused world data " + world.directory);
+                    world.unload();
+                } finally {
+                    synchronized (worldCache) {
+                        unloadingWorlds.remove(world.directory);
+                    }
+                    unloaded.countDown();
+                }
+            });
+        }, delay, TimeUnit.SECONDS);
     }
 
     public final void ifWorldLoaded(Consumer<WorldData> currentWorldConsumer) {
@@ -145,6 +248,11 @@ public class WorldProvider implements IWorldProvider, Helper {
                 System.out.println("mc.world loaded unnoticed! Loading Baritone cache now.");
                 initWorld(mc.world.provider.getDimensionType().getId());
             }
+        } else if (waitingForUnload != null) {
+            if (waitingForUnload.getCount() == 0) {
+                System.out.println("Previous visit to this world has finished saving, loading Baritone cache now.");
+                initWorld(waitingForUnloadDimension);
+            }
         } else if (currentWorld == null && mc.world != null && (mc.isSingleplayer() || mc.getCurrentServerData() != null)) {
             System.out.println("Retrying to load Baritone cache");
             initWorld(mc.world.provider.getDimensionType().getId());
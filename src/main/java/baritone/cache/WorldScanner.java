@@ -22,8 +22,10 @@ import baritone.api.cache.IWorldScanner;
 import baritone.api.utils.BetterBlockPos;
 import baritone.api.utils.BlockOptionalMetaLookup;
 import baritone.api.utils.IPlayerContext;
+import baritone.utils.accessor.IBitArray;
 import baritone.utils.accessor.IBlockStateContainer;
-import net.minecraft.block.state.IBlockState;
+import baritone.utils.jfr.JfrEvents;
+import baritone.utils.jfr.WorldScanEvent;
 import net.minecraft.client.multiplayer.ChunkProviderClient;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.util.math.ChunkPos;
@@ -42,6 +44,13 @@ public enum WorldScanner implements IWorldScanner {
 
     @Override
     public List<BlockPos> scanChunkRadius(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius) {
+        WorldScanEvent event = JfrEvents.beginWorldScan();
+        List<BlockPos> res = scanChunkRadius0(ctx, filter, max, yLevelThreshold, maxSearchRadius);
+        JfrEvents.endWorldScan(event, this, maxSearchRadius, res.size());
+        return res;
+    }
+
+    private List<BlockPos> scanChunkRadius0(IPlayerContext ctx, BlockOptionalMetaLookup filter, int max, int yLevelThreshold, int maxSearchRadius) {
         ArrayList<BlockPos> res = new ArrayList<>();
 
         if (filter.blocks().isEmpty()) {
@@ -107,7 +116,9 @@ public enum WorldScanner implements IWorldScanner {
         }
 
         ArrayList<BlockPos> res = new ArrayList<>();
+        WorldScanEvent event = JfrEvents.beginWorldScan();
         scanChunkInto(pos.x << 4, pos.z << 4, chunk, filter, res, max, yLevelThreshold, playerY, DEFAULT_COORDINATE_ITERATION_ORDER);
+        JfrEvents.endWorldScan(event, this, 0, res.size());
         return res;
     }
 
@@ -148,36 +159,44 @@ public enum WorldScanner implements IWorldScanner {
 
     private boolean scanChunkInto(int chunkX, int chunkZ, Chunk chunk, BlockOptionalMetaLookup filter, Collection<BlockPos> result, int max, int yLevelThreshold, int playerY, int[] coordinateIterationOrder) {
         ExtendedBlockStorage[] chunkInternalStorageArray = chunk.getBlockStorageArray();
+        PaletteMatches matches = PaletteMatches.of(filter);
+        int candidates = LoadedBlockIndex.of(chunk.getWorld()).sectionsMatching(chunk, matches.signature);
         boolean foundWithinY = false;
         for (int yIndex = 0; yIndex < 16; yIndex++) {
             int y0 = coordinateIterationOrder[yIndex];
             ExtendedBlockStorage extendedblockstorage = chunkInternalStorageArray[y0];
-            if (extendedblockstorage == null) {
+            if (extendedblockstorage == null || (candidates & (1 << y0)) == 0) {
                 continue;
             }
             int yReal = y0 << 4;
             IBlockStateContainer bsc = (IBlockStateContainer) extendedblockstorage.getData();
-            // storageArray uses an optimized algorithm that's faster than getAt
-            // creating this array and then using getAtPalette is faster than even getFast(int index)
-            int[] storage = bsc.storageArray();
-            final int imax = 1 << 12;
-            for (int i = 0; i < imax; i++) {
-                IBlockState state = bsc.getAtPalette(storage[i]);
-                if (filter.has(state)) {
-                    int y = yReal | ((i >> 8) & 15);
-                    if (result.size() >= max) {
-                        if (Math.abs(y - playerY) < yLevelThreshold) {
-                            foundWithinY = true;
-                        } else {
-                            if (foundWithinY) {
-                                // have found within Y in this chunk, so don't need to consider outside Y
-                                // TODO continue iteration to one more sorted Y coordinate block
-                                return true;
-                            }
+            if (bsc.getStorage() == null) {
+                continue;
+            }
+            long[] words = bsc.getStorage().getBackingLongArray();
+            int bitsPerEntry = ((IBitArray) bsc.getStorage()).getBitsPerEntry();
+            PaletteMatches.Mask mask = matches.get(bsc, filter);
+            if (!mask.any) {
+                continue;
+            }
+            SectionDecoder decoder = SectionDecoder.get();
+            int count = decoder.find(words, bitsPerEntry, mask.matches, mask.size);
+            int[] hits = decoder.hits();
+            for (int hit = 0; hit < count; hit++) {
+                int i = hits[hit];
+                int y = yReal | ((i >> 8) & 15);
+                if (result.size() >= max) {
+                    if (Math.abs(y - playerY) < yLevelThreshold) {
+                        foundWithinY = true;
+                    } else {
+                        if (foundWithinY) {
+                            // have found within Y in this chunk, so don't need to consider outside Y
+                            // TODO continue iteration to one more sorted Y coordinate block
+                            return true;
                         }
                     }
-                    result.add(new BlockPos(chunkX | (i & 15), y, chunkZ | ((i >> 4) & 15)));
                 }
+                result.add(new BlockPos(chunkX | (i & 15), y, chunkZ | ((i >> 4) & 15)));
             }
         }
         return foundWithinY;
@@ -0,0 +1,116 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache.tool;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * The block names that can appear in a cache file, read from a plain text table instead of the Minecraft block
+ * registry. One name per line, blank lines and lines starting with {@code #} are ignored, and names starting with
+ * {@code *} are tracked by default.
+ * <p>
+ * The table bundled as {@code block_names.txt} has every block in vanilla 1.12.2, a modded game can be described by
+ * passing a table of its own.
+ */
+public final class BlockNameTable {
+
+    private final Set<String> names;
+
+    private final Set<String> trackedByDefault;
+
+    private final long defaultFingerprint;
+
+    private BlockNameTable(Set<String> names, Set<String> trackedByDefault) {
+        this.names = Collections.unmodifiableSet(names);
+        this.trackedByDefault = Collections.unmodifiableSet(trackedByDefault);
+        this.defaultFingerprint = fingerprint(trackedByDefault);
+    }
+
+    public static BlockNameTable bundled() throws IOException {
+        InputStream in = BlockNameTable.class.getResourceAsStream("block_names.txt");
+        if (in == null) {
+            throw new FileNotFoundException("block_names.txt is missing from the classpath");
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            return read(reader);
+        }
+    }
+
+    public static BlockNameTable load(Path file) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    private static BlockNameTable read(BufferedReader reader) throws IOException {
+        Set<String> names = new HashSet<>();
+        Set<String> trackedByDefault = new HashSet<>();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            if (line.startsWith("*")) {
+                line = line.substring(1);
+                trackedByDefault.add(line);
+            }
+            names.add(line);
+        }
+        return new BlockNameTable(names, trackedByDefault);
+    }
+
+    public boolean contains(String name) {
+        return names.contains(name);
+    }
+
+    public Set<String> trackedByDefault() {
+        return trackedByDefault;
+    }
+
+    /**
+     * @return The fingerprint of the blocks that are tracked by default, which is what chunks saved before the tracked
+     * set was recorded were packed with
+     */
+    public long defaultFingerprint() {
+        return defaultFingerprint;
+    }
+
+    /**
+     * The fingerprint of a set of tracked blocks, a 64 bit FNV-1a over the sorted names so that it's the same on every
+     * run, and without needing the block registry
+     *
+     * @param names Block names, as in {@link baritone.api.utils.BlockUtils#blockToString}
+     */
+    public static long fingerprint(Collection<String> names) {
+        List<String> sorted = new ArrayList<>(names);
+        Collections.sort(sorted);
+        long hash = 0xcbf29ce484222325L;
+        for (String name : sorted) {
+            for (byte b : name.getBytes(StandardCharsets.UTF_8)) {
+                hash = (hash ^ (b & 0xff)) * 0x100000001b3L;
+            }
+            hash = (hash ^ ',') * 0x100000001b3L;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache.tool;
+
+import baritone.cache.RegionFileLock;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Command line entry point for working on {@code .bcr} cache files offline, without Minecraft. Run it with the
+ * {@code cacheTool} gradle task, or with {@code java -jar} on the jar built by {@code cacheToolJar}.
+ * <p>
+ * Every path given can be a region file, or a directory that is searched for region files, such as
+ * {@code baritone/<server>/DIM0/cache} or a whole {@code baritone} folder. Region files are processed in parallel,
+ * each under the same lock that the game takes to save it, so this can be run while a game is using the cache.
+ */
+public final class CacheTool {
+
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: CacheTool [--blocks <block names file>] <command> ...",
+            "  verify <paths...>                          check the magic value and structure of every region file",
+            "  stats <paths...>                           print statistics of every region file",
+            "  compact [--expiry <seconds>] <paths...>    drop expired chunks and rewrite in the current format",
+            "  merge <output dir> <input dirs...>         merge caches, keeping the most recently cached copy of each chunk,",
+            "                                             matching region files by their path within each input dir"
+    );
+
+    private final BlockNameTable table;
+
+    private CacheTool(BlockNameTable table) {
+        this.table = table;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Deque<String> queue = new ArrayDeque<>(Arrays.asList(args));
+        BlockNameTable table = null;
+        if ("--blocks".equals(queue.peek())) {
+            queue.pop();
+            if (queue.isEmpty()) {
+                usage();
+                return;
+            }
+            table = BlockNameTable.load(Paths.get(queue.pop()));
+        }
+        if (table == null) {
+            table = BlockNameTable.bundled();
+        }
+        if (queue.isEmpty()) {
+            usage();
+            return;
+        }
+        CacheTool tool = new CacheTool(table);
+        boolean ok;
+        switch (queue.pop()) {
+            case "verify":
+                ok = tool.verify(findRegionFiles(queue));
+                break;
+            case "stats":
+                ok = tool.stats(findRegionFiles(queue));
+                break;
+            case "compact": {
+                long expiry = -1;
+                if ("--expiry".equals(queue.peek())) {
+                    queue.pop();
+                    expiry = Long.parseLong(queue.pop());
+                }
+                ok = tool.compact(findRegionFiles(queue), expiry);
+                break;
+            }
+            case "merge": {
+                if (queue.size() < 2) {
+                    usage();
+                    return;
+                }
+                Path output = Paths.get(queue.pop());
+                ok = tool.merge(output, findRegionFilesByRelativePath(queue));
+                break;
+            }
+            default:
+                usage();
+                return;
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+
+    private static void usage() {
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    /**
+     * @param paths Region files, or directories to search for them
+     * @return Every region file, sorted so that output is in the same order every time
+     */
+    private static List<Path> findRegionFiles(Collection<String> paths) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String name : paths) {
+            Path path = Paths.get(name);
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> walk = Files.walk(path)) {
+                    walk.filter(RegionFile::isRegionFile).forEach(files::add);
+                }
+            } else if (RegionFile.isRegionFile(path)) {
+                files.add(path);
+            } else {
+                throw new IOException(name + " is neither a directory nor a region file");
+            }
+        }
+        Collections.sort(files);
+        return files;
+    }
+
+    /**
+     * @param paths Region files, or directories to search for them
+     * @return Every region file, by its path relative to the directory it was found in. A region file given directly
+     * is relative to the directory that it's in.
+     */
+    private static Map<Path, List<Path>> findRegionFilesByRelativePath(Collection<String> paths) throws IOException {
+        Map<Path, List<Path>> files = new TreeMap<>();
+        for (String name : paths) {
+            Path root = Paths.get(name);
+            for (Path file : findRegionFiles(Collections.singletonList(name))) {
+                Path relative = Files.isDirectory(root) ? root.relativize(file) : file.getFileName();
+                files.computeIfAbsent(relative, p -> new ArrayList<>()).add(file);
+            }
+        }
+        return files;
+    }
+
+    private boolean verify(List<Path> files) {
+        AtomicBoolean ok = new AtomicBoolean(true);
+        List<String> results = files.parallelStream().map(file -> {
+            try {
+                RegionFile region = RegionFile.read(file, table.defaultFingerprint());
+                List<String> problems = region.verify(table);
+                if (problems.isEmpty()) {
+                    return "OK    " + file + (region.isOutdated() ? " (old format " + region.getMagic() + ")" : "");
+                }
+                ok.set(false);
+                return "BAD   " + file + System.lineSeparator() + problems.stream().map(problem -> "        " + problem).collect(Collectors.joining(System.lineSeparator()));
+            } catch (IOException ex) {
+                ok.set(false);
+                return "ERROR " + file + ": " + ex.getMessage();
+            }
+        }).collect(Collectors.toList());
+        results.forEach(System.out::println);
+        System.out.println(files.size() + " region files checked, " + (ok.get() ? "no problems found" : "some had problems"));
+        return ok.get();
+    }
+
+    private boolean stats(List<Path> files) {
+        AtomicBoolean ok = new AtomicBoolean(true);
+        List<String> results = files.parallelStream().map(file -> {
+            try {
+                RegionFile region = RegionFile.read(file, table.defaultFingerprint());
+                List<RegionFile.Chunk> chunks = region.getChunks();
+                long oldest = Long.MAX_VALUE;
+                long newest = Long.MIN_VALUE;
+                Set<String> surface = new HashSet<>();
+                Set<Long> trackedSets = new HashSet<>();
+                Map<String, Long> tracked = new TreeMap<>();
+                for (RegionFile.Chunk chunk : chunks) {
+                    oldest = Math.min(oldest, chunk.getCacheTimestamp());
+                    newest = Math.max(newest, chunk.getCacheTimestamp());
+                    surface.addAll(Arrays.asList(chunk.getOverview()));
+                    trackedSets.add(chunk.getTrackedSet());
+                    chunk.getTrackedBlocks().forEach((name, positions) -> tracked.merge(name, (long) positions.length, Long::sum));
+                }
+                StringBuilder sb = new StringBuilder();
+                sb.append(file).append(System.lineSeparator());
+                sb.append("    region ").append(region.x).append(',').append(region.z)
+                        .append(", format ").append(region.getMagic()).append(region.isOutdated() ? " (old)" : "")
+                        .append(", ").append(Files.size(file) / 1024).append(" KiB on disk").append(System.lineSeparator());
+                sb.append("    ").append(chunks.size()).append(" of 1024 chunks cached");
+                if (!chunks.isEmpty()) {
+                    sb.append(", between ").append(new Date(oldest)).append(" and ").append(new Date(newest));
+                }
+                sb.append(System.lineSeparator());
+                sb.append("    ").append(surface.size()).append(" distinct surface blocks, ")
+                        .append(trackedSets.size()).append(" distinct tracked block sets").append(System.lineSeparator());
+                tracked.forEach((name, count) -> sb.append("    ").append(count).append(' ').append(name).append(System.lineSeparator()));
+                return sb.toString().trim();
+            } catch (IOException ex) {
+                ok.set(false);
+                return "ERROR " + file + ": " + ex.getMessage();
+            }
+        }).collect(Collectors.toList());
+        results.forEach(System.out::println);
+        return ok.get();
+    }
+
+    /**
+     * @param expiry As in {@link baritone.api.Settings#cachedChunksExpirySeconds}, negative to keep every chunk
+     */
+    private boolean compact(List<Path> files, long expiry) {
+        long oldestAcceptable = expiry < 0 ? Long.MIN_VALUE : System.currentTimeMillis() - expiry * 1000L;
+        AtomicBoolean ok = new AtomicBoolean(true);
+        List<String> results = files.parallelStream().map(file -> {
+            try (RegionFileLock lock = RegionFileLock.acquire(file, false)) {
+                long before = Files.size(file);
+                RegionFile region = RegionFile.read(file, table.defaultFingerprint());
+                int removed = region.removeOlderThan(oldestAcceptable);
+                if (region.isEmpty()) {
+                    Files.delete(file);
+                    return file + ": every chunk expired, deleted";
+                }
+                if (removed == 0 && !region.isOutdated()) {
+                    return file + ": unchanged";
+                }
+                region.write(file);
+                return file + ": removed " + removed + " expired chunks, " + before / 1024 + " KiB -> " + Files.size(file) / 1024 + " KiB";
+            } catch (IOException ex) {
+                ok.set(false);
+                return "ERROR " + file + ": " + ex.getMessage();
+            }
+        }).collect(Collectors.toList());
+        results.forEach(System.out::println);
+        return ok.get();
+    }
+
+    /**
+     * Merges region files at the same path within each of the inputs into one file at that path within the output
+     * directory, along with whatever is already there
+     */
+    private boolean merge(Path output, Map<Path, List<Path>> byRelativePath) throws IOException {
+        Files.createDirectories(output);
+        AtomicBoolean ok = new AtomicBoolean(true);
+        List<String> results = byRelativePath.entrySet().parallelStream().map(entry -> {
+            Path target = output.resolve(entry.getKey());
+            RegionFile merged = null;
+            StringBuilder sb = new StringBuilder();
+            for (Path file : entry.getValue()) {
+                // only one lock is held at a time, so that two of these can't wait on each other
+                try (RegionFileLock lock = RegionFileLock.acquire(file, true)) {
+                    RegionFile region = RegionFile.read(file, table.defaultFingerprint());
+                    if (merged == null) {
+                        merged = region;
+                    } else {
+                        merged.merge(region);
+                    }
+                } catch (IOException ex) {
+                    ok.set(false);
+                    sb.append("ERROR ").append(file).append(": ").append(ex.getMessage()).append(", skipped").append(System.lineSeparator());
+                }
+            }
+            if (merged != null) {
+                try {
+                    Files.createDirectories(target.getParent());
+                    try (RegionFileLock lock = RegionFileLock.acquire(target, false)) {
+                        if (Files.exists(target)) {
+                            // a game may have saved it since it was read above, or it may not have been an input at all
+                            merged.merge(RegionFile.read(target, table.defaultFingerprint()));
+                        }
+                        merged.write(target);
+                    }
+                    sb.append(target).append(": ").append(merged.getChunks().size()).append(" chunks from ").append(entry.getValue().size()).append(" files");
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            }
+            return sb.toString().trim();
+        }).collect(Collectors.toList());
+        results.forEach(System.out::println);
+        return ok.get();
+    }
+}
@@ -0,0 +1,442 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache.tool;
+
+import baritone.cache.CachedChunk;
+import baritone.cache.CachedRegion;
+import baritone.cache.TrackedPositions;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@code .bcr} file as it is on disk, with every block kept as its name, so that it can be read and written without
+ * the Minecraft block registry. This understands every format that {@link CachedRegion#load} does, and always writes
+ * the current one.
+ * <p>
+ * Only compile time constants are used from {@link CachedRegion} and {@link CachedChunk}, so neither of them, nor
+ * anything else from Minecraft, is loaded at runtime. Tracked positions are read and written by {@link TrackedPositions},
+ * which doesn't depend on Minecraft either.
+ */
+public final class RegionFile {
+
+    private static final Pattern FILE_NAME = Pattern.compile("r\\.(-?\\d+)\\.(-?\\d+)\\.bcr");
+
+    /**
+     * The region x coordinate
+     */
+    public final int x;
+
+    /**
+     * The region z coordinate
+     */
+    public final int z;
+
+    /**
+     * The magic value this was read with, or the current one if it was created empty
+     */
+    private int magic;
+
+    /**
+     * All of the chunks in this region: A 32x32 array of them, null where a chunk isn't cached
+     */
+    private final Chunk[][] chunks = new Chunk[32][32];
+
+    public RegionFile(int x, int z) {
+        this.x = x;
+        this.z = z;
+        this.magic = CachedRegion.CACHED_REGION_MAGIC;
+    }
+
+    /**
+     * @return The region coordinates in the name of a region file, or null if it isn't named like one
+     */
+    public static int[] coordinatesOf(Path file) {
+        Matcher matcher = FILE_NAME.matcher(file.getFileName().toString());
+        if (!matcher.matches()) {
+            return null;
+        }
+        return new int[]{Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2))};
+    }
+
+    public static boolean isRegionFile(Path file) {
+        return coordinatesOf(file) != null && Files.isRegularFile(file);
+    }
+
+    /**
+     * Reads a whole region file, checking its structure as it goes
+     *
+     * @param file               The region file, which has to be named like one
+     * @param defaultFingerprint The tracked set of chunks saved before it was recorded
+     * @throws IOException If the file can't be read, or isn't a well formed region file
+     */
+    public static RegionFile read(Path file, long defaultFingerprint) throws IOException {
+        int[] coordinates = coordinatesOf(file);
+        if (coordinates == null) {
+            throw new IOException("Not a region file name " + file.getFileName());
+        }
+        RegionFile region = new RegionFile(coordinates[0], coordinates[1]);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 32768)))) {
+            region.read(in, defaultFingerprint);
+            if (in.read() != -1) {
+                throw new IOException("Trailing data after the end of the region");
+            }
+        } catch (EOFException ex) {
+            throw new IOException("Region file is truncated", ex);
+        }
+        return region;
+    }
+
+    private void read(DataInputStream in, long defaultFingerprint) throws IOException {
+        magic = in.readInt();
+        if (magic != CachedRegion.CACHED_REGION_MAGIC && magic != CachedRegion.CACHED_REGION_MAGIC_PAIRED_POSITIONS && magic != CachedRegion.CACHED_REGION_MAGIC_UNTRACKED && magic != CachedRegion.CACHED_REGION_MAGIC_NAMED_OVERVIEW) {
+            throw new IOException("Bad magic value " + magic);
+        }
+        List<Chunk> present = new ArrayList<>();
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                int isChunkPresent = in.read();
+                switch (isChunkPresent) {
+                    case CachedRegion.CHUNK_PRESENT:
+                        Chunk chunk = new Chunk(x, z);
+                        in.readFully(chunk.data);
+                        chunks[x][z] = chunk;
+                        present.add(chunk);
+                        break;
+                    case CachedRegion.CHUNK_NOT_PRESENT:
+                        break;
+                    default:
+                        throw new IOException("Malformed stream, chunk " + x + "," + z + " is neither present nor absent");
+                }
+            }
+        }
+        if (magic == CachedRegion.CACHED_REGION_MAGIC || magic == CachedRegion.CACHED_REGION_MAGIC_PAIRED_POSITIONS) {
+            String[] palette = new String[in.readShort() & 0xffff];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = in.readUTF();
+            }
+            boolean wide = palette.length > 256;
+            for (Chunk chunk : present) {
+                for (int i = 0; i < 256; i++) {
+                    int index = wide ? in.readShort() & 0xffff : in.readByte() & 0xff;
+                    if (index >= palette.length) {
+                        throw new IOException("Overview index " + index + " is past the end of the palette in chunk " + chunk.x + "," + chunk.z);
+                    }
+                    chunk.overview[i] = palette[index];
+                }
+            }
+            for (Chunk chunk : present) {
+                in.readFully(chunk.heightMap);
+            }
+        } else {
+            for (Chunk chunk : present) {
+                for (int i = 0; i < 256; i++) {
+                    chunk.overview[i] = in.readUTF();
+                }
+                chunk.calculateHeightMap();
+            }
+        }
+        for (Chunk chunk : present) {
+            int numSpecialBlockTypes = in.readShort() & 0xffff;
+            for (int i = 0; i < numSpecialBlockTypes; i++) {
+                String blockName = in.readUTF();
+                int[] locs;
+                if (magic == CachedRegion.CACHED_REGION_MAGIC) {
+                    locs = TrackedPositions.read(in).toArray();
+                } else {
+                    int numLocations = in.readShort() & 0xffff;
+                    if (numLocations == 0) {
+                        // see CachedRegion, a count of 65536 wraps around to 0
+                        numLocations = 65536;
+                    }
+                    locs = new int[numLocations];
+                    for (int j = 0; j < numLocations; j++) {
+                        byte xz = in.readByte();
+                        int y = in.readByte() & 0xff;
+                        locs[j] = y << 8 | (xz & 0xff);
+                    }
+                }
+                if (chunk.trackedBlocks.put(blockName, locs) != null) {
+                    throw new IOException("Tracked block " + blockName + " is listed twice in chunk " + chunk.x + "," + chunk.z);
+                }
+            }
+        }
+        for (Chunk chunk : present) {
+            chunk.cacheTimestamp = in.readLong();
+        }
+        for (Chunk chunk : present) {
+            chunk.trackedSet = magic == CachedRegion.CACHED_REGION_MAGIC_UNTRACKED ? defaultFingerprint : in.readLong();
+        }
+    }
+
+    /**
+     * Writes this region in the current format, replacing the file only once it's completely written
+     */
+    public void write(Path file) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(Files.newOutputStream(tmp), 16384)))) {
+            write(out);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void write(DataOutputStream out) throws IOException {
+        out.writeInt(CachedRegion.CACHED_REGION_MAGIC);
+        List<Chunk> present = new ArrayList<>();
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                if (chunks[x][z] == null) {
+                    out.write(CachedRegion.CHUNK_NOT_PRESENT);
+                } else {
+                    out.write(CachedRegion.CHUNK_PRESENT);
+                    out.write(chunks[x][z].data);
+                    present.add(chunks[x][z]);
+                }
+            }
+        }
+        Map<String, Integer> paletteIndices = new LinkedHashMap<>();
+        for (Chunk chunk : present) {
+            for (String name : chunk.overview) {
+                paletteIndices.putIfAbsent(name, paletteIndices.size());
+            }
+        }
+        out.writeShort(paletteIndices.size());
+        for (String name : paletteIndices.keySet()) {
+            out.writeUTF(name);
+        }
+        boolean wide = paletteIndices.size() > 256;
+        for (Chunk chunk : present) {
+            for (String name : chunk.overview) {
+                int index = paletteIndices.get(name);
+                if (wide) {
+                    out.writeShort(index);
+                } else {
+                    out.writeByte(index);
+                }
+            }
+        }
+        for (Chunk chunk : present) {
+            out.write(chunk.heightMap);
+        }
+        for (Chunk chunk : present) {
+            out.writeShort(chunk.trackedBlocks.size());
+            for (Map.Entry<String, int[]> entry : chunk.trackedBlocks.entrySet()) {
+                out.writeUTF(entry.getKey());
+                TrackedPositions.of(entry.getValue(), entry.getValue().length).write(out);
+            }
+        }
+        for (Chunk chunk : present) {
+            out.writeLong(chunk.cacheTimestamp);
+        }
+        for (Chunk chunk : present) {
+            out.writeLong(chunk.trackedSet);
+        }
+    }
+
+    /**
+     * @return Whether this was read in an older format than the current one
+     */
+    public boolean isOutdated() {
+        return magic != CachedRegion.CACHED_REGION_MAGIC;
+    }
+
+    public int getMagic() {
+        return magic;
+    }
+
+    public Chunk getChunk(int x, int z) {
+        return chunks[x][z];
+    }
+
+    void put(Chunk chunk) {
+        chunks[chunk.x][chunk.z] = chunk;
+    }
+
+    public List<Chunk> getChunks() {
+        List<Chunk> res = new ArrayList<>();
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                if (chunks[x][z] != null) {
+                    res.add(chunks[x][z]);
+                }
+            }
+        }
+        return res;
+    }
+
+    public boolean isEmpty() {
+        return getChunks().isEmpty();
+    }
+
+    /**
+     * Drops every chunk that was cached before the given time, as {@link CachedRegion#removeExpired} does
+     *
+     * @return How many chunks were dropped
+     */
+    public int removeOlderThan(long oldestAcceptableTimestamp) {
+        int removed = 0;
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                if (chunks[x][z] != null && chunks[x][z].cacheTimestamp < oldestAcceptableTimestamp) {
+                    chunks[x][z] = null;
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Takes every chunk of the other region of the same coordinates that was cached more recently than the one here
+     *
+     * @return How many chunks were taken
+     */
+    public int merge(RegionFile other) {
+        if (other.x != x || other.z != z) {
+            throw new IllegalArgumentException("Can't merge region " + other.x + "," + other.z + " into " + x + "," + z);
+        }
+        int taken = 0;
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                Chunk theirs = other.chunks[x][z];
+                if (theirs != null && (chunks[x][z] == null || theirs.cacheTimestamp > chunks[x][z].cacheTimestamp)) {
+                    chunks[x][z] = theirs;
+                    taken++;
+                }
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * Checks everything that reading doesn't, namely that every block name is in the table
+     *
+     * @return A description of each problem found, empty if there were none
+     */
+    public List<String> verify(BlockNameTable table) {
+        List<String> problems = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (Chunk chunk : getChunks()) {
+            String where = "chunk " + (chunk.x + 32 * x) + "," + (chunk.z + 32 * z);
+            Set<String> unknown = new TreeSet<>();
+            for (String name : chunk.overview) {
+                if (!table.contains(name)) {
+                    unknown.add(name);
+                }
+            }
+            for (Map.Entry<String, int[]> entry : chunk.trackedBlocks.entrySet()) {
+                if (!table.contains(entry.getKey())) {
+                    unknown.add(entry.getKey());
+                }
+            }
+            if (!unknown.isEmpty()) {
+                problems.add(where + " has unknown blocks " + unknown);
+            }
+            if (chunk.cacheTimestamp > now) {
+                problems.add(where + " was cached in the future, at " + chunk.cacheTimestamp);
+            }
+        }
+        return problems;
+    }
+
+    /**
+     * One cached chunk, as it is on disk
+     */
+    public static final class Chunk {
+
+        /**
+         * The x and z of this chunk within its region
+         */
+        public final int x, z;
+
+        /**
+         * The 2 bit pathing types, laid out as in {@link CachedChunk#getPositionIndex}
+         */
+        final byte[] data = new byte[CachedChunk.SIZE_IN_BYTES];
+
+        /**
+         * The name of the surface block of each column, indexed by {@code z << 4 | x}
+         */
+        final String[] overview = new String[256];
+
+        /**
+         * The y of the surface block of each column, unsigned
+         */
+        final byte[] heightMap = new byte[256];
+
+        /**
+         * The positions of each tracked block, packed as {@code y << 8 | z << 4 | x}
+         */
+        final Map<String, int[]> trackedBlocks = new LinkedHashMap<>();
+
+        long cacheTimestamp;
+
+        long trackedSet;
+
+        Chunk(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+
+        public long getCacheTimestamp() {
+            return cacheTimestamp;
+        }
+
+        public long getTrackedSet() {
+            return trackedSet;
+        }
+
+        public String[] getOverview() {
+            return overview;
+        }
+
+        public Map<String, int[]> getTrackedBlocks() {
+            return Collections.unmodifiableMap(trackedBlocks);
+        }
+
+        /**
+         * @return The 2 bit pathing type at a position packed as {@code y << 8 | z << 4 | x}, 0 being air
+         */
+        int typeAt(int packed) {
+            int index = packed << 1;
+            return (data[index >> 3] >> (index & 7)) & 3;
+        }
+
+        /**
+         * Calculates the heights from the pathing types, for chunks saved before heights were
+         */
+        void calculateHeightMap() {
+            for (int column = 0; column < 256; column++) {
+                heightMap[column] = 0;
+                for (int y = 255; y >= 0; y--) {
+                    if (typeAt(y << 8 | column) != 0) {
+                        heightMap[column] = (byte) y;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+}
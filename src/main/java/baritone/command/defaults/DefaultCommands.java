@@ -42,6 +42,7 @@ public final class DefaultCommands {
                 new ETACommand(baritone),
                 new VersionCommand(baritone),
                 new RepackCommand(baritone),
+                new ImportCommand(baritone),
                 new BuildCommand(baritone),
                 new SchematicaCommand(baritone),
                 new LitematicaCommand(baritone),
@@ -57,6 +58,7 @@ public final class DefaultCommands {
                 new ExploreFilterCommand(baritone),
                 new ReloadAllCommand(baritone),
                 new SaveAllCommand(baritone),
+                new StatsCommand(baritone),
                 new ExploreCommand(baritone),
                 new BlacklistCommand(baritone),
                 new FindCommand(baritone),
@@ -24,7 +24,7 @@ import baritone.api.command.datatypes.BlockById;
 import baritone.api.command.exception.CommandException;
 import baritone.api.command.helpers.TabCompleteHelper;
 import baritone.api.utils.BetterBlockPos;
-import baritone.cache.CachedChunk;
+import baritone.cache.TrackedBlocks;
 import net.minecraft.block.Block;
 import net.minecraft.util.text.ITextComponent;
 import net.minecraft.util.text.TextComponentString;
@@ -90,7 +90,7 @@ public class FindCommand extends Command {
     public Stream<String> tabComplete(String label, IArgConsumer args) throws CommandException {
         return new TabCompleteHelper()
                 .append(
-                        CachedChunk.BLOCKS_TO_KEEP_TRACK_OF.stream()
+                        TrackedBlocks.current().blocks().stream()
                                 .map(Block.REGISTRY::getNameForObject)
                                 .map(Object::toString)
                 )
@@ -0,0 +1,115 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.command.defaults;
+
+import baritone.Baritone;
+import baritone.api.IBaritone;
+import baritone.api.command.Command;
+import baritone.api.command.argument.IArgConsumer;
+import baritone.api.command.datatypes.RelativeFile;
+import baritone.api.command.exception.CommandException;
+import baritone.api.command.exception.CommandInvalidStateException;
+import baritone.api.utils.BetterBlockPos;
+import baritone.cache.AnvilImporter;
+import baritone.cache.CachedWorld;
+import baritone.utils.accessor.IAnvilChunkLoader;
+import baritone.utils.accessor.IChunkProviderServer;
+import net.minecraft.world.WorldServer;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class ImportCommand extends Command {
+
+    public ImportCommand(IBaritone baritone) {
+        super(baritone, "import");
+    }
+
+    @Override
+    public void execute(String label, IArgConsumer args) throws CommandException {
+        args.requireMax(2);
+        int radius = args.getAsOrDefault(Integer.class, 1024);
+        File regionDirectory;
+        if (args.hasAny()) {
+            regionDirectory = args.getDatatypePost(RelativeFile.INSTANCE, mc.gameDir.getAbsoluteFile()).getAbsoluteFile();
+        } else {
+            regionDirectory = getSingleplayerRegionDirectory();
+        }
+        if (!regionDirectory.isDirectory()) {
+            throw new CommandInvalidStateException(regionDirectory + " is not a directory");
+        }
+        if (ctx.worldData() == null) {
+            throw new CommandInvalidStateException("Chunk caching isn't available in this world");
+        }
+        CachedWorld cachedWorld = (CachedWorld) ctx.worldData().getCachedWorld();
+        BetterBlockPos feet = ctx.playerFeet();
+        int minChunkX = (feet.x - radius) >> 4;
+        int minChunkZ = (feet.z - radius) >> 4;
+        int maxChunkX = (feet.x + radius) >> 4;
+        int maxChunkZ = (feet.z + radius) >> 4;
+        Path path = regionDirectory.toPath();
+        logDirect(String.format("Importing chunks within %d blocks from %s", radius, regionDirectory));
+        Baritone.getExecutor().execute(() -> {
+            int imported = AnvilImporter.importArea(cachedWorld, path, minChunkX, minChunkZ, maxChunkX, maxChunkZ);
+            logDirect(String.format("Imported %d chunks", imported));
+        });
+    }
+
+    /**
+     * The region files of the dimension that the player is in, from the save of the integrated server
+     */
+    private File getSingleplayerRegionDirectory() throws CommandException {
+        if (!mc.isSingleplayer() || mc.getIntegratedServer() == null) {
+            throw new CommandInvalidStateException("Not in singleplayer, specify the directory of the region files to import");
+        }
+        WorldServer localServerWorld = mc.getIntegratedServer().getWorld(ctx.world().provider.getDimensionType().getId());
+        IChunkProviderServer provider = (IChunkProviderServer) localServerWorld.getChunkProvider();
+        IAnvilChunkLoader loader = (IAnvilChunkLoader) provider.getChunkLoader();
+        return new File(loader.getChunkSaveLocation(), "region");
+    }
+
+    @Override
+    public Stream<String> tabComplete(String label, IArgConsumer args) throws CommandException {
+        if (args.has(2)) {
+            args.get();
+            return RelativeFile.tabComplete(args, mc.gameDir.getAbsoluteFile());
+        }
+        return Stream.empty();
+    }
+
+    @Override
+    public String getShortDesc() {
+        return "Cache chunks from a world save";
+    }
+
+    @Override
+    public List<String> getLongDesc() {
+        return Arrays.asList(
+                "Fill the cache straight from the region files of a world save, so that an area can be pathed through without loading it first.",
+                "Chunks that are already cached more recently than they were saved are kept.",
+                "",
+                "Usage:",
+                "> import - Import the chunks within 1024 blocks of you from the singleplayer world.",
+                "> import <radius> - Import the chunks within that many blocks of you from the singleplayer world.",
+                "> import <radius> <directory> - Import from the .mca region files in a directory, such as a world download."
+        );
+    }
+}
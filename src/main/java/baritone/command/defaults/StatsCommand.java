@@ -0,0 +1,90 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.command.defaults;
+
+import baritone.api.IBaritone;
+import baritone.api.command.Command;
+import baritone.api.command.argument.IArgConsumer;
+import baritone.api.command.exception.CommandException;
+import baritone.api.command.exception.CommandInvalidStateException;
+import baritone.api.command.helpers.TabCompleteHelper;
+import baritone.api.metrics.MetricSnapshot;
+import baritone.utils.metrics.Metrics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class StatsCommand extends Command {
+
+    public StatsCommand(IBaritone baritone) {
+        super(baritone, "stats");
+    }
+
+    @Override
+    public void execute(String label, IArgConsumer args) throws CommandException {
+        args.requireMax(1);
+        String prefix = args.hasAny() ? args.getString() : "";
+        if (prefix.equalsIgnoreCase("reset")) {
+            Metrics.INSTANCE.reset();
+            logDirect("Reset all stats");
+            return;
+        }
+        int shown = 0;
+        for (MetricSnapshot metric : Metrics.INSTANCE.snapshot()) {
+            if (metric.getName().startsWith(prefix)) {
+                logDirect(metric.toString());
+                shown++;
+            }
+        }
+        if (shown == 0) {
+            throw new CommandInvalidStateException("No stats start with " + prefix);
+        }
+    }
+
+    @Override
+    public Stream<String> tabComplete(String label, IArgConsumer args) throws CommandException {
+        if (args.hasExactlyOne()) {
+            return new TabCompleteHelper()
+                    .append("reset")
+                    .append(Metrics.INSTANCE.snapshot().stream().map(MetricSnapshot::getName))
+                    .filterPrefix(args.getString())
+                    .stream();
+        }
+        return Stream.empty();
+    }
+
+    @Override
+    public String getShortDesc() {
+        return "Show what Baritone has been spending its time on";
+    }
+
+    @Override
+    public List<String> getLongDesc() {
+        return Arrays.asList(
+                "The stats command shows the counters, gauges and timings that Baritone keeps, such as how long path searches and cache saves take.",
+                "Timings show how many there were, their mean, their 50th, 90th and 99th percentiles, and the longest.",
+                "",
+                "Usage:",
+                "> stats - Show every stat.",
+                "> stats <prefix> - Show the stats whose names start with a prefix, such as path or cache.region.",
+                "> stats reset - Start every counter and timing over from zero."
+        );
+    }
+}
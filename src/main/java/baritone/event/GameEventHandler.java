@@ -23,8 +23,14 @@ import baritone.api.event.events.type.EventState;
 import baritone.api.event.listener.IEventBus;
 import baritone.api.event.listener.IGameEventListener;
 import baritone.api.utils.Helper;
+import baritone.cache.CachedWorld;
+import baritone.cache.LoadedBlockIndex;
+import baritone.cache.TrackedBlocks;
 import baritone.cache.WorldProvider;
 import baritone.utils.BlockStateInterface;
+import baritone.utils.metrics.Histogram;
+import baritone.utils.metrics.Metrics;
+import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
 import net.minecraft.world.chunk.Chunk;
 
@@ -37,6 +43,8 @@ import java.util.concurrent.CopyOnWriteArrayList;
  */
 public final class GameEventHandler implements IEventBus, Helper {
 
+    private static final Histogram TICK_TIME = Metrics.latency("tick.time");
+
     private final Baritone baritone;
 
     private final List<IGameEventListener> listeners = new CopyOnWriteArrayList<>();
@@ -47,6 +55,7 @@ public final class GameEventHandler implements IEventBus, Helper {
 
     @Override
     public final void onTick(TickEvent event) {
+        long start = System.nanoTime();
         if (event.getType() == TickEvent.Type.IN) {
             try {
                 baritone.bsi = new BlockStateInterface(baritone.getPlayerContext(), true);
@@ -57,6 +66,8 @@ public final class GameEventHandler implements IEventBus, Helper {
             baritone.bsi = null;
         }
         listeners.forEach(l -> l.onTick(event));
+        TICK_TIME.recordSince(start);
+        Metrics.INSTANCE.dumpIfDue();
     }
 
     @Override
@@ -91,10 +102,20 @@ public final class GameEventHandler implements IEventBus, Helper {
                 && type == ChunkEvent.Type.UNLOAD
                 && world.getChunkProvider().isChunkGeneratedAt(event.getX(), event.getZ());
 
+        if (isPostPopulate) {
+            LoadedBlockIndex.of(world).onChunkLoaded(world.getChunk(event.getX(), event.getZ()));
+        } else if (state == EventState.POST && type == ChunkEvent.Type.UNLOAD) {
+            LoadedBlockIndex.of(world).onChunkUnloaded(event.getX(), event.getZ());
+            baritone.getWorldProvider().ifWorldLoaded(worldData -> ((CachedWorld) worldData.getCachedWorld()).onLoadedChunkUnloaded(event.getX(), event.getZ()));
+        }
+
         if (isPostPopulate || isPreUnload) {
             baritone.getWorldProvider().ifWorldLoaded(worldData -> {
                 Chunk chunk = world.getChunk(event.getX(), event.getZ());
                 worldData.getCachedWorld().queueForPacking(chunk);
+                if (isPostPopulate) {
+                    ((CachedWorld) worldData.getCachedWorld()).onLoadedChunkChanged(event.getX(), event.getZ(), 0xFFFF);
+                }
             });
         }
 
@@ -102,6 +123,42 @@ public final class GameEventHandler implements IEventBus, Helper {
         listeners.forEach(l -> l.onChunkEvent(event));
     }
 
+    @Override
+    public final void onBlockChange(BlockChangeEvent event) {
+        World world = baritone.getPlayerContext().world();
+        LoadedBlockIndex.of(world).onBlocksChanged(event.getX(), event.getZ(), event.getPositions(), event.getStates());
+        baritone.getWorldProvider().ifWorldLoaded(worldData -> {
+            int sections = 0;
+            for (BlockPos pos : event.getPositions()) {
+                if (pos.getY() >= 0 && pos.getY() < 256) {
+                    sections |= 1 << (pos.getY() >> 4);
+                }
+            }
+            ((CachedWorld) worldData.getCachedWorld()).onLoadedChunkChanged(event.getX(), event.getZ(), sections);
+            if (Baritone.settings().repackOnAnyBlockChange.value) {
+                Chunk chunk = world.getChunk(event.getX(), event.getZ());
+                worldData.getCachedWorld().queueBlockChanges(chunk, event.getPositions());
+            }
+        });
+
+        listeners.forEach(l -> l.onBlockChange(event));
+
+        // listeners used to be told about a changed tracked block as the whole chunk being populated, keep doing that
+        // for them, without repacking the whole chunk for it here
+        if (Baritone.settings().repackOnAnyBlockChange.value) {
+            TrackedBlocks tracked = TrackedBlocks.current();
+            if (event.getStates().stream().anyMatch(state -> tracked.contains(state.getBlock()))) {
+                ChunkEvent populated = new ChunkEvent(EventState.POST, ChunkEvent.Type.POPULATE_FULL, event.getX(), event.getZ());
+                listeners.forEach(l -> l.onChunkEvent(populated));
+            }
+        }
+    }
+
+    @Override
+    public final void onInventoryUpdate(InventoryUpdateEvent event) {
+        listeners.forEach(l -> l.onInventoryUpdate(event));
+    }
+
     @Override
     public final void onRenderPass(RenderEvent event) {
         listeners.forEach(l -> l.onRenderPass(event));
@@ -25,8 +25,16 @@ import baritone.api.utils.BetterBlockPos;
 import baritone.api.utils.Helper;
 import baritone.api.utils.PathCalculationResult;
 import baritone.pathing.movement.CalculationContext;
+import baritone.utils.jfr.JfrEvents;
+import baritone.utils.jfr.PathSearchEvent;
+import baritone.utils.metrics.Counter;
+import baritone.utils.metrics.Histogram;
+import baritone.utils.metrics.Metrics;
 import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -59,6 +67,12 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
 
     protected boolean cancelRequested;
 
+    /**
+     * How many nodes {@link #calculate0} expanded, and how many movements it considered from them
+     */
+    protected int expandedNodes;
+    protected int movementsConsidered;
+
     /**
      * This is really complicated and hard to explain. I wrote a comment in the old version of MineBot but it was so
      * long it was easier as a Google Doc (because I could insert charts).
@@ -81,6 +95,19 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
      */
     protected static final double MIN_IMPROVEMENT = 0.01;
 
+    private static final Histogram SEARCH_TIME = Metrics.latency("path.search.time");
+    private static final Histogram SEARCH_NODES = Metrics.histogram("path.search.nodes", "nodes");
+    private static final Histogram SEARCH_MOVEMENTS = Metrics.histogram("path.search.movements", "movements");
+    private static final Histogram SEARCH_MAP_SIZE = Metrics.histogram("path.search.map_size", "nodes");
+    private static final Histogram NODES_PER_SECOND = Metrics.histogram("path.search.nodes_per_second", "nodes/s");
+    private static final Map<PathCalculationResult.Type, Counter> RESULTS = new EnumMap<>(PathCalculationResult.Type.class);
+
+    static {
+        for (PathCalculationResult.Type type : PathCalculationResult.Type.values()) {
+            RESULTS.put(type, Metrics.counter("path.result." + type.name().toLowerCase(Locale.ROOT), "searches"));
+        }
+    }
+
     AbstractNodeCostSearch(int startX, int startY, int startZ, Goal goal, CalculationContext context) {
         this.startX = startX;
         this.startY = startY;
@@ -96,6 +123,23 @@ public abstract class AbstractNodeCostSearch implements IPathFinder, Helper {
 
     @Override
     public synchronized PathCalculationResult calculate(long primaryTimeout, long failureTimeout) {
+        long start = System.nanoTime();
+        PathSearchEvent event = JfrEvents.beginPathSearch();
+        PathCalculationResult result = calculatePath(primaryTimeout, failureTimeout);
+        JfrEvents.endPathSearch(event, goal, expandedNodes, movementsConsidered, mapSize(), result.getType());
+        long elapsed = System.nanoTime() - start;
+        SEARCH_TIME.record(elapsed);
+        SEARCH_NODES.record(expandedNodes);
+        SEARCH_MOVEMENTS.record(movementsConsidered);
+        SEARCH_MAP_SIZE.record(mapSize());
+        if (elapsed > 0) {
+            NODES_PER_SECOND.record(expandedNodes * 1000000000L / elapsed);
+        }
+        RESULTS.get(result.getType()).increment();
+        return result;
+    }
+
+    private PathCalculationResult calculatePath(long primaryTimeout, long failureTimeout) {
         if (isFinished) {
             throw new IllegalStateException("Path finder cannot be reused!");
         }
@@ -40,6 +40,7 @@ import baritone.pathing.movement.Movement;
 import baritone.pathing.movement.MovementHelper;
 import baritone.utils.BaritoneProcessHelper;
 import baritone.utils.BlockStateInterface;
+import baritone.utils.InventoryIndex;
 import baritone.utils.PathingCommandContext;
 import baritone.utils.schematic.MapArtSchematic;
 import baritone.utils.schematic.SchematicSystem;
@@ -367,7 +368,10 @@ public final class BuilderProcess extends BaritoneProcessHelper implements IBuil
     }
 
     private OptionalInt hasAnyItemThatWouldPlace(IBlockState desired, RayTraceResult result, Rotation rot) {
-        for (int i = 0; i < 9; i++) {
+        // only slots with blocks in them, in order, since what they place has to be worked out for this exact spot
+        long blocks = InventoryIndex.HOTBAR & baritone.getInventoryBehavior().index().blocks();
+        for (; blocks != 0; blocks &= blocks - 1) {
+            int i = Long.numberOfTrailingZeros(blocks);
             ItemStack stack = ctx.player().inventory.mainInventory.get(i);
             if (stack.isEmpty() || !(stack.getItem() instanceof ItemBlock)) {
                 continue;
@@ -423,7 +427,7 @@ public final class BuilderProcess extends BaritoneProcessHelper implements IBuil
         if (recursions > 1000) { // onTick calls itself, don't crash
             return new PathingCommand(null, PathingCommandType.SET_GOAL_AND_PATH);
         }
-        approxPlaceable = approxPlaceable(36);
+        approxPlaceable = baritone.getInventoryBehavior().index().placeable(ctx, 0, 36);
         if (baritone.getInputOverrideHandler().isInputForcedDown(Input.CLICK_LEFT)) {
             ticks = 5;
         } else {
@@ -879,21 +883,6 @@ public final class BuilderProcess extends BaritoneProcessHelper implements IBuil
         return paused ? "Builder Paused" : "Building " + name;
     }
 
-    private List<IBlockState> approxPlaceable(int size) {
-        List<IBlockState> result = new ArrayList<>();
-        for (int i = 0; i < size; i++) {
-            ItemStack stack = ctx.player().inventory.mainInventory.get(i);
-            if (stack.isEmpty() || !(stack.getItem() instanceof ItemBlock)) {
-                result.add(Blocks.AIR.getDefaultState());
-                continue;
-            }
-            // <toxic cloud>
-            result.add(((ItemBlock) stack.getItem()).getBlock().getStateForPlacement(ctx.world(), ctx.playerFeet(), EnumFacing.UP, (float) ctx.player().posX, (float) ctx.player().posY, (float) ctx.player().posZ, stack.getItem().getMetadata(stack.getMetadata()), ctx.player()));
-            // </toxic cloud>
-        }
-        return result;
-    }
-
     public static final Set<IProperty<?>> orientationProps =
             ImmutableSet.of(BlockRotatedPillar.AXIS, BlockLog.LOG_AXIS, BlockHorizontal.FACING,
                     BlockStairs.FACING, BlockStairs.HALF, BlockStairs.SHAPE,
@@ -960,7 +949,7 @@ public final class BuilderProcess extends BaritoneProcessHelper implements IBuil
 
         public BuilderCalculationContext() {
             super(BuilderProcess.this.baritone, true); // wew lad
-            this.placeable = approxPlaceable(9);
+            this.placeable = BuilderProcess.this.baritone.getInventoryBehavior().index().placeable(BuilderProcess.this.ctx, 0, 9);
             this.schematic = BuilderProcess.this.schematic;
             this.originX = origin.getX();
             this.originY = origin.getY();
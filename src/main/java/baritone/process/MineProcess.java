@@ -19,13 +19,14 @@ package baritone.process;
 
 import baritone.Baritone;
 import baritone.api.BaritoneAPI;
+import baritone.api.cache.ICachedWorld;
 import baritone.api.pathing.goals.*;
 import baritone.api.process.IMineProcess;
 import baritone.api.process.PathingCommand;
 import baritone.api.process.PathingCommandType;
 import baritone.api.utils.*;
 import baritone.api.utils.input.Input;
-import baritone.cache.CachedChunk;
+import baritone.cache.TrackedBlocks;
 import baritone.cache.WorldScanner;
 import baritone.pathing.movement.CalculationContext;
 import baritone.pathing.movement.MovementHelper;
@@ -56,6 +57,7 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
     private static final int ORE_LOCATIONS_COUNT = 64;
 
     private BlockOptionalMetaLookup filter;
+    private OreCandidates candidates;
     private List<BlockPos> knownOreLocations;
     private List<BlockPos> blacklist; // inaccessible
     private Map<BlockPos, Long> anticipatedDrops;
@@ -64,6 +66,12 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
     private int desiredQuantity;
     private int tickCount;
 
+    /**
+     * The goal made from the candidates the last time they changed, and which version of them it was
+     */
+    private Goal candidatesGoal;
+    private long candidatesGoalVersion = -1;
+
     public MineProcess(Baritone baritone) {
         super(baritone);
     }
@@ -92,7 +100,12 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
                 if (Baritone.settings().notificationOnMineFail.value) {
                     logNotification("Unable to find any path to " + filter + ", blacklisting presumably unreachable closest instance...", true);
                 }
-                knownOreLocations.stream().min(Comparator.comparingDouble(ctx.player()::getDistanceSq)).ifPresent(blacklist::add);
+                knownOreLocations.stream().min(Comparator.comparingDouble(ctx.player()::getDistanceSq)).ifPresent(pos -> {
+                    blacklist.add(pos);
+                    if (candidates != null) {
+                        candidates.remove(pos);
+                    }
+                });
                 knownOreLocations.removeIf(blacklist::contains);
             } else {
                 logDirect("Unable to find any path to " + filter + ", canceling mine");
@@ -105,9 +118,11 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
         }
 
         updateLoucaSystem();
+        updateCandidates();
         int mineGoalUpdateInterval = Baritone.settings().mineGoalUpdateInterval.value;
         List<BlockPos> curr = new ArrayList<>(knownOreLocations);
-        if (mineGoalUpdateInterval != 0 && tickCount++ % mineGoalUpdateInterval == 0) { // big brain
+        // while changes are being tracked, the world is only searched again when that could find something new
+        if (mineGoalUpdateInterval != 0 && tickCount++ % mineGoalUpdateInterval == 0 && (candidates == null || candidates.claimSearch())) { // big brain
             CalculationContext context = new CalculationContext(baritone, true);
             Baritone.getExecutor().execute(() -> rescan(curr, context));
         }
@@ -182,12 +197,26 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
         }
 
         boolean legit = Baritone.settings().legitMine.value;
+        if (candidates != null) {
+            CalculationContext context = new CalculationContext(baritone);
+            List<BlockPos> locs = candidates.refresh(context, ORE_LOCATIONS_COUNT, blacklist, droppedItemsScan());
+            if (!locs.isEmpty()) {
+                // the goal is only made again if the candidates or the blocks around them changed
+                long version = candidates.version();
+                if (candidatesGoal == null || version != candidatesGoalVersion || !locs.equals(knownOreLocations)) {
+                    candidatesGoal = goalFor(locs, context);
+                    candidatesGoalVersion = version;
+                }
+                knownOreLocations = locs;
+                return new PathingCommand(candidatesGoal, PathingCommandType.REVALIDATE_GOAL_AND_PATH);
+            }
+            knownOreLocations = locs;
+        }
         List<BlockPos> locs = knownOreLocations;
-        if (!locs.isEmpty()) {
+        if (candidates == null && !locs.isEmpty()) {
             CalculationContext context = new CalculationContext(baritone);
             List<BlockPos> locs2 = prune(context, new ArrayList<>(locs), filter, ORE_LOCATIONS_COUNT, blacklist, droppedItemsScan());
-            // can't reassign locs, gotta make a new var locs2, because we use it in a lambda right here, and variables you use in a lambda must be effectively final
-            Goal goal = new GoalComposite(locs2.stream().map(loc -> coalesce(loc, locs2, context)).toArray(Goal[]::new));
+            Goal goal = goalFor(locs2, context);
             knownOreLocations = locs2;
             return new PathingCommand(goal, legit ? PathingCommandType.FORCE_REVALIDATE_GOAL_AND_PATH : PathingCommandType.REVALIDATE_GOAL_AND_PATH);
         }
@@ -225,6 +254,21 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
         return new PathingCommand(branchPointRunaway, PathingCommandType.REVALIDATE_GOAL_AND_PATH);
     }
 
+    /**
+     * @return A goal of every block, or with {@link baritone.api.Settings#mineRouteWindow} set, of just the next few on
+     * the planned route
+     */
+    private Goal goalFor(List<BlockPos> locs, CalculationContext context) {
+        int window = Baritone.settings().mineRouteWindow.value;
+        List<BlockPos> targets = locs;
+        if (window > 0) {
+            List<BlockPos> route = MiningRoute.plan(ctx.playerFeet(), locs);
+            targets = route.subList(0, Math.min(window, route.size()));
+        }
+        // the rest of the blocks still decide how each target is approached
+        return new GoalComposite(targets.stream().map(loc -> coalesce(loc, locs, context)).toArray(Goal[]::new));
+    }
+
     private void rescan(List<BlockPos> already, CalculationContext context) {
         BlockOptionalMetaLookup filter = filterFilter();
         if (filter == null) {
@@ -235,8 +279,12 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
         }
         List<BlockPos> dropped = droppedItemsScan();
         List<BlockPos> locs = searchWorld(context, filter, ORE_LOCATIONS_COUNT, already, blacklist, dropped);
+        OreCandidates candidates = this.candidates;
+        if (candidates != null) {
+            candidates.addSearched(locs);
+        }
         locs.addAll(dropped);
-        if (locs.isEmpty() && !Baritone.settings().exploreForBlocks.value) {
+        if (locs.isEmpty() && (candidates == null || candidates.isEmpty()) && !Baritone.settings().exploreForBlocks.value) {
             logDirect("No locations for " + filter + " known, cancelling");
             if (Baritone.settings().notificationOnMineFail.value) {
                 logNotification("No locations for " + filter + " known, cancelling", true);
@@ -343,7 +391,7 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
         List<Block> untracked = new ArrayList<>();
         for (BlockOptionalMeta bom : filter.blocks()) {
             Block block = bom.getBlock();
-            if (CachedChunk.BLOCKS_TO_KEEP_TRACK_OF.contains(block)) {
+            if (TrackedBlocks.current().contains(block)) {
                 BetterBlockPos pf = ctx.baritone.getPlayerContext().playerFeet();
 
                 // maxRegionDistanceSq 2 means adjacent directly or adjacent diagonally; nothing further than that
@@ -408,7 +456,7 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
         return true;
     }
 
-    private static List<BlockPos> prune(CalculationContext ctx, List<BlockPos> locs2, BlockOptionalMetaLookup filter, int max, List<BlockPos> blacklist, List<BlockPos> dropped) {
+    static List<BlockPos> prune(CalculationContext ctx, List<BlockPos> locs2, BlockOptionalMetaLookup filter, int max, List<BlockPos> blacklist, List<BlockPos> dropped) {
         dropped.removeIf(drop -> {
             for (BlockPos pos : locs2) {
                 if (pos.distanceSq(drop) <= 9 && filter.has(ctx.get(pos.getX(), pos.getY(), pos.getZ())) && MineProcess.plausibleToBreak(ctx, pos)) { // TODO maybe drop also has to be supported? no lava below?
@@ -490,11 +538,34 @@ public final class MineProcess extends BaritoneProcessHelper implements IMinePro
         this.branchPoint = null;
         this.branchPointRunaway = null;
         this.anticipatedDrops = new HashMap<>();
+        if (candidates != null) {
+            candidates.stop();
+            candidates = null;
+        }
+        updateCandidates();
         if (filter != null) {
             rescan(new ArrayList<>(), new CalculationContext(baritone));
         }
     }
 
+    /**
+     * Starts or stops keeping track of changes, depending on the settings and the world
+     */
+    private void updateCandidates() {
+        BlockOptionalMetaLookup filter = this.filter == null ? null : filterFilter();
+        boolean track = filter != null && Baritone.settings().mineTrackChanges.value && !Baritone.settings().legitMine.value && ctx.worldData() != null;
+        ICachedWorld cachedWorld = track ? ctx.worldData().getCachedWorld() : null;
+        if (candidates != null && (!track || !candidates.isFor(cachedWorld))) {
+            candidates.stop();
+            candidates = null;
+        }
+        if (track && candidates == null) {
+            candidates = new OreCandidates(ctx, cachedWorld, filter);
+            candidates.start();
+            candidatesGoal = null;
+        }
+    }
+
     private BlockOptionalMetaLookup filterFilter() {
         if (this.filter == null) {
             return null;
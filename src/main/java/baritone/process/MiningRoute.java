@@ -0,0 +1,212 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.process;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static baritone.api.pathing.movement.ActionCosts.JUMP_ONE_BLOCK_COST;
+import static baritone.api.pathing.movement.ActionCosts.WALK_ONE_BLOCK_COST;
+
+/**
+ * Plans the order to mine blocks in, instead of always going for whichever is nearest.
+ * <p>
+ * Blocks that touch, even diagonally, are grouped into veins, and each vein is mined all at once. The veins are put in
+ * order with nearest neighbour from the start, and the order is then improved with 2-opt until no swap shortens it.
+ * Within a vein, blocks go in nearest neighbour order from wherever the route comes in. Travel is estimated the same
+ * way in both directions, from the horizontal and vertical distance, since anything better would need a path.
+ */
+final class MiningRoute {
+
+    private MiningRoute() {}
+
+    /**
+     * @param start Where the route starts, usually the player
+     * @param ores  The blocks to mine
+     * @return The same blocks, in the order to mine them
+     */
+    static List<BlockPos> plan(BlockPos start, List<BlockPos> ores) {
+        List<List<BlockPos>> veins = veins(ores);
+        int[] order = orderVeins(start, veins);
+        List<BlockPos> route = new ArrayList<>(ores.size());
+        BlockPos at = start;
+        for (int vein : order) {
+            List<BlockPos> remaining = new ArrayList<>(veins.get(vein));
+            while (!remaining.isEmpty()) {
+                int next = nearest(at, remaining);
+                at = remaining.remove(next);
+                route.add(at);
+            }
+        }
+        return route;
+    }
+
+    /**
+     * @return The estimated cost, in ticks, of going from one block to another
+     */
+    static double cost(BlockPos a, BlockPos b) {
+        int x = Math.abs(a.getX() - b.getX());
+        int y = Math.abs(a.getY() - b.getY());
+        int z = Math.abs(a.getZ() - b.getZ());
+        // walk diagonally as far as possible, then straight, the same as GoalXZ
+        double horizontal = Math.abs(x - z) + Math.min(x, z) * Math.sqrt(2);
+        return horizontal * WALK_ONE_BLOCK_COST + y * JUMP_ONE_BLOCK_COST;
+    }
+
+    /**
+     * @return The estimated cost of going from the start through every block in order
+     */
+    static double length(BlockPos start, List<BlockPos> route) {
+        double length = 0;
+        BlockPos at = start;
+        for (BlockPos pos : route) {
+            length += cost(at, pos);
+            at = pos;
+        }
+        return length;
+    }
+
+    /**
+     * @return The blocks, grouped with every block they touch, and every block those touch, and so on
+     */
+    static List<List<BlockPos>> veins(List<BlockPos> ores) {
+        int[] parent = new int[ores.size()];
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        for (int i = 0; i < ores.size(); i++) {
+            for (int j = i + 1; j < ores.size(); j++) {
+                if (touching(ores.get(i), ores.get(j))) {
+                    parent[root(parent, i)] = root(parent, j);
+                }
+            }
+        }
+        List<List<BlockPos>> veins = new ArrayList<>();
+        int[] veinOf = new int[ores.size()];
+        for (int i = 0; i < ores.size(); i++) {
+            int root = root(parent, i);
+            if (root == i) {
+                veinOf[i] = veins.size();
+                veins.add(new ArrayList<>());
+            }
+        }
+        for (int i = 0; i < ores.size(); i++) {
+            veins.get(veinOf[root(parent, i)]).add(ores.get(i));
+        }
+        return veins;
+    }
+
+    private static boolean touching(BlockPos a, BlockPos b) {
+        return Math.abs(a.getX() - b.getX()) <= 1 && Math.abs(a.getY() - b.getY()) <= 1 && Math.abs(a.getZ() - b.getZ()) <= 1;
+    }
+
+    private static int root(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Nearest neighbour then 2-opt, over the vein that each block is in, with the route free to end anywhere
+     *
+     * @return The indices of the veins, in the order to visit them
+     */
+    private static int[] orderVeins(BlockPos start, List<List<BlockPos>> veins) {
+        int n = veins.size();
+        // points[0] is the start, points[i + 1] stands in for vein i
+        BlockPos[] points = new BlockPos[n + 1];
+        points[0] = start;
+        for (int i = 0; i < n; i++) {
+            points[i + 1] = center(veins.get(i));
+        }
+        double[][] costs = new double[n + 1][n + 1];
+        for (int i = 0; i <= n; i++) {
+            for (int j = i + 1; j <= n; j++) {
+                costs[i][j] = costs[j][i] = cost(points[i], points[j]);
+            }
+        }
+        int[] tour = new int[n + 1];
+        boolean[] visited = new boolean[n + 1];
+        visited[0] = true;
+        for (int i = 1; i <= n; i++) {
+            int best = -1;
+            for (int j = 1; j <= n; j++) {
+                if (!visited[j] && (best == -1 || costs[tour[i - 1]][j] < costs[tour[i - 1]][best])) {
+                    best = j;
+                }
+            }
+            tour[i] = best;
+            visited[best] = true;
+        }
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int i = 1; i < n; i++) {
+                for (int j = i + 1; j <= n; j++) {
+                    // reversing tour[i..j] swaps the edges into and out of it, the ones inside cost the same backwards
+                    double before = costs[tour[i - 1]][tour[i]] + (j < n ? costs[tour[j]][tour[j + 1]] : 0);
+                    double after = costs[tour[i - 1]][tour[j]] + (j < n ? costs[tour[i]][tour[j + 1]] : 0);
+                    if (after < before - 1e-9) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int swap = tour[a];
+                            tour[a] = tour[b];
+                            tour[b] = swap;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = tour[i + 1] - 1;
+        }
+        return order;
+    }
+
+    /**
+     * @return The block of a vein nearest to the middle of it
+     */
+    private static BlockPos center(List<BlockPos> vein) {
+        double x = 0;
+        double y = 0;
+        double z = 0;
+        for (BlockPos pos : vein) {
+            x += pos.getX();
+            y += pos.getY();
+            z += pos.getZ();
+        }
+        BlockPos middle = new BlockPos(x / vein.size(), y / vein.size(), z / vein.size());
+        return vein.get(nearest(middle, vein));
+    }
+
+    private static int nearest(BlockPos from, List<BlockPos> to) {
+        int best = 0;
+        for (int i = 1; i < to.size(); i++) {
+            if (cost(from, to.get(i)) < cost(from, to.get(best))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+}
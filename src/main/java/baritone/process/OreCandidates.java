@@ -0,0 +1,334 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.process;
+
+import baritone.api.BaritoneAPI;
+import baritone.api.cache.ChunkChange;
+import baritone.api.cache.ICachedWorld;
+import baritone.api.cache.IChunkChangeListener;
+import baritone.api.utils.BetterBlockPos;
+import baritone.api.utils.BlockOptionalMetaLookup;
+import baritone.api.utils.IPlayerContext;
+import baritone.pathing.movement.CalculationContext;
+import it.unimi.dsi.fastutil.longs.*;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The blocks that a {@link MineProcess} knows of, kept up to date from the chunk changes of the cached world rather
+ * than by searching the whole area again every few ticks.
+ * <p>
+ * When a loaded chunk changes, the sections that changed are scanned again, so mined blocks drop out and new ones show
+ * up as soon as the change is delivered. Candidates in and around those sections are checked again by
+ * {@link MineProcess#prune} the next time the goal is updated, and everything else keeps the result it had, so a tick
+ * where nothing changed checks nothing. Candidates in chunks that unload are kept, same as a search that finds them in
+ * the cache would. A change to the cached copy of a chunk that was never seen loaded only asks for the next search to
+ * look at the cache again.
+ */
+final class OreCandidates implements IChunkChangeListener {
+
+    /**
+     * The most candidates kept, the chunks farthest from the player are forgotten past this
+     */
+    private static final int MAX_CANDIDATES = 1024;
+
+    /**
+     * The most candidates kept from scanning one chunk
+     */
+    private static final int MAX_PER_CHUNK = 64;
+
+    private final IPlayerContext ctx;
+
+    private final ICachedWorld cachedWorld;
+
+    private final BlockOptionalMetaLookup filter;
+
+    /*
+     * The rest are guarded by this. Positions are packed as by BetterBlockPos.toLong, and chunks as by ChunkPos.asLong
+     */
+
+    /**
+     * Every candidate, by the chunk that it's in
+     */
+    private final Long2ObjectMap<LongSet> byChunk = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * The candidates that passed their last check
+     */
+    private final LongSet valid = new LongOpenHashSet();
+
+    /**
+     * The candidates that need to be checked again, with the value of {@link #version} when they were marked, so that
+     * one that's marked again while it's being checked stays marked
+     */
+    private final Long2LongMap unchecked = new Long2LongOpenHashMap();
+
+    /**
+     * The loaded chunks that have been scanned, whose cached copies don't have anything that isn't known already
+     */
+    private final LongSet scannedChunks = new LongOpenHashSet();
+
+    private int size;
+
+    /**
+     * Goes up with every change to the candidates or to the blocks around them
+     */
+    private long version;
+
+    private boolean searchWanted = true;
+
+    OreCandidates(IPlayerContext ctx, ICachedWorld cachedWorld, BlockOptionalMetaLookup filter) {
+        this.ctx = ctx;
+        this.cachedWorld = cachedWorld;
+        this.filter = filter;
+    }
+
+    boolean isFor(ICachedWorld cachedWorld) {
+        return this.cachedWorld == cachedWorld;
+    }
+
+    void start() {
+        cachedWorld.addChunkChangeListener(this);
+    }
+
+    void stop() {
+        cachedWorld.removeChunkChangeListener(this);
+    }
+
+    /**
+     * @return Whether the world should be searched, because nothing worth mining is known or the cache has something
+     * new. A search is only asked for once per change.
+     */
+    synchronized boolean claimSearch() {
+        boolean search = searchWanted || (valid.isEmpty() && unchecked.isEmpty());
+        searchWanted = false;
+        return search;
+    }
+
+    synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    synchronized long version() {
+        return version;
+    }
+
+    /**
+     * Adds what a search of the world found, anything already known is left as it is
+     */
+    synchronized void addSearched(List<BlockPos> found) {
+        for (BlockPos pos : found) {
+            add(BetterBlockPos.toLong(pos.getX(), pos.getY(), pos.getZ()));
+        }
+        trim();
+    }
+
+    synchronized void remove(BlockPos pos) {
+        remove(BetterBlockPos.toLong(pos.getX(), pos.getY(), pos.getZ()));
+    }
+
+    @Override
+    public void onChunksChanged(List<ChunkChange> changes) {
+        for (ChunkChange change : changes) {
+            if (change.getType() == ChunkChange.Type.LOADED) {
+                rescan(change.getX(), change.getZ(), change.getSections());
+            } else {
+                synchronized (this) {
+                    if (!scannedChunks.contains(ChunkPos.asLong(change.getX(), change.getZ()))) {
+                        searchWanted = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks the candidates that were marked, and picks the nearest ones that are worth mining
+     *
+     * @param dropped Where items that are being mined for are on the ground, which are included too
+     * @return The nearest ones, nearest first
+     */
+    List<BlockPos> refresh(CalculationContext context, int max, List<BlockPos> blacklist, List<BlockPos> dropped) {
+        Long2LongMap toCheck;
+        synchronized (this) {
+            toCheck = new Long2LongOpenHashMap(unchecked);
+        }
+        if (!toCheck.isEmpty()) {
+            List<BlockPos> positions = new ArrayList<>(toCheck.size());
+            for (long packed : toCheck.keySet()) {
+                positions.add(BlockPos.fromLong(packed));
+            }
+            LongSet passed = new LongOpenHashSet();
+            for (BlockPos pos : MineProcess.prune(context, positions, filter, Integer.MAX_VALUE, blacklist, new ArrayList<>())) {
+                passed.add(BetterBlockPos.toLong(pos.getX(), pos.getY(), pos.getZ()));
+            }
+            synchronized (this) {
+                for (Long2LongMap.Entry entry : toCheck.long2LongEntrySet()) {
+                    long packed = entry.getLongKey();
+                    if (unchecked.containsKey(packed) && unchecked.get(packed) == entry.getLongValue()) {
+                        unchecked.remove(packed);
+                        if (passed.contains(packed)) {
+                            valid.add(packed);
+                        }
+                    }
+                }
+                version++;
+            }
+        }
+        List<BlockPos> result = new ArrayList<>();
+        synchronized (this) {
+            for (long packed : valid) {
+                result.add(BlockPos.fromLong(packed));
+            }
+        }
+        // same as in prune, a drop next to a block that's still there probably didn't come from it
+        dropped.removeIf(drop -> result.stream().anyMatch(pos -> pos.distanceSq(drop) <= 9));
+        if (!dropped.isEmpty()) {
+            result.addAll(MineProcess.prune(context, new ArrayList<>(dropped), filter, Integer.MAX_VALUE, blacklist, dropped));
+        }
+        result.sort(Comparator.comparingDouble(context.getBaritone().getPlayerContext().player()::getDistanceSq));
+        return result.size() > max ? new ArrayList<>(result.subList(0, max)) : result;
+    }
+
+    /**
+     * Scans the sections of a loaded chunk that changed, and marks everything near them to be checked again
+     */
+    private void rescan(int chunkX, int chunkZ, int sections) {
+        if (ctx.player() == null || ctx.world() == null || !ctx.world().getChunkProvider().isChunkGeneratedAt(chunkX, chunkZ)) {
+            return;
+        }
+        List<BlockPos> found = BaritoneAPI.getProvider().getWorldScanner().scanChunkSections(ctx, filter, new ChunkPos(chunkX, chunkZ), sections);
+        long key = ChunkPos.asLong(chunkX, chunkZ);
+        synchronized (this) {
+            LongSet old = byChunk.get(key);
+            if (old != null) {
+                for (long packed : old.toLongArray()) {
+                    if (inSections(packed, sections)) {
+                        remove(packed);
+                    }
+                }
+            }
+            LongSet current = byChunk.get(key);
+            int count = current == null ? 0 : current.size();
+            for (BlockPos pos : found) {
+                if (count >= MAX_PER_CHUNK) {
+                    break;
+                }
+                long packed = BetterBlockPos.toLong(pos.getX(), pos.getY(), pos.getZ());
+                if (inSections(packed, sections) && add(packed)) {
+                    count++;
+                }
+            }
+            // what's around a block decides whether it's worth mining, so the sections next to a change are checked too
+            int near = sections | (sections << 1) | (sections >>> 1);
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    LongSet inChunk = byChunk.get(ChunkPos.asLong(chunkX + dx, chunkZ + dz));
+                    if (inChunk == null) {
+                        continue;
+                    }
+                    for (long packed : inChunk) {
+                        if (inSections(packed, near)) {
+                            mark(packed);
+                        }
+                    }
+                }
+            }
+            scannedChunks.add(key);
+            version++;
+            trim();
+        }
+    }
+
+    private static boolean inSections(long packed, int sections) {
+        int y = BetterBlockPos.yFromLong(packed);
+        return y >= 0 && y < 256 && (sections & (1 << (y >> 4))) != 0;
+    }
+
+    private static long chunkOf(long packed) {
+        return ChunkPos.asLong(BetterBlockPos.xFromLong(packed) >> 4, BetterBlockPos.zFromLong(packed) >> 4);
+    }
+
+    /**
+     * @return Whether it wasn't known already
+     */
+    private boolean add(long packed) {
+        if (!byChunk.computeIfAbsent(chunkOf(packed), k -> new LongOpenHashSet()).add(packed)) {
+            return false;
+        }
+        size++;
+        mark(packed);
+        return true;
+    }
+
+    private void remove(long packed) {
+        long chunk = chunkOf(packed);
+        LongSet inChunk = byChunk.get(chunk);
+        if (inChunk == null || !inChunk.remove(packed)) {
+            return;
+        }
+        if (inChunk.isEmpty()) {
+            byChunk.remove(chunk);
+        }
+        size--;
+        valid.remove(packed);
+        unchecked.remove(packed);
+        version++;
+    }
+
+    private void mark(long packed) {
+        valid.remove(packed);
+        unchecked.put(packed, ++version);
+    }
+
+    /**
+     * Forgets the chunks farthest from the player until there aren't too many candidates
+     */
+    private void trim() {
+        if (size <= MAX_CANDIDATES || ctx.player() == null) {
+            return;
+        }
+        BetterBlockPos feet = ctx.playerFeet();
+        long[] chunks = byChunk.keySet().toLongArray();
+        long[] distances = new long[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            // undoing ChunkPos.asLong
+            long dx = (int) chunks[i] - (feet.x >> 4);
+            long dz = (int) (chunks[i] >>> 32) - (feet.z >> 4);
+            distances[i] = dx * dx + dz * dz;
+        }
+        while (size > MAX_CANDIDATES) {
+            int farthest = 0;
+            for (int i = 1; i < chunks.length; i++) {
+                if (distances[i] > distances[farthest]) {
+                    farthest = i;
+                }
+            }
+            for (long packed : byChunk.get(chunks[farthest]).toLongArray()) {
+                remove(packed);
+            }
+            scannedChunks.remove(chunks[farthest]);
+            distances[farthest] = -1;
+        }
+    }
+}
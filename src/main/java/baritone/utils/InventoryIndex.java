@@ -0,0 +1,261 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.utils;
+
+import baritone.api.utils.IPlayerContext;
+import it.unimi.dsi.fastutil.objects.Reference2LongOpenHashMap;
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.entity.player.InventoryPlayer;
+import net.minecraft.init.Blocks;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemBlock;
+import net.minecraft.item.ItemPickaxe;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.EnumFacing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Which slots of the player's inventory hold each item and each block, so that finding something doesn't mean looking
+ * through every slot.
+ * <p>
+ * What a block is placed as can depend on where the player is and which way they're facing, so that isn't kept here.
+ * Only the block and the metadata it's placed with are, and the state is worked out from them when it's asked for.
+ * <p>
+ * An index is never changed once made, {@link #with} makes a new one for a single changed slot, so one can be read from
+ * any thread. Slots are the indices of {@link InventoryPlayer}, and sets of them are masks with bit {@code i} for slot
+ * {@code i}.
+ */
+public final class InventoryIndex {
+
+    public static final long HOTBAR = (1L << 9) - 1;
+
+    /**
+     * The hotbar and the rest of the main inventory, without the armor or the off hand
+     */
+    public static final long MAIN = (1L << 36) - 1;
+
+    public static final int OFFHAND = 40;
+
+    private static final int SLOTS = OFFHAND + 1;
+
+    private final EntityPlayer player;
+
+    private final Item[] items;
+
+    /**
+     * The block that each slot would place, or air if it doesn't hold a block
+     */
+    private final Block[] blocks;
+
+    /**
+     * The metadata that the block in each slot would be placed with
+     */
+    private final int[] metas;
+
+    private final long pickaxes;
+
+    private final Reference2LongOpenHashMap<Item> slotsByItem;
+
+    private final Reference2LongOpenHashMap<Block> slotsByBlock;
+
+    private InventoryIndex(EntityPlayer player, Item[] items, Block[] blocks, int[] metas, long pickaxes, Reference2LongOpenHashMap<Item> slotsByItem, Reference2LongOpenHashMap<Block> slotsByBlock) {
+        this.player = player;
+        this.items = items;
+        this.blocks = blocks;
+        this.metas = metas;
+        this.pickaxes = pickaxes;
+        this.slotsByItem = slotsByItem;
+        this.slotsByBlock = slotsByBlock;
+    }
+
+    /**
+     * @return An index of every slot of the player's inventory as it is now
+     */
+    public static InventoryIndex of(IPlayerContext ctx) {
+        Item[] items = new Item[SLOTS];
+        Block[] blocks = new Block[SLOTS];
+        int[] metas = new int[SLOTS];
+        long pickaxes = 0;
+        Reference2LongOpenHashMap<Item> slotsByItem = new Reference2LongOpenHashMap<>();
+        Reference2LongOpenHashMap<Block> slotsByBlock = new Reference2LongOpenHashMap<>();
+        for (int i = 0; i < SLOTS; i++) {
+            ItemStack stack = ctx.player().inventory.getStackInSlot(i);
+            items[i] = stack.getItem();
+            blocks[i] = blockOf(stack);
+            metas[i] = items[i].getMetadata(stack.getMetadata());
+            if (items[i] instanceof ItemPickaxe) {
+                pickaxes |= 1L << i;
+            }
+            slotsByItem.addTo(items[i], 1L << i);
+            slotsByBlock.addTo(blocks[i], 1L << i);
+        }
+        return new InventoryIndex(ctx.player(), items, blocks, metas, pickaxes, slotsByItem, slotsByBlock);
+    }
+
+    /**
+     * @param slot The slot that changed
+     * @return An index that's the same as this one, but with what's in that slot now
+     */
+    public InventoryIndex with(IPlayerContext ctx, int slot) {
+        if (ctx.player() != player) {
+            return of(ctx); // the player respawned or changed dimension, and none of this is theirs
+        }
+        if (slot < 0 || slot >= SLOTS) {
+            return this; // armor never matters, but it's in the inventory too
+        }
+        ItemStack stack = ctx.player().inventory.getStackInSlot(slot);
+        Item[] items = this.items.clone();
+        Block[] blocks = this.blocks.clone();
+        int[] metas = this.metas.clone();
+        Reference2LongOpenHashMap<Item> slotsByItem = this.slotsByItem.clone();
+        Reference2LongOpenHashMap<Block> slotsByBlock = this.slotsByBlock.clone();
+        long bit = 1L << slot;
+        remove(slotsByItem, items[slot], bit);
+        remove(slotsByBlock, blocks[slot], bit);
+        items[slot] = stack.getItem();
+        blocks[slot] = blockOf(stack);
+        metas[slot] = items[slot].getMetadata(stack.getMetadata());
+        slotsByItem.addTo(items[slot], bit);
+        slotsByBlock.addTo(blocks[slot], bit);
+        long pickaxes = items[slot] instanceof ItemPickaxe ? this.pickaxes | bit : this.pickaxes & ~bit;
+        return new InventoryIndex(player, items, blocks, metas, pickaxes, slotsByItem, slotsByBlock);
+    }
+
+    private static <K> void remove(Reference2LongOpenHashMap<K> map, K key, long bit) {
+        long slots = map.getLong(key) & ~bit;
+        if (slots == 0) {
+            map.removeLong(key);
+        } else {
+            map.put(key, slots);
+        }
+    }
+
+    private static Block blockOf(ItemStack stack) {
+        if (stack.isEmpty() || !(stack.getItem() instanceof ItemBlock)) {
+            return Blocks.AIR;
+        }
+        return ((ItemBlock) stack.getItem()).getBlock();
+    }
+
+    /**
+     * Placed at the player's feet, against the block below, facing however the player is facing right now
+     */
+    private IBlockState placeableFrom(IPlayerContext ctx, int slot) {
+        if (blocks[slot] == Blocks.AIR || ctx.world() == null) {
+            return Blocks.AIR.getDefaultState();
+        }
+        EntityPlayer player = ctx.player();
+        // <toxic cloud>
+        return blocks[slot].getStateForPlacement(ctx.world(), ctx.playerFeet(), EnumFacing.UP, (float) player.posX, (float) player.posY, (float) player.posZ, metas[slot], player);
+        // </toxic cloud>
+    }
+
+    /**
+     * @return Whether this is an index of this player's inventory, and not one from before they respawned
+     */
+    public boolean isOf(EntityPlayer player) {
+        return this.player == player;
+    }
+
+    public Item item(int slot) {
+        return items[slot];
+    }
+
+    /**
+     * @return The slots holding this item, {@link net.minecraft.init.Items#AIR} for empty slots
+     */
+    public long slotsWith(Item item) {
+        return slotsByItem.getLong(item);
+    }
+
+    /**
+     * @return The slots holding any of these items
+     */
+    public long slotsWithAny(List<Item> items) {
+        long slots = 0;
+        for (Item item : items) {
+            slots |= slotsWith(item);
+        }
+        return slots;
+    }
+
+    /**
+     * @return The slots holding a block, of any kind
+     */
+    public long blocks() {
+        return ~slotsByBlock.getLong(Blocks.AIR) & ((1L << SLOTS) - 1);
+    }
+
+    /**
+     * @return The slots holding a block that would be placed as this state, if it were placed where the player is
+     * standing now, see {@link #placeable(IPlayerContext, int)}
+     */
+    public long slotsPlacing(IPlayerContext ctx, IBlockState state) {
+        long slots = 0;
+        for (long candidates = slotsByBlock.getLong(state.getBlock()); candidates != 0; candidates &= candidates - 1) {
+            int slot = Long.numberOfTrailingZeros(candidates);
+            if (state.equals(placeableFrom(ctx, slot))) {
+                slots |= 1L << slot;
+            }
+        }
+        return slots;
+    }
+
+    public long pickaxes() {
+        return pickaxes;
+    }
+
+    /**
+     * @return What the block in this slot would be placed as, approximately, if it were placed where the player is
+     * standing now and facing the way they are now, or air if it isn't a block
+     */
+    public IBlockState placeable(IPlayerContext ctx, int slot) {
+        return placeableFrom(ctx, slot);
+    }
+
+    /**
+     * @return What the slots from {@code from} up to but not including {@code to} would place, as in
+     * {@link #placeable(IPlayerContext, int)}
+     */
+    public List<IBlockState> placeable(IPlayerContext ctx, int from, int to) {
+        List<IBlockState> res = new ArrayList<>(to - from);
+        for (int slot = from; slot < to; slot++) {
+            IBlockState state = null;
+            // stacks of the same block are common, and they'd all be placed the same
+            for (int other = from; other < slot && state == null; other++) {
+                if (blocks[other] == blocks[slot] && metas[other] == metas[slot]) {
+                    state = res.get(other - from);
+                }
+            }
+            res.add(state != null ? state : placeableFrom(ctx, slot));
+        }
+        return res;
+    }
+
+    /**
+     * @return The lowest slot in the mask, or -1 if it's empty
+     */
+    public static int first(long slots) {
+        return slots == 0 ? -1 : Long.numberOfTrailingZeros(slots);
+    }
+}
@@ -27,6 +27,8 @@ import baritone.api.process.PathingCommand;
 import baritone.api.process.PathingCommandType;
 import baritone.behavior.PathingBehavior;
 import baritone.pathing.path.PathExecutor;
+import baritone.utils.jfr.JfrEvents;
+import baritone.utils.jfr.ProcessTickEvent;
 import net.minecraft.util.math.BlockPos;
 
 import java.util.*;
@@ -198,7 +200,9 @@ public class PathingControlManager implements IPathingControlManager {
         while (iterator.hasNext()) {
             IBaritoneProcess proc = iterator.next();
 
+            ProcessTickEvent event = JfrEvents.beginProcessTick();
             PathingCommand exec = proc.onTick(Objects.equals(proc, inControlLastTick) && baritone.getPathingBehavior().calcFailedLastTick(), baritone.getPathingBehavior().isSafeToCancel());
+            JfrEvents.endProcessTick(event, proc, exec);
             if (exec == null) {
                 if (proc.isActive()) {
                     throw new IllegalStateException(proc.displayName() + " actively returned null PathingCommand");
@@ -29,9 +29,9 @@ import net.minecraft.item.ItemStack;
 import net.minecraft.item.ItemSword;
 import net.minecraft.item.ItemTool;
 
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Function;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 /**
  * A cached list of the best tools on the hotbar for any block
@@ -41,29 +41,25 @@ import java.util.function.Function;
 public class ToolSet {
 
     /**
-     * A cache mapping a {@link Block} to how long it will take to break
-     * with this toolset, given the optimum tool is used.
+     * How fast every block state can be mined with this toolset, given the optimum tool is used, by the id in
+     * {@link Block#BLOCK_STATE_IDS}. Never written to once made, so one can be shared by every toolset made from the
+     * same inventory.
      */
-    private final Map<Block, Double> breakStrengthCache;
-
-    /**
-     * My buddy leijurv owned me so we have this to not create a new lambda instance.
-     */
-    private final Function<Block, Double> backendCalculation;
+    private double[] strVsState;
 
     private final EntityPlayerSP player;
 
     public ToolSet(EntityPlayerSP player) {
-        breakStrengthCache = new HashMap<>();
         this.player = player;
+    }
 
-        if (Baritone.settings().considerPotionEffects.value) {
-            double amplifier = potionAmplifier();
-            Function<Double, Double> amplify = x -> amplifier * x;
-            backendCalculation = amplify.compose(this::getBestDestructionTime);
-        } else {
-            backendCalculation = this::getBestDestructionTime;
-        }
+    /**
+     * @param strVsState What {@link #strVsStates()} returned for this player, with what {@link #inputs()} returns still
+     *                   the same
+     */
+    public ToolSet(EntityPlayerSP player, double[] strVsState) {
+        this.player = player;
+        this.strVsState = strVsState;
     }
 
     /**
@@ -73,7 +69,61 @@ public class ToolSet {
      * @return the speed of how fast we'll mine it. 1/(time in ticks)
      */
     public double getStrVsBlock(IBlockState state) {
-        return breakStrengthCache.computeIfAbsent(state.getBlock(), backendCalculation);
+        if (strVsState == null) {
+            strVsState = strVsStates();
+        }
+        int id = Block.BLOCK_STATE_IDS.get(state);
+        if (id < 0) {
+            // a state with properties that only come from the blocks around it, which every block has the same speed for
+            Block block = state.getBlock();
+            id = Block.getIdFromBlock(block) << 4 | block.getMetaFromState(state);
+        }
+        return strVsState[id];
+    }
+
+    /**
+     * Works out {@link #getStrVsBlock} for every block state at once, including {@link baritone.api.Settings#considerPotionEffects}
+     * and {@link baritone.api.Settings#blocksToAvoidBreaking}. Each block is only worked out once, from its default state, and
+     * every one of its states gets the same speed.
+     *
+     * @return How fast each block state can be mined, by the id in {@link Block#BLOCK_STATE_IDS}
+     */
+    public double[] strVsStates() {
+        int maxId = 0;
+        for (Block block : Block.REGISTRY) {
+            maxId = Math.max(maxId, Block.getIdFromBlock(block));
+        }
+        double amplifier = Baritone.settings().considerPotionEffects.value ? potionAmplifier() : 1;
+        double[] strVsState = new double[(maxId + 1) << 4];
+        for (Block block : Block.REGISTRY) {
+            double strVsBlock = getBestDestructionTime(block) * amplifier;
+            int first = Block.getIdFromBlock(block) << 4;
+            Arrays.fill(strVsState, first, first + 16, strVsBlock);
+        }
+        return strVsState;
+    }
+
+    /**
+     * @return Everything that {@link #strVsStates()} depends on, if this is still equal to what it was then, the speeds
+     * are still right. Of the hotbar, that's just what would change the speed of each tool or whether it's used at
+     * all, so a tool wearing down doesn't count until the item saver would stop using it.
+     */
+    public List<Object> inputs() {
+        List<Object> inputs = new ArrayList<>();
+        inputs.add(player);
+        inputs.add(Baritone.settings().considerPotionEffects.value ? potionAmplifier() : 1D);
+        inputs.add(new ArrayList<>(Baritone.settings().blocksToAvoidBreaking.value));
+        inputs.add(Baritone.settings().avoidBreakingMultiplier.value);
+        // without auto tool, the speed is whatever the held item gets
+        inputs.add(Baritone.settings().autoTool.value ? -1 : player.inventory.currentItem);
+        inputs.add(Baritone.settings().useSwordToMine.value);
+        for (int i = 0; i < 9; i++) {
+            ItemStack itemStack = player.inventory.getStackInSlot(i);
+            inputs.add(itemStack.getItem());
+            inputs.add(itemStack.getEnchantmentTagList().copy());
+            inputs.add(Baritone.settings().itemSaver.value && (itemStack.getItemDamage() + Baritone.settings().itemSaverThreshold.value) >= itemStack.getMaxDamage() && itemStack.getMaxDamage() > 1);
+        }
+        return inputs;
     }
 
     /**
@@ -0,0 +1,186 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.utils.jfr;
+
+import baritone.api.pathing.goals.Goal;
+import baritone.api.process.IBaritoneProcess;
+import baritone.api.process.PathingCommand;
+import baritone.api.utils.PathCalculationResult;
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Java Flight Recorder events for the parts of Baritone that can hold up a tick, so that a recording of a stuttering
+ * game shows which of them was responsible.
+ * <p>
+ * JFR only exists on Java 8 from update 262 on, so nothing outside of this class touches the event classes directly.
+ * Every {@code begin} method returns null when JFR isn't there, every {@code end} method does nothing when given null,
+ * and the event classes are never loaded.
+ */
+public final class JfrEvents {
+
+    /**
+     * Whether the running JVM has a flight recorder to record to
+     */
+    public static final boolean ENABLED = isAvailable();
+
+    private JfrEvents() {}
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return FlightRecorder.isAvailable();
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }
+    }
+
+    public static PathSearchEvent beginPathSearch() {
+        if (!ENABLED) {
+            return null;
+        }
+        PathSearchEvent event = new PathSearchEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endPathSearch(PathSearchEvent event, Goal goal, int nodes, int movements, int mapSize, PathCalculationResult.Type result) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.goal = goal.getClass().getSimpleName();
+            event.nodes = nodes;
+            event.movements = movements;
+            event.mapSize = mapSize;
+            event.result = result.name();
+            event.commit();
+        }
+    }
+
+    public static ChunkPackEvent beginChunkPack() {
+        if (!ENABLED) {
+            return null;
+        }
+        ChunkPackEvent event = new ChunkPackEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endChunkPack(ChunkPackEvent event, int chunkX, int chunkZ) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.chunkX = chunkX;
+            event.chunkZ = chunkZ;
+            event.commit();
+        }
+    }
+
+    public static RegionLoadEvent beginRegionLoad() {
+        if (!ENABLED) {
+            return null;
+        }
+        RegionLoadEvent event = new RegionLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endRegionLoad(RegionLoadEvent event, int regionX, int regionZ) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.regionX = regionX;
+            event.regionZ = regionZ;
+            event.commit();
+        }
+    }
+
+    public static RegionSaveEvent beginRegionSave() {
+        if (!ENABLED) {
+            return null;
+        }
+        RegionSaveEvent event = new RegionSaveEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endRegionSave(RegionSaveEvent event, int regionX, int regionZ, long bytes) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.regionX = regionX;
+            event.regionZ = regionZ;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    public static WorldScanEvent beginWorldScan() {
+        if (!ENABLED) {
+            return null;
+        }
+        WorldScanEvent event = new WorldScanEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * @param radius How many chunks out from the player were searched, 0 for a single chunk
+     */
+    public static void endWorldScan(WorldScanEvent event, Object scanner, int radius, int found) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.scanner = scanner.getClass().getSimpleName();
+            event.radius = radius;
+            event.found = found;
+            event.commit();
+        }
+    }
+
+    public static ProcessTickEvent beginProcessTick() {
+        if (!ENABLED) {
+            return null;
+        }
+        ProcessTickEvent event = new ProcessTickEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endProcessTick(ProcessTickEvent event, IBaritoneProcess process, PathingCommand command) {
+        if (event == null) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.process = process.getClass().getSimpleName();
+            event.command = command == null ? null : command.commandType.name();
+            event.commit();
+        }
+    }
+}
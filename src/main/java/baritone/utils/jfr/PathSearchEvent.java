@@ -0,0 +1,45 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.utils.jfr;
+
+import jdk.jfr.*;
+
+@Name("baritone.PathSearch")
+@Label("Path Search")
+@Category({"Baritone", "Pathing"})
+@Description("One A* search, from start to finish")
+@StackTrace(false)
+public final class PathSearchEvent extends Event {
+
+    @Label("Goal")
+    public String goal;
+
+    @Label("Nodes Expanded")
+    public int nodes;
+
+    @Label("Movements Considered")
+    public int movements;
+
+    @Label("Nodes Visited")
+    @Description("How many nodes ended up in the map, expanded or not")
+    public int mapSize;
+
+    @Label("Result")
+    public String result;
+}
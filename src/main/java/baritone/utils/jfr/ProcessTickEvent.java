@@ -0,0 +1,36 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.utils.jfr;
+
+import jdk.jfr.*;
+
+@Name("baritone.ProcessTick")
+@Label("Process Tick")
+@Category({"Baritone", "Processes"})
+@Description("One tick of an active process, deciding what to path to")
+@StackTrace(false)
+public final class ProcessTickEvent extends Event {
+
+    @Label("Process")
+    public String process;
+
+    @Label("Command")
+    @Description("What the process asked for, or null if it has nothing to do")
+    public String command;
+}
@@ -0,0 +1,35 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.utils.jfr;
+
+import jdk.jfr.*;
+
+@Name("baritone.RegionLoad")
+@Label("Region Load")
+@Category({"Baritone", "Cache"})
+@Description("Reading a cached region file, including waiting for its lock")
+@StackTrace(false)
+public final class RegionLoadEvent extends Event {
+
+    @Label("Region X")
+    public int regionX;
+
+    @Label("Region Z")
+    public int regionZ;
+}
@@ -0,0 +1,39 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.utils.jfr;
+
+import jdk.jfr.*;
+
+@Name("baritone.WorldScan")
+@Label("World Scan")
+@Category({"Baritone", "Scanning"})
+@Description("One search of the loaded chunks for blocks")
+@StackTrace(false)
+public final class WorldScanEvent extends Event {
+
+    @Label("Scanner")
+    public String scanner;
+
+    @Label("Chunk Radius")
+    @Description("How many chunks out from the player were searched, 0 for a single chunk")
+    public int radius;
+
+    @Label("Blocks Found")
+    public int found;
+}
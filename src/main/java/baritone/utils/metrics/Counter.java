@@ -0,0 +1,57 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils.metrics;
+
+import baritone.api.metrics.MetricSnapshot;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A count of things that happened, cheap enough to bump from any thread on hot paths
+ */
+public final class Counter implements Metric {
+
+    private final String unit;
+    private final LongAdder count = new LongAdder();
+
+    Counter(String unit) {
+        this.unit = unit;
+    }
+
+    public void increment() {
+        count.increment();
+    }
+
+    public void add(long amount) {
+        count.add(amount);
+    }
+
+    public long get() {
+        return count.sum();
+    }
+
+    @Override
+    public MetricSnapshot snapshot(String name) {
+        return MetricSnapshot.counter(name, unit, count.sum());
+    }
+
+    @Override
+    public void reset() {
+        count.reset();
+    }
+}
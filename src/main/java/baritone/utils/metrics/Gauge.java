@@ -0,0 +1,51 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils.metrics;
+
+import baritone.api.metrics.MetricSnapshot;
+
+import java.util.function.DoubleSupplier;
+
+/**
+ * A reading of something that goes up and down, taken whenever the metrics are read
+ */
+final class Gauge implements Metric {
+
+    private final String unit;
+    private final DoubleSupplier value;
+
+    Gauge(String unit, DoubleSupplier value) {
+        this.unit = unit;
+        this.value = value;
+    }
+
+    @Override
+    public MetricSnapshot snapshot(String name) {
+        double current;
+        try {
+            current = value.getAsDouble();
+        } catch (Throwable th) {
+            // reading it raced with whatever it measures, better to show that than break the whole snapshot
+            current = Double.NaN;
+        }
+        return MetricSnapshot.gauge(name, unit, current);
+    }
+
+    @Override
+    public void reset() {}
+}
@@ -0,0 +1,136 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils.metrics;
+
+import baritone.api.metrics.MetricSnapshot;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The distribution of non-negative values, such as how long something took in nanoseconds. Recording a value is
+ * lock free and doesn't allocate, so it can go on hot paths.
+ * <p>
+ * Values are counted in buckets, 8 for every power of two, so percentiles are accurate to within an eighth of the
+ * value. Values below 8 get a bucket each.
+ */
+public final class Histogram implements Metric {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final String unit;
+
+    /**
+     * What recorded values are divided by for the snapshot, such as 1000000 to show nanoseconds as milliseconds
+     */
+    private final double scale;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    Histogram(String unit, double scale) {
+        this.unit = unit;
+        this.scale = scale;
+    }
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        buckets.incrementAndGet(bucketOf(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records how long it's been since a {@link System#nanoTime()}, for histograms of durations in nanoseconds
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + (int) ((value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return The smallest value that goes in a bucket
+     */
+    static long lowestIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    @Override
+    public MetricSnapshot snapshot(String name) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return MetricSnapshot.histogram(name, unit, 0, 0, 0, 0, 0, 0);
+        }
+        long max = this.max.get();
+        return MetricSnapshot.histogram(name, unit, total,
+                sum.sum() / (double) total / scale,
+                percentile(counts, total, 0.5, max) / scale,
+                percentile(counts, total, 0.9, max) / scale,
+                percentile(counts, total, 0.99, max) / scale,
+                max / scale
+        );
+    }
+
+    /**
+     * @return The middle of the bucket that the percentile falls in, but never more than the largest value recorded
+     */
+    private static double percentile(long[] counts, long total, double percentile, long max) {
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long low = lowestIn(i);
+                long high = i + 1 < BUCKETS ? lowestIn(i + 1) - 1 : Long.MAX_VALUE;
+                return Math.min(low + (high - low) / 2.0, max);
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils.metrics;
+
+import baritone.Baritone;
+import baritone.api.metrics.IMetrics;
+import baritone.api.metrics.MetricSnapshot;
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * Where every counter, gauge and histogram lives. Classes that record something look their metrics up once, into
+ * static fields, and then record into those directly.
+ * <p>
+ * Names are dotted, starting with the subsystem, like {@code cache.region.load.time}.
+ */
+public final class Metrics implements IMetrics {
+
+    public static final Metrics INSTANCE = new Metrics();
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    private long nextDump;
+
+    private Metrics() {}
+
+    /**
+     * @param unit Shown after the value, such as {@code "chunks"}
+     */
+    public static Counter counter(String name, String unit) {
+        return (Counter) INSTANCE.metrics.computeIfAbsent(name, n -> new Counter(unit));
+    }
+
+    /**
+     * A histogram of values that are shown as they are, such as how many nodes a path search expanded
+     */
+    public static Histogram histogram(String name, String unit) {
+        return (Histogram) INSTANCE.metrics.computeIfAbsent(name, n -> new Histogram(unit, 1));
+    }
+
+    /**
+     * A histogram of durations, recorded in nanoseconds and shown in milliseconds
+     */
+    public static Histogram latency(String name) {
+        return (Histogram) INSTANCE.metrics.computeIfAbsent(name, n -> new Histogram("ms", 1000000));
+    }
+
+    /**
+     * Adds a gauge, replacing any other gauge with the same name
+     */
+    public static void gauge(String name, String unit, DoubleSupplier value) {
+        INSTANCE.metrics.put(name, new Gauge(unit, value));
+    }
+
+    @Override
+    public List<MetricSnapshot> snapshot() {
+        List<MetricSnapshot> snapshot = new ArrayList<>(metrics.size());
+        metrics.forEach((name, metric) -> snapshot.add(metric.snapshot(name)));
+        return snapshot;
+    }
+
+    @Override
+    public MetricSnapshot get(String name) {
+        Metric metric = metrics.get(name);
+        return metric == null ? null : metric.snapshot(name);
+    }
+
+    @Override
+    public void reset() {
+        metrics.values().forEach(Metric::reset);
+    }
+
+    /**
+     * Called every tick, writes the metrics to the Baritone directory in the background every
+     * {@link baritone.api.Settings#metricsDumpIntervalSeconds}
+     */
+    public void dumpIfDue() {
+        int interval = Baritone.settings().metricsDumpIntervalSeconds.value;
+        long now = System.currentTimeMillis();
+        if (interval <= 0 || now < nextDump) {
+            return;
+        }
+        boolean first = nextDump == 0;
+        nextDump = now + interval * 1000L;
+        if (first) {
+            return; // nothing has had time to happen yet
+        }
+        boolean json = "json".equalsIgnoreCase(Baritone.settings().metricsDumpFormat.value);
+        List<MetricSnapshot> snapshot = snapshot();
+        Baritone.getExecutor().execute(() -> {
+            Path file = Baritone.getDir().toPath().resolve(json ? "metrics.jsonl" : "metrics.csv");
+            try {
+                dump(file, now, snapshot, json);
+            } catch (IOException ex) {
+                System.out.println("Unable to write metrics to " + file);
+                ex.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Appends a snapshot to a file, as one JSON object per line, or as CSV rows with a header at the top of the file
+     */
+    private static synchronized void dump(Path file, long timestamp, List<MetricSnapshot> snapshot, boolean json) throws IOException {
+        boolean header = !json && !Files.exists(file);
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            if (json) {
+                JsonObject root = new JsonObject();
+                root.addProperty("timestamp", timestamp);
+                JsonArray array = new JsonArray();
+                for (MetricSnapshot metric : snapshot) {
+                    JsonObject object = new JsonObject();
+                    object.addProperty("name", metric.getName());
+                    object.addProperty("type", metric.getType().name().toLowerCase(Locale.ROOT));
+                    object.addProperty("unit", metric.getUnit());
+                    if (metric.getType() == MetricSnapshot.Type.HISTOGRAM) {
+                        object.addProperty("count", metric.getCount());
+                        object.addProperty("mean", metric.getMean());
+                        object.addProperty("p50", metric.getP50());
+                        object.addProperty("p90", metric.getP90());
+                        object.addProperty("p99", metric.getP99());
+                        object.addProperty("max", metric.getMax());
+                    } else {
+                        object.addProperty("value", metric.getValue());
+                    }
+                    array.add(object);
+                }
+                root.add("metrics", array);
+                out.write(new Gson().toJson(root));
+                out.newLine();
+                return;
+            }
+            if (header) {
+                out.write("timestamp,name,type,unit,value,count,mean,p50,p90,p99,max");
+                out.newLine();
+            }
+            for (MetricSnapshot metric : snapshot) {
+                out.write(String.format(Locale.ROOT, "%d,%s,%s,%s,%s,%d,%s,%s,%s,%s,%s", timestamp, metric.getName(),
+                        metric.getType().name().toLowerCase(Locale.ROOT), metric.getUnit(), metric.getValue(), metric.getCount(),
+                        metric.getMean(), metric.getP50(), metric.getP90(), metric.getP99(), metric.getMax()));
+                out.newLine();
+            }
+        }
+    }
+}
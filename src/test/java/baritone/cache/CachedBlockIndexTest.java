@@ -0,0 +1,154 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.math.BlockPos;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.file.Paths;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class CachedBlockIndexTest {
+
+    private static final String DIAMOND = "diamond_block";
+    private static final String EMERALD = "emerald_ore";
+
+    @BeforeClass
+    public static void bootstrap() {
+        // cached chunks look their tracked block names up in the registry
+        Bootstrap.register();
+    }
+
+    /**
+     * Every position that's been indexed, with the timestamp of its chunk, to check the index against
+     */
+    private final Map<BlockPos, Long> diamonds = new HashMap<>();
+
+    private final CachedBlockIndex blockIndex = new CachedBlockIndex(Paths.get("unused"));
+
+    @Test
+    public void nearestMatchesBruteForce() {
+        Random rand = new Random(28);
+        // across the region boundaries at chunk -32, 0 and 32, on both sides of the origin
+        Set<Long> used = new HashSet<>();
+        while (used.size() < 400) {
+            int chunkX = rand.nextInt(100) - 50;
+            int chunkZ = rand.nextInt(100) - 50;
+            if (used.add((long) chunkX << 32 | (chunkZ & 0xffffffffL))) {
+                // some are too old for the expiry used below
+                index(chunkX, chunkZ, 1 + rand.nextInt(12), rand.nextInt(5) == 0 ? 10 : 1000, rand);
+            }
+        }
+        for (int query = 0; query < 500; query++) {
+            int centerX = rand.nextInt(1600) - 800;
+            int centerZ = rand.nextInt(1600) - 800;
+            int radius = new int[]{0, 20, 100, 513, 2000, Integer.MAX_VALUE}[rand.nextInt(6)];
+            int maximum = new int[]{1, 2, 7, 64, 100000}[rand.nextInt(5)];
+            long expiry = rand.nextBoolean() ? Long.MIN_VALUE : 500;
+            assertNearest(maximum, centerX, centerZ, radius, expiry);
+        }
+    }
+
+    @Test
+    public void maximumSmallerThanOneChunk() {
+        Random rand = new Random(2828);
+        index(-1, -1, 300, 1000, rand);
+        index(0, -1, 300, 1000, rand);
+        index(-33, 0, 5, 1000, rand);
+        for (int maximum = 1; maximum < 10; maximum++) {
+            assertNearest(maximum, -8, -8, Integer.MAX_VALUE, Long.MIN_VALUE);
+            assertNearest(maximum, 0, -1, Integer.MAX_VALUE, Long.MIN_VALUE);
+            assertNearest(maximum, -513, 3, 40, Long.MIN_VALUE);
+        }
+    }
+
+    @Test
+    public void expiredChunksAreSkipped() {
+        Random rand = new Random(282828);
+        index(0, 0, 20, 10, rand);
+        index(5, 5, 20, 1000, rand);
+        List<BlockPos> found = blockIndex.getNearestLocationsOf(DIAMOND, 5, 8, 8, Integer.MAX_VALUE, 500);
+        assertEquals(5, found.size());
+        for (BlockPos pos : found) {
+            assertEquals(5, pos.getX() >> 4);
+            assertEquals(5, pos.getZ() >> 4);
+        }
+        assertTrue(blockIndex.getNearestLocationsOf(DIAMOND, 5, 8, 8, 16, 500).isEmpty());
+    }
+
+    /**
+     * Indexes a chunk with distinct diamond positions in it, and some emeralds that should never be found
+     */
+    private void index(int chunkX, int chunkZ, int count, long timestamp, Random rand) {
+        Set<Integer> packed = new HashSet<>();
+        while (packed.size() < count) {
+            packed.add(rand.nextInt(65536));
+        }
+        int[] positions = new int[count];
+        int i = 0;
+        for (int p : packed) {
+            positions[i++] = p;
+            diamonds.put(new BlockPos((chunkX << 4) + TrackedPositions.unpackX(p), TrackedPositions.unpackY(p), (chunkZ << 4) + TrackedPositions.unpackZ(p)), timestamp);
+        }
+        Map<String, TrackedPositions> tracked = new HashMap<>();
+        tracked.put(DIAMOND, TrackedPositions.of(positions, count));
+        tracked.put(EMERALD, TrackedPositions.of(new int[]{rand.nextInt(65536)}, 1));
+        blockIndex.update(new CachedChunk(chunkX, chunkZ, new BitSet(), new IBlockState[256], new int[256], tracked, timestamp, TrackedBlocks.DEFAULT_FINGERPRINT));
+    }
+
+    /**
+     * Checks the search against sorting every indexed position by distance. Positions at the same distance can come
+     * in any order, and any of them can be the one that's cut off at the maximum, so only the distances have to match
+     * exactly, as long as every position that's returned is one that qualifies.
+     */
+    private void assertNearest(int maximum, int centerX, int centerZ, int radius, long expiry) {
+        long radiusSq = (long) radius * radius;
+        List<Long> expected = new ArrayList<>();
+        for (Map.Entry<BlockPos, Long> entry : diamonds.entrySet()) {
+            long distance = distanceSq(entry.getKey(), centerX, centerZ);
+            if (entry.getValue() >= expiry && distance <= radiusSq) {
+                expected.add(distance);
+            }
+        }
+        Collections.sort(expected);
+        expected = expected.subList(0, Math.min(maximum, expected.size()));
+
+        List<BlockPos> found = blockIndex.getNearestLocationsOf(DIAMOND, maximum, centerX, centerZ, radius, expiry);
+        String query = "maximum " + maximum + " around " + centerX + "," + centerZ + " within " + radius + " expiry " + expiry;
+        List<Long> actual = new ArrayList<>();
+        for (BlockPos pos : found) {
+            Long timestamp = diamonds.get(pos);
+            assertNotNull(query + " found " + pos + " which isn't a diamond", timestamp);
+            assertTrue(query + " found " + pos + " which is expired", timestamp >= expiry);
+            actual.add(distanceSq(pos, centerX, centerZ));
+        }
+        assertEquals(query + " found duplicates", found.size(), new HashSet<>(found).size());
+        assertEquals(query, expected, actual);
+    }
+
+    private static long distanceSq(BlockPos pos, int centerX, int centerZ) {
+        long distX = pos.getX() - centerX;
+        long distZ = pos.getZ() - centerZ;
+        return distX * distX + distZ * distZ;
+    }
+}
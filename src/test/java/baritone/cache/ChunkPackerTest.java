@@ -0,0 +1,151 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockLiquid;
+import net.minecraft.block.BlockSlab;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.world.chunk.Chunk;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class ChunkPackerTest {
+
+    /**
+     * Everything that the pathing types treat differently, and some tracked blocks
+     */
+    private static IBlockState[] interesting;
+
+    /**
+     * Every block state that has an id, for sections that need the global palette
+     */
+    private static List<IBlockState> allStates;
+
+    @BeforeClass
+    public static void bootstrap() {
+        Bootstrap.register();
+        interesting = new IBlockState[]{
+                Blocks.STONE.getDefaultState(),
+                Blocks.DIRT.getDefaultState(),
+                Blocks.GLASS.getDefaultState(),
+                Blocks.WATER.getDefaultState(),
+                Blocks.WATER.getDefaultState().withProperty(BlockLiquid.LEVEL, 3),
+                Blocks.FLOWING_WATER.getDefaultState(),
+                Blocks.FLOWING_WATER.getDefaultState().withProperty(BlockLiquid.LEVEL, 7),
+                Blocks.LAVA.getDefaultState(),
+                Blocks.MAGMA.getDefaultState(),
+                Blocks.CACTUS.getDefaultState(),
+                Blocks.WEB.getDefaultState(),
+                Blocks.FIRE.getDefaultState(),
+                Blocks.STONE_SLAB.getDefaultState().withProperty(BlockSlab.HALF, BlockSlab.EnumBlockHalf.BOTTOM),
+                Blocks.STONE_SLAB.getDefaultState().withProperty(BlockSlab.HALF, BlockSlab.EnumBlockHalf.TOP),
+                Blocks.DOUBLE_STONE_SLAB.getDefaultState(),
+                Blocks.TALLGRASS.getDefaultState(),
+                Blocks.RED_FLOWER.getDefaultState(),
+                Blocks.DOUBLE_PLANT.getDefaultState(),
+                Blocks.EMERALD_ORE.getDefaultState(),
+                Blocks.DIAMOND_BLOCK.getDefaultState(),
+                Blocks.CHEST.getDefaultState(),
+        };
+        allStates = new ArrayList<>();
+        for (IBlockState state : Block.BLOCK_STATE_IDS) {
+            allStates.add(state);
+        }
+    }
+
+    @Test
+    public void matchesPerBlock() {
+        Random rand = new Random(26);
+        List<TrackedBlocks> trackedSets = Arrays.asList(
+                TrackedBlocks.of(Collections.emptyList()),
+                TrackedBlocks.of(Arrays.asList(Blocks.GLASS, Blocks.STONE_SLAB, Blocks.WATER))
+        );
+        for (int trial = 0; trial < 6; trial++) {
+            // a 3x3 of chunks across the origin, so some are at negative coordinates, and the water in the middle one
+            // has neighbors all around
+            SyntheticChunks world = new SyntheticChunks();
+            for (int chunkX = -1; chunkX <= 1; chunkX++) {
+                for (int chunkZ = -1; chunkZ <= 1; chunkZ++) {
+                    fill(world, chunkX, chunkZ, rand);
+                }
+            }
+            for (int chunkX = -1; chunkX <= 1; chunkX++) {
+                for (int chunkZ = -1; chunkZ <= 1; chunkZ++) {
+                    Chunk chunk = world.chunk(chunkX, chunkZ);
+                    for (TrackedBlocks tracked : trackedSets) {
+                        String where = "trial " + trial + " chunk " + chunkX + "," + chunkZ;
+                        assertSamePack(where, ChunkPacker.packPerBlock(chunk, world, tracked, 0), ChunkPacker.pack(chunk, world, tracked, 0));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Terrain with a lake over it, full of the blocks that classify differently, then a section with a bigger palette
+     * and one with every block state there is, and nothing above that so the top sections are left empty
+     */
+    private static void fill(SyntheticChunks world, int chunkX, int chunkZ, Random rand) {
+        List<IBlockState> some = new ArrayList<>(allStates.subList(0, 40));
+        Collections.shuffle(some, rand);
+        for (int x = chunkX << 4; x < (chunkX << 4) + 16; x++) {
+            for (int z = chunkZ << 4; z < (chunkZ << 4) + 16; z++) {
+                int height = 50 + rand.nextInt(12);
+                for (int y = 0; y < height; y++) {
+                    world.set(x, y, z, rand.nextInt(20) == 0 ? pick(interesting, rand) : Blocks.STONE.getDefaultState());
+                }
+                for (int y = height; y < 62; y++) {
+                    // mostly still water, with some flowing water for the still water around it to notice
+                    world.set(x, y, z, rand.nextInt(30) == 0 ? Blocks.WATER.getDefaultState().withProperty(BlockLiquid.LEVEL, 1 + rand.nextInt(7)) : Blocks.WATER.getDefaultState());
+                }
+                if (rand.nextInt(4) == 0) {
+                    world.set(x, 62, z, pick(interesting, rand));
+                }
+                for (int y = 80; y < 96; y++) {
+                    if (rand.nextInt(3) == 0) {
+                        world.set(x, y, z, some.get(rand.nextInt(some.size())));
+                    }
+                }
+                for (int y = 96; y < 112; y++) {
+                    world.set(x, y, z, allStates.get(rand.nextInt(allStates.size())));
+                }
+            }
+        }
+    }
+
+    private static IBlockState pick(IBlockState[] states, Random rand) {
+        return states[rand.nextInt(states.length)];
+    }
+
+    private static void assertSamePack(String where, CachedChunk expected, CachedChunk actual) {
+        assertEquals(where, expected.copyData(), actual.copyData());
+        assertArrayEquals(where, expected.getOverview(), actual.getOverview());
+        assertArrayEquals(where, expected.getHeightMap(), actual.getHeightMap());
+        assertEquals(where, expected.getTrackedBlocks().keySet(), actual.getTrackedBlocks().keySet());
+        for (Map.Entry<String, TrackedPositions> entry : expected.getTrackedBlocks().entrySet()) {
+            assertArrayEquals(where + " " + entry.getKey(), entry.getValue().toArray(), actual.getTrackedBlocks().get(entry.getKey()).toArray());
+        }
+    }
+}
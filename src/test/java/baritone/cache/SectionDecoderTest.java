@@ -0,0 +1,92 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.cache;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SectionDecoderTest {
+
+    /**
+     * Packs entries the way {@link net.minecraft.util.BitArray} does, letting them straddle two longs
+     */
+    private static long[] pack(int[] values, int bitsPerEntry) {
+        long[] words = new long[values.length * bitsPerEntry / 64];
+        for (int index = 0; index < values.length; index++) {
+            int bit = index * bitsPerEntry;
+            words[bit >> 6] |= (long) values[index] << (bit & 63);
+            if ((bit & 63) + bitsPerEntry > 64) {
+                words[(bit >> 6) + 1] |= (long) values[index] >>> (64 - (bit & 63));
+            }
+        }
+        return words;
+    }
+
+    @Test
+    public void decode() {
+        Random rand = new Random(4096);
+        for (int bits = 1; bits <= 16; bits++) {
+            int[] values = new int[SectionDecoder.ENTRIES];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = rand.nextInt(1 << bits);
+            }
+            assertArrayEquals(values, SectionDecoder.get().decode(pack(values, bits), bits));
+        }
+    }
+
+    @Test
+    public void find() {
+        Random rand = new Random(2048);
+        for (int bits = 1; bits <= 16; bits++) {
+            for (int paletteSize : new int[]{1, 2, 3, 5, 9, 17, 1 << bits}) {
+                if (paletteSize > 1 << bits) {
+                    continue;
+                }
+                int[] values = new int[SectionDecoder.ENTRIES];
+                for (int i = 0; i < values.length; i++) {
+                    // mostly the first index, like air, and a few of everything else
+                    values[i] = rand.nextInt(4) == 0 ? rand.nextInt(paletteSize) : 0;
+                }
+                long[] words = pack(values, bits);
+                for (int wanted : new int[]{1, 2, 4, 5, paletteSize - 1, paletteSize}) {
+                    boolean[] matches = new boolean[paletteSize];
+                    for (int i = 0; i < Math.min(wanted, paletteSize); i++) {
+                        matches[rand.nextInt(paletteSize)] = true;
+                    }
+                    int expected = 0;
+                    int[] expectedHits = new int[SectionDecoder.ENTRIES];
+                    for (int i = 0; i < values.length; i++) {
+                        if (matches[values[i]]) {
+                            expectedHits[expected++] = i;
+                        }
+                    }
+                    SectionDecoder decoder = SectionDecoder.get();
+                    int found = decoder.find(words, bits, matches, paletteSize);
+                    assertEquals(expected, found);
+                    for (int i = 0; i < found; i++) {
+                        assertEquals(expectedHits[i], decoder.hits()[i]);
+                    }
+                }
+            }
+        }
+    }
+}
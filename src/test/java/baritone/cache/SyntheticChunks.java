@@ -0,0 +1,178 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import baritone.utils.accessor.IBlockStateContainer;
+import net.minecraft.block.material.Material;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Biomes;
+import net.minecraft.init.Blocks;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.BitArray;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.IBlockAccess;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.BlockStateContainer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.IBlockStatePalette;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Chunks made up in memory, with no world behind them, so that {@link ChunkPacker} can be run outside of the game.
+ * Their sections hand out their storage through {@link IBlockStateContainer} the way the mixin does in game. Anything
+ * outside of the chunks that have been made is air, as it would be in an unloaded chunk.
+ */
+@SuppressWarnings("NullableProblems")
+public final class SyntheticChunks implements IBlockAccess {
+
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+
+    public Chunk chunk(int chunkX, int chunkZ) {
+        return chunks.computeIfAbsent(ChunkPos.asLong(chunkX, chunkZ), key -> new SyntheticChunk(chunkX, chunkZ));
+    }
+
+    public void set(int x, int y, int z, IBlockState state) {
+        ((SyntheticChunk) chunk(x >> 4, z >> 4)).set(x & 15, y, z & 15, state);
+    }
+
+    @Nullable
+    @Override
+    public TileEntity getTileEntity(BlockPos pos) {
+        return null;
+    }
+
+    @Override
+    public int getCombinedLight(BlockPos pos, int lightValue) {
+        return 0;
+    }
+
+    @Override
+    public IBlockState getBlockState(BlockPos pos) {
+        Chunk chunk = chunks.get(ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4));
+        if (chunk == null) {
+            return Blocks.AIR.getDefaultState();
+        }
+        return chunk.getBlockState(pos.getX() & 15, pos.getY(), pos.getZ() & 15);
+    }
+
+    @Override
+    public boolean isAirBlock(BlockPos pos) {
+        return getBlockState(pos).getMaterial() == Material.AIR;
+    }
+
+    @Override
+    public Biome getBiome(BlockPos pos) {
+        return Biomes.FOREST;
+    }
+
+    @Override
+    public int getStrongPower(BlockPos pos, EnumFacing direction) {
+        return 0;
+    }
+
+    @Override
+    public WorldType getWorldType() {
+        return WorldType.DEFAULT;
+    }
+
+    private static final class SyntheticChunk extends Chunk {
+
+        private SyntheticChunk(int x, int z) {
+            super(null, x, z);
+        }
+
+        @Override
+        public IBlockState getBlockState(int x, int y, int z) {
+            if (y < 0 || y >= 256) {
+                return Blocks.AIR.getDefaultState();
+            }
+            ExtendedBlockStorage storage = getBlockStorageArray()[y >> 4];
+            return storage == null ? Blocks.AIR.getDefaultState() : storage.get(x, y & 15, z);
+        }
+
+        private void set(int x, int y, int z, IBlockState state) {
+            ExtendedBlockStorage[] sections = getBlockStorageArray();
+            if (sections[y >> 4] == null) {
+                sections[y >> 4] = new Section(y >> 4 << 4);
+            }
+            sections[y >> 4].set(x, y & 15, z, state);
+        }
+    }
+
+    /**
+     * Keeps its blocks in a {@link Container} instead of the plain one that every section is made with
+     */
+    private static final class Section extends ExtendedBlockStorage {
+
+        private final Container container = new Container();
+
+        private Section(int y) {
+            super(y, false);
+        }
+
+        @Override
+        public IBlockState get(int x, int y, int z) {
+            return container.get(x, y, z);
+        }
+
+        @Override
+        public void set(int x, int y, int z, IBlockState state) {
+            super.set(x, y, z, state);
+            container.set(x, y, z, state);
+        }
+
+        @Override
+        public BlockStateContainer getData() {
+            return container;
+        }
+    }
+
+    private static final class Container extends BlockStateContainer implements IBlockStateContainer {
+
+        @Override
+        public IBlockStatePalette getPalette() {
+            return palette;
+        }
+
+        @Override
+        public BitArray getStorage() {
+            return storage;
+        }
+
+        @Override
+        public IBlockState getAtPalette(int index) {
+            return palette.getBlockState(index);
+        }
+
+        @Override
+        public int[] storageArray() {
+            int[] values = new int[SectionDecoder.ENTRIES];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = storage.getAt(i);
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache;
+
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TrackedPositionsTest {
+
+    @Test
+    public void packing() {
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                for (int y = 0; y < 256; y++) {
+                    int packed = TrackedPositions.pack(x, y, z);
+                    assertEquals(x, TrackedPositions.unpackX(packed));
+                    assertEquals(y, TrackedPositions.unpackY(packed));
+                    assertEquals(z, TrackedPositions.unpackZ(packed));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sparseAndDense() {
+        Random rand = new Random(5021);
+        for (int count : new int[]{0, 1, 100, 4096, 4097, 30000, 65536}) {
+            boolean[] expected = new boolean[65536];
+            int[] packed = new int[count];
+            for (int i = 0; i < count; i++) {
+                packed[i] = count == 65536 ? i : rand.nextInt(65536);
+                expected[packed[i]] = true;
+            }
+            TrackedPositions positions = TrackedPositions.of(packed, count);
+            int size = 0;
+            for (int i = 0; i < 65536; i++) {
+                assertEquals(expected[i], positions.contains(i));
+                if (expected[i]) {
+                    size++;
+                }
+            }
+            assertEquals(size, positions.size());
+            int[] array = positions.toArray();
+            assertEquals(size, array.length);
+            int[] sorted = array.clone();
+            Arrays.sort(sorted);
+            assertArrayEquals(sorted, array);
+            assertTrue(positions.sizeInBytes() <= 32 + 8192);
+        }
+    }
+
+    @Test
+    public void serialization() throws IOException {
+        Random rand = new Random(3141);
+        // 4200 random positions have duplicates, so that bitmap ends up under the threshold and is written as a list
+        for (int count : new int[]{1, 100, 4096, 4200, 30000, 65536}) {
+            int[] packed = new int[count];
+            for (int i = 0; i < count; i++) {
+                packed[i] = count == 65536 ? i : rand.nextInt(65536);
+            }
+            TrackedPositions positions = TrackedPositions.of(packed, count);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            positions.write(new DataOutputStream(bytes));
+            assertTrue(bytes.size() <= 2 + 8192);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            TrackedPositions read = TrackedPositions.read(in);
+            assertEquals(-1, in.read());
+            assertEquals(positions.size(), read.size());
+            assertArrayEquals(positions.toArray(), read.toArray());
+        }
+    }
+}
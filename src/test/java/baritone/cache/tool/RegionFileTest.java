@@ -0,0 +1,119 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.cache.tool;
+
+import baritone.cache.CachedRegion;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+public class RegionFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static RegionFile.Chunk chunk(int x, int z, long timestamp, String surface) {
+        RegionFile.Chunk chunk = new RegionFile.Chunk(x, z);
+        Arrays.fill(chunk.overview, surface);
+        // something solid at y=64 in column 0,0
+        chunk.data[(64 << 8) << 1 >> 3] = 1;
+        chunk.calculateHeightMap();
+        chunk.trackedBlocks.put("chest", new int[]{64 << 8 | 3 << 4 | 2});
+        chunk.cacheTimestamp = timestamp;
+        chunk.trackedSet = 42;
+        return chunk;
+    }
+
+    @Test
+    public void roundTrip() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("r.-1.2.bcr");
+        RegionFile region = new RegionFile(-1, 2);
+        region.put(chunk(3, 4, 1000, "stone"));
+        region.put(chunk(31, 0, 2000, "grass"));
+        region.write(file);
+
+        RegionFile read = RegionFile.read(file, 0);
+        assertEquals(-1, read.x);
+        assertEquals(2, read.z);
+        assertFalse(read.isOutdated());
+        assertEquals(2, read.getChunks().size());
+        RegionFile.Chunk chunk = read.getChunk(3, 4);
+        assertEquals(1000, chunk.getCacheTimestamp());
+        assertEquals(42, chunk.getTrackedSet());
+        assertEquals("stone", chunk.getOverview()[17]);
+        assertEquals(64, chunk.heightMap[0] & 0xff);
+        assertEquals(0, chunk.heightMap[1]);
+        assertArrayEquals(new int[]{64 << 8 | 3 << 4 | 2}, chunk.getTrackedBlocks().get("chest"));
+        assertEquals("grass", read.getChunk(31, 0).getOverview()[0]);
+        assertNull(read.getChunk(0, 0));
+    }
+
+    @Test
+    public void oldFormat() throws IOException {
+        Path file = folder.getRoot().toPath().resolve("r.0.0.bcr");
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(CachedRegion.CACHED_REGION_MAGIC_UNTRACKED);
+            for (int i = 0; i < 1024; i++) {
+                out.write(i == 0 ? CachedRegion.CHUNK_PRESENT : CachedRegion.CHUNK_NOT_PRESENT);
+                if (i == 0) {
+                    byte[] data = new byte[16384];
+                    data[(100 << 8 | 5) << 1 >> 3] = 4;
+                    out.write(data);
+                }
+            }
+            for (int i = 0; i < 256; i++) {
+                out.writeUTF("dirt");
+            }
+            out.writeShort(0);
+            out.writeLong(1234);
+        }
+        RegionFile read = RegionFile.read(file, 99);
+        assertTrue(read.isOutdated());
+        RegionFile.Chunk chunk = read.getChunk(0, 0);
+        assertEquals(1234, chunk.getCacheTimestamp());
+        assertEquals(99, chunk.getTrackedSet());
+        assertEquals(100, chunk.heightMap[5] & 0xff);
+        assertEquals("dirt", chunk.getOverview()[255]);
+    }
+
+    @Test
+    public void expiryAndMerge() {
+        RegionFile a = new RegionFile(0, 0);
+        a.put(chunk(0, 0, 1000, "stone"));
+        a.put(chunk(1, 0, 3000, "stone"));
+        RegionFile b = new RegionFile(0, 0);
+        b.put(chunk(0, 0, 2000, "sand"));
+        b.put(chunk(1, 0, 2000, "sand"));
+        b.put(chunk(2, 0, 2000, "sand"));
+        assertEquals(2, a.merge(b));
+        assertEquals("sand", a.getChunk(0, 0).getOverview()[0]);
+        assertEquals("stone", a.getChunk(1, 0).getOverview()[0]);
+        assertEquals("sand", a.getChunk(2, 0).getOverview()[0]);
+        assertEquals(2, a.removeOlderThan(2500));
+        assertEquals(1, a.getChunks().size());
+    }
+}
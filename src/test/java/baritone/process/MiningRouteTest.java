@@ -0,0 +1,99 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package baritone.process;
+
+import net.minecraft.util.math.BlockPos;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class MiningRouteTest {
+
+    @Test
+    public void veins() {
+        List<BlockPos> ores = Arrays.asList(
+                new BlockPos(0, 10, 0), new BlockPos(1, 11, 1), new BlockPos(2, 11, 1), // touching, diagonally too
+                new BlockPos(10, 10, 10), // alone
+                new BlockPos(4, 11, 1) // a gap of one block isn't touching
+        );
+        List<List<BlockPos>> veins = MiningRoute.veins(ores);
+        assertEquals(3, veins.size());
+        Set<Integer> sizes = new HashSet<>();
+        for (List<BlockPos> vein : veins) {
+            sizes.add(vein.size());
+        }
+        assertEquals(new HashSet<>(Arrays.asList(3, 1)), sizes);
+    }
+
+    @Test
+    public void veinsAreMinedTogether() {
+        Random rand = new Random(42);
+        for (int trial = 0; trial < 50; trial++) {
+            List<BlockPos> ores = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                ores.add(new BlockPos(rand.nextInt(64) - 32, rand.nextInt(16), rand.nextInt(64) - 32));
+            }
+            List<BlockPos> route = MiningRoute.plan(BlockPos.ORIGIN, ores);
+            assertEquals(new HashSet<>(ores), new HashSet<>(route));
+            assertEquals(ores.size(), route.size());
+            // once the route leaves a vein, it never comes back to it
+            Map<BlockPos, Integer> veinOf = new HashMap<>();
+            List<List<BlockPos>> veins = MiningRoute.veins(ores);
+            for (int i = 0; i < veins.size(); i++) {
+                for (BlockPos pos : veins.get(i)) {
+                    veinOf.put(pos, i);
+                }
+            }
+            Set<Integer> left = new HashSet<>();
+            for (int i = 1; i < route.size(); i++) {
+                int previous = veinOf.get(route.get(i - 1));
+                int current = veinOf.get(route.get(i));
+                if (previous != current) {
+                    assertTrue(left.add(previous));
+                    assertFalse(left.contains(current));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void notLongerThanGreedy() {
+        Random rand = new Random(1337);
+        for (int trial = 0; trial < 50; trial++) {
+            List<BlockPos> ores = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                // spread out, so that every block is its own vein and the plan can be compared to going to the nearest
+                ores.add(new BlockPos(rand.nextInt(32) * 3, rand.nextInt(8) * 3, rand.nextInt(32) * 3));
+            }
+            List<BlockPos> greedy = new ArrayList<>();
+            List<BlockPos> remaining = new ArrayList<>(new LinkedHashSet<>(ores));
+            BlockPos at = BlockPos.ORIGIN;
+            while (!remaining.isEmpty()) {
+                BlockPos from = at;
+                at = Collections.min(remaining, Comparator.comparingDouble(pos -> MiningRoute.cost(from, pos)));
+                remaining.remove(at);
+                greedy.add(at);
+            }
+            List<BlockPos> planned = MiningRoute.plan(BlockPos.ORIGIN, new ArrayList<>(new LinkedHashSet<>(ores)));
+            assertTrue(MiningRoute.length(BlockPos.ORIGIN, planned) <= MiningRoute.length(BlockPos.ORIGIN, greedy) + 1e-6);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * This file is part of Baritone.
+ *
+ * Baritone is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Baritone is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Baritone.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package baritone.utils.metrics;
+
+import baritone.api.metrics.MetricSnapshot;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HistogramTest {
+
+    @Test
+    public void bucketsAreContiguous() {
+        for (long value = 0; value < 100000; value++) {
+            int bucket = Histogram.bucketOf(value);
+            assertTrue(Histogram.lowestIn(bucket) <= value);
+            assertTrue(Histogram.lowestIn(bucket + 1) > value);
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.lowestIn(Histogram.bucketOf(Long.MAX_VALUE) + 1) - 1);
+    }
+
+    @Test
+    public void percentiles() {
+        Histogram histogram = new Histogram("ms", 1000);
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        MetricSnapshot snapshot = histogram.snapshot("test");
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(500.5, snapshot.getMean(), 1e-9);
+        assertEquals(500, snapshot.getP50(), 500 / 8.0);
+        assertEquals(900, snapshot.getP90(), 900 / 8.0);
+        assertEquals(990, snapshot.getP99(), 990 / 8.0);
+        assertEquals(1000, snapshot.getMax(), 1e-9);
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot("test").getCount());
+    }
+}
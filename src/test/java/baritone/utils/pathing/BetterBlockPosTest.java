@@ -77,6 +77,25 @@ public class BetterBlockPosTest {
         assertTrue(better.offset(null, 0) == better);
     }
 
+    /**
+     * Make sure positions are packed just like BlockPos packs them
+     */
+    @Test
+    public void testToLong() {
+        int[] coords = {0, 1, -1, 15, -16, 255, 12345, -12345, 29999999, -29999999};
+        for (int x : coords) {
+            for (int y : new int[]{0, 1, 64, 255, -1, 2047, -2048}) {
+                for (int z : coords) {
+                    long packed = BetterBlockPos.toLong(x, y, z);
+                    assertEquals(new BlockPos(x, y, z).toLong(), packed);
+                    assertEquals(x, BetterBlockPos.xFromLong(packed));
+                    assertEquals(y, BetterBlockPos.yFromLong(packed));
+                    assertEquals(z, BetterBlockPos.zFromLong(packed));
+                }
+            }
+        }
+    }
+
     public void benchOne() {
         BlockPos pos = new BlockPos(1, 2, 3);
         BetterBlockPos pos2 = new BetterBlockPos(1, 2, 3);